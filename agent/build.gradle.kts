@@ -20,6 +20,9 @@ tasks {
         manifest {
             attributes(
                 "Main-Class" to "net.janrupf.gradle.hytale.dev.agent.HytaleDevAgent",
+                "Premain-Class" to "net.janrupf.gradle.hytale.dev.agent.HytaleDevAgent",
+                "Can-Redefine-Classes" to "true",
+                "Can-Retransform-Classes" to "true",
             )
         }
     }
@@ -1,9 +1,14 @@
 package net.janrupf.gradle.hytale.dev.agent;
 
+import net.janrupf.gradle.hytale.dev.agent.loader.HytaleDevAgentClassloader;
+import net.janrupf.gradle.hytale.dev.agent.timeline.StartupTimeline;
+
 import java.nio.file.Path;
 import java.util.Objects;
 
 public class BytecodeEntryPoints {
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
     @SuppressWarnings("unused") // called by transformed bytecode from transforms.AssetModuleTransformer
     public static Path redirectAssetPackPath(Path assetPackPath) {
         // During development the manifest.json may not be where the asset resources
@@ -18,6 +23,95 @@ public class BytecodeEntryPoints {
         return assetPackPath;
     }
 
+    @SuppressWarnings("unused") // called by transformed bytecode from trace.TimingProbeTransform
+    public static void traceMethodExit(int probeId, long startNanos) {
+        var tracer = HytaleDevAgent.getMethodTracer();
+        if (tracer != null) {
+            tracer.recordExit(probeId, startNanos);
+        }
+    }
+
+    @SuppressWarnings("unused") // called by transformed bytecode from transforms.AllocationSiteTransformer
+    public static void recordAllocation(int siteId) {
+        var profiler = HytaleDevAgent.getAllocationProfiler();
+        if (profiler != null) {
+            // The allocating class is only needed once per site, to size the allocated type
+            profiler.recordInstance(siteId, profiler.needsCaller(siteId) ? STACK_WALKER.getCallerClass() : null);
+        }
+    }
+
+    @SuppressWarnings("unused") // called by transformed bytecode from transforms.AllocationSiteTransformer
+    public static void recordArrayAllocation(int siteId, int length) {
+        var profiler = HytaleDevAgent.getAllocationProfiler();
+        if (profiler != null) {
+            profiler.recordArray(siteId, length);
+        }
+    }
+
+    @SuppressWarnings("unused") // called by transformed bytecode from transforms.AllocationSiteTransformer
+    public static void recordMultiArrayAllocation(int siteId) {
+        var profiler = HytaleDevAgent.getAllocationProfiler();
+        if (profiler != null) {
+            profiler.recordMultiArray(siteId);
+        }
+    }
+
+    @SuppressWarnings("unused") // called by transformed bytecode from transforms.TickProfilerTransformer
+    public static void recordTick(Object world, long startNanos) {
+        var profiler = HytaleDevAgent.getTickProfiler();
+        if (profiler != null) {
+            profiler.recordTick(world, startNanos);
+        }
+    }
+
+    @SuppressWarnings("unused") // called by transformed bytecode from transforms.FirstTickTransformer
+    public static void recordFirstTick() {
+        var timeline = StartupTimeline.get();
+        if (!timeline.isComplete()) {
+            timeline.complete("world", "first tick");
+        }
+    }
+
+    @SuppressWarnings("unused") // called by transformed bytecode from transforms.ClassUseProbeTransformer
+    public static void recordClassUse(Class<?> type) {
+        if (type.getClassLoader() instanceof HytaleDevAgentClassloader loader) {
+            loader.recordClassUse(type.getName());
+        }
+    }
+
+    @SuppressWarnings("unused") // called by transformed bytecode from transforms.PluginLifecycleTransformer
+    public static void recordPluginPhase(Object plugin, String method, long startNanos) {
+        StartupTimeline.get().recordPluginPhase(plugin, method, startNanos);
+    }
+
+    @SuppressWarnings("unused") // called by transformed bytecode from transforms.ReloadablePluginTransformer
+    public static Class<?> forName(String name) throws ClassNotFoundException {
+        var reloaded = loadReloadableClass(name, true);
+        if (reloaded != null) {
+            return reloaded;
+        }
+
+        // Class.forName(String) resolves through the loader of the class calling it
+        return Class.forName(name, true, STACK_WALKER.getCallerClass().getClassLoader());
+    }
+
+    @SuppressWarnings("unused") // called by transformed bytecode from transforms.ReloadablePluginTransformer
+    public static Class<?> forName(String name, boolean initialize, ClassLoader loader) throws ClassNotFoundException {
+        var reloaded = loadReloadableClass(name, initialize);
+        return reloaded != null ? reloaded : Class.forName(name, initialize, loader);
+    }
+
+    @SuppressWarnings("unused") // called by transformed bytecode from transforms.ReloadablePluginTransformer
+    public static Class<?> loadClass(ClassLoader loader, String name) throws ClassNotFoundException {
+        var reloaded = loadReloadableClass(name, false);
+        return reloaded != null ? reloaded : loader.loadClass(name);
+    }
+
+    private static Class<?> loadReloadableClass(String name, boolean initialize) throws ClassNotFoundException {
+        var reloadableClassPath = HytaleDevAgent.getReloadableClassPath();
+        return reloadableClassPath != null ? reloadableClassPath.loadClass(name, initialize) : null;
+    }
+
     @SuppressWarnings("unused") // called by transformed bytecode from transforms.BridgeInjectorTransformer
     public static void initializeBridge() {
         try {
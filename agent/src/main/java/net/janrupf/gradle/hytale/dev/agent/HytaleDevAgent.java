@@ -1,13 +1,32 @@
 package net.janrupf.gradle.hytale.dev.agent;
 
+import net.janrupf.gradle.hytale.dev.agent.hotswap.HotswapDropDirectory;
+import net.janrupf.gradle.hytale.dev.agent.hotswap.Hotswapper;
+import net.janrupf.gradle.hytale.dev.agent.loader.ClassHierarchyIndex;
+import net.janrupf.gradle.hytale.dev.agent.loader.ClassTransformPipeline;
 import net.janrupf.gradle.hytale.dev.agent.loader.HytaleDevAgentClassloader;
+import net.janrupf.gradle.hytale.dev.agent.loader.PipelineClassFileTransformer;
+import net.janrupf.gradle.hytale.dev.agent.loader.ReloadableClassPath;
+import net.janrupf.gradle.hytale.dev.agent.metrics.AllocationProfiler;
+import net.janrupf.gradle.hytale.dev.agent.metrics.TickProfiler;
+import net.janrupf.gradle.hytale.dev.agent.timeline.StartupTimeline;
+import net.janrupf.gradle.hytale.dev.agent.trace.MethodTracer;
+import net.janrupf.gradle.hytale.dev.agent.transforms.AllocationSiteTransformer;
 import net.janrupf.gradle.hytale.dev.agent.transforms.AssetModuleTransformer;
 import net.janrupf.gradle.hytale.dev.agent.transforms.BridgeInjectorTransformer;
+import net.janrupf.gradle.hytale.dev.agent.transforms.ClassUseProbeTransformer;
+import net.janrupf.gradle.hytale.dev.agent.transforms.FirstTickTransformer;
+import net.janrupf.gradle.hytale.dev.agent.transforms.PluginLifecycleTransformer;
+import net.janrupf.gradle.hytale.dev.agent.transforms.ReloadablePluginTransformer;
+import net.janrupf.gradle.hytale.dev.agent.transforms.TickProfilerTransformer;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.lang.classfile.ClassHierarchyResolver;
+import java.lang.instrument.Instrumentation;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -16,6 +35,7 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.HashSet;
 import java.util.Properties;
 
 public class HytaleDevAgent {
@@ -31,29 +51,131 @@ public class HytaleDevAgent {
     // to ceise to work. In order to force IDE's to run the application directly, we generate configurations
     // that launch the agent jar, which then performs the classpath setup and launches the actual main class.
 
+    private static Properties configuration;
     private static Path assetRedirectSource;
     private static Path assetRedirectTarget;
+    private static ReloadableClassPath reloadableClassPath;
+    private static String reloadablePlugin;
+    private static Hotswapper hotswapper;
+    private static MethodTracer methodTracer;
+    private static AllocationProfiler allocationProfiler;
+    private static TickProfiler tickProfiler;
+
+    /**
+     * Entry point when attached with {@code -javaagent}.
+     * <p>
+     * In the {@code JAVA_AGENT} launch mode this registers the transformers with the JVM instead of
+     * defining classes through the agent classloader, the server is then launched from the application
+     * classpath by {@link #main}. The instrumentation is also used for hotswapping and method tracing in
+     * every launch mode.
+     *
+     * @param agentArgs       the agent arguments, unused
+     * @param instrumentation the instrumentation instance of the JVM
+     */
+    public static void premain(String agentArgs, Instrumentation instrumentation) {
+        var properties = loadConfiguration();
+        methodTracer = new MethodTracer(instrumentation);
+
+        if (Boolean.parseBoolean(properties.getProperty("javaAgent"))) {
+            long start = System.nanoTime();
+            registerTransformers(properties, instrumentation);
+            StartupTimeline.get().record("agent", "register transformers", start);
+        }
+
+        if (properties.containsKey("hotswapDirectory")) {
+            hotswapper = new Hotswapper(instrumentation);
+            HotswapDropDirectory.watch(Paths.get(properties.getProperty("hotswapDirectory")), hotswapper);
+        }
+    }
+
+    private static void registerTransformers(Properties properties, Instrumentation instrumentation) {
+        var resolver = ClassHierarchyResolver.defaultResolver()
+                .orElse(ClassHierarchyResolver.ofResourceParsing(ClassLoader.getSystemClassLoader()));
+        var classHierarchyIndex = loadClassHierarchyIndex(properties);
+        if (classHierarchyIndex != null) {
+            resolver = classHierarchyIndex.orElse(resolver);
+        }
+
+        var pipeline = new ClassTransformPipeline(resolver);
+        pipeline.addTransformer(new AssetModuleTransformer());
+
+        // The launcher jar only puts the bridge on the classpath if it exists
+        var bridgePath = properties.getProperty("bridge");
+        if (bridgePath != null && Files.exists(Paths.get(bridgePath))) {
+            pipeline.addTransformer(new BridgeInjectorTransformer());
+        }
+
+        pipeline.addTransformer(new PluginLifecycleTransformer());
+        pipeline.addTransformer(new FirstTickTransformer());
+
+        var allocationSiteTransformer = createAllocationSiteTransformer(properties);
+        if (allocationSiteTransformer != null) {
+            pipeline.addTransformer(allocationSiteTransformer);
+        }
+
+        var tickProfilerTransformer = createTickProfilerTransformer(properties);
+        if (tickProfilerTransformer != null) {
+            pipeline.addTransformer(tickProfilerTransformer);
+        }
+
+        instrumentation.addTransformer(new PipelineClassFileTransformer(pipeline), true);
+    }
 
     public static void main(String[] args) throws Throwable /* Transparent pass through for wrapped exceptions */ {
-        var configurationFile = System.getenv("HYTALE_DEV_AGENT_CONFIGURATION");
-        if (configurationFile == null) {
-            throw new RuntimeException("HYTALE_DEV_AGENT_CONFIGURATION environment variable is not set");
+        var properties = loadConfiguration();
+        var mainClassName = properties.getProperty("mainClassName");
+
+        if (properties.containsKey("hotswapDirectory") && hotswapper == null) {
+            System.err.println("[HytaleDev] Hotswap is enabled, but the agent was not attached with -javaagent");
         }
 
-        var properties = new Properties();
+        ClassLoader mainClassLoader;
+        if (Boolean.parseBoolean(properties.getProperty("appClassPath"))) {
+            // Launched through the launcher jar, the server and bridge are on the application
+            // classpath. Transformers have either been applied to the server jar ahead of time
+            // or are applied by the JVM through premain. Keeping the classes on the built-in
+            // loader allows them to be stored in an AOT cache.
+            mainClassLoader = ClassLoader.getSystemClassLoader();
+        } else {
+            long start = System.nanoTime();
+            mainClassLoader = createClassLoader(properties);
+            StartupTimeline.get().record("agent", "create classloader", start);
+        }
 
-        try (var reader = Files.newBufferedReader(Paths.get(configurationFile))) {
-            properties.load(reader);
-        } catch (IOException e) {
-            throw new UncheckedIOException("Failed to read agent configuration file", e);
+        try {
+            Thread.currentThread().setContextClassLoader(mainClassLoader);
+
+            long start = System.nanoTime();
+            var mainClass = mainClassLoader.loadClass(mainClassName);
+            StartupTimeline.get().record("agent", "load main class", start);
+
+            StartupTimeline.get().mark("server", "main");
+            mainClass.getMethod("main", String[].class)
+                    .invoke(null, (Object) args);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("Failed to load main class: " + mainClassName, e);
+        } catch (NoSuchMethodException e) {
+            throw new RuntimeException("Main class does not have a main method: " + mainClassName, e);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("Failed to access main method of class: " + mainClassName, e);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
         }
+    }
 
+    private static HytaleDevAgentClassloader createClassLoader(Properties properties) {
         var urls = new ArrayList<>(Arrays.asList(loadClassPath(properties.getProperty("classpath"))));
-        var mainClassName = properties.getProperty("mainClassName");
 
-        if (properties.containsKey("asset.redirect.source") && properties.containsKey("asset.redirect.target")) {
-            assetRedirectSource = Paths.get(properties.getProperty("asset.redirect.source"));
-            assetRedirectTarget = Paths.get(properties.getProperty("asset.redirect.target"));
+        URL[] reloadableUrls = null;
+        if (properties.containsKey("reloadableClasspath")) {
+            reloadableUrls = loadClassPath(properties.getProperty("reloadableClasspath"));
+
+            // Loaded by the reloadable generations only, the parent must never resolve them itself
+            var reloadable = new HashSet<String>();
+            for (var url : reloadableUrls) {
+                reloadable.add(url.toExternalForm());
+            }
+            urls.removeIf((url) -> reloadable.contains(url.toExternalForm()));
         }
 
         // Load bridge JAR if specified
@@ -75,7 +197,8 @@ public class HytaleDevAgent {
         var delegatingClassLoader = new HytaleDevAgentClassloader(
                 "Hytale",
                 urls.toArray(new URL[0]),
-                Thread.currentThread().getContextClassLoader()
+                Thread.currentThread().getContextClassLoader(),
+                loadClassHierarchyIndex(properties)
         );
         delegatingClassLoader.addTransformer(new AssetModuleTransformer());
 
@@ -84,21 +207,113 @@ public class HytaleDevAgent {
             delegatingClassLoader.addTransformer(new BridgeInjectorTransformer());
         }
 
-        try {
-            Thread.currentThread().setContextClassLoader(delegatingClassLoader);
+        delegatingClassLoader.addTransformer(new PluginLifecycleTransformer());
+        delegatingClassLoader.addTransformer(new FirstTickTransformer());
 
-            var mainClass = delegatingClassLoader.loadClass(mainClassName);
+        var allocationSiteTransformer = createAllocationSiteTransformer(properties);
+        if (allocationSiteTransformer != null) {
+            delegatingClassLoader.addTransformer(allocationSiteTransformer);
+        }
 
-            mainClass.getMethod("main", String[].class)
-                    .invoke(null, (Object) args);
-        } catch (ClassNotFoundException e) {
-            throw new RuntimeException("Failed to load main class: " + mainClassName, e);
-        } catch (NoSuchMethodException e) {
-            throw new RuntimeException("Main class does not have a main method: " + mainClassName, e);
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException("Failed to access main method of class: " + mainClassName, e);
-        } catch (InvocationTargetException e) {
-            throw e.getTargetException();
+        var tickProfilerTransformer = createTickProfilerTransformer(properties);
+        if (tickProfilerTransformer != null) {
+            delegatingClassLoader.addTransformer(tickProfilerTransformer);
+        }
+
+        if (reloadableUrls != null) {
+            delegatingClassLoader.addTransformer(new ReloadablePluginTransformer());
+            reloadableClassPath = delegatingClassLoader.enableReloading(reloadableUrls);
+            reloadablePlugin = properties.getProperty("reloadablePlugin");
+            reloadableClassPath.watchForChanges();
+        }
+
+        if (properties.containsKey("classLoadProfile")) {
+            delegatingClassLoader.enableClassLoadProfile(
+                    Paths.get(properties.getProperty("classLoadProfile")),
+                    new ClassUseProbeTransformer()
+            );
+        }
+
+        return delegatingClassLoader;
+    }
+
+    private static AllocationSiteTransformer createAllocationSiteTransformer(Properties properties) {
+        if (!properties.containsKey("allocationReport")) {
+            return null;
+        }
+
+        var codeSources = new HashSet<Path>();
+        for (var url : loadClassPath(properties.getProperty("projectCodeSources"))) {
+            try {
+                codeSources.add(Path.of(url.toURI()).toAbsolutePath().normalize());
+            } catch (URISyntaxException e) {
+                System.err.println("[HytaleDev] Invalid project code source: " + url);
+            }
+        }
+
+        allocationProfiler = new AllocationProfiler();
+        allocationProfiler.writeReportOnShutdown(Paths.get(properties.getProperty("allocationReport")));
+        return new AllocationSiteTransformer(allocationProfiler, codeSources);
+    }
+
+    private static TickProfilerTransformer createTickProfilerTransformer(Properties properties) {
+        if (!properties.containsKey("tickProfiler.class")) {
+            return null;
+        }
+
+        tickProfiler = new TickProfiler(Long.parseLong(properties.getProperty("tickProfiler.budgetNanos")));
+        return new TickProfilerTransformer(
+                properties.getProperty("tickProfiler.class"),
+                properties.getProperty("tickProfiler.method")
+        );
+    }
+
+    private static synchronized Properties loadConfiguration() {
+        // premain and main both need the configuration when attached as an agent
+        if (configuration != null) {
+            return configuration;
+        }
+
+        var configurationFile = System.getenv("HYTALE_DEV_AGENT_CONFIGURATION");
+        if (configurationFile == null) {
+            throw new RuntimeException("HYTALE_DEV_AGENT_CONFIGURATION environment variable is not set");
+        }
+
+        long start = System.nanoTime();
+        var properties = new Properties();
+
+        try (var reader = Files.newBufferedReader(Paths.get(configurationFile))) {
+            properties.load(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read agent configuration file", e);
+        }
+
+        if (properties.containsKey("asset.redirect.source") && properties.containsKey("asset.redirect.target")) {
+            assetRedirectSource = Paths.get(properties.getProperty("asset.redirect.source"));
+            assetRedirectTarget = Paths.get(properties.getProperty("asset.redirect.target"));
+        }
+
+        if (properties.containsKey("startupTimeline")) {
+            StartupTimeline.get().writeTo(Paths.get(properties.getProperty("startupTimeline")));
+        }
+
+        StartupTimeline.get().record("agent", "load configuration", start);
+
+        configuration = properties;
+        return properties;
+    }
+
+    private static ClassHierarchyIndex loadClassHierarchyIndex(Properties properties) {
+        if (!properties.containsKey("classHierarchyIndex")) {
+            return null;
+        }
+
+        try {
+            return ClassHierarchyIndex.load(Paths.get(properties.getProperty("classHierarchyIndex")));
+        } catch (IOException e) {
+            // Not fatal, transformers fall back to parsing the class files
+            System.err.println("[HytaleDev] Failed to load class hierarchy index: " + e.getMessage());
+            return null;
         }
     }
 
@@ -131,4 +346,69 @@ public class HytaleDevAgent {
     public static Path getAssetRedirectTarget() {
         return assetRedirectTarget;
     }
+
+    /**
+     * The reloadable project classpath, used by the bridge to trigger and react to reloads.
+     *
+     * @return the reloadable classpath, or null if hot reloading is not enabled
+     */
+    public static ReloadableClassPath getReloadableClassPath() {
+        return reloadableClassPath;
+    }
+
+    /**
+     * The hotswapper, used by the bridge to apply class changes sent by the IDE.
+     *
+     * @return the hotswapper, or null if the agent was not attached with {@code -javaagent}
+     */
+    public static Hotswapper getHotswapper() {
+        return hotswapper;
+    }
+
+    /**
+     * The method tracer, used by the bridge to trace methods requested by the IDE.
+     *
+     * @return the method tracer, or null if the agent was not attached with {@code -javaagent}
+     */
+    public static MethodTracer getMethodTracer() {
+        return methodTracer;
+    }
+
+    /**
+     * The allocation profiler, used by the bridge to report the top allocation sites.
+     *
+     * @return the allocation profiler, or null if allocation profiling is disabled
+     */
+    public static AllocationProfiler getAllocationProfiler() {
+        return allocationProfiler;
+    }
+
+    /**
+     * The tick profiler, used by the bridge to stream tick statistics.
+     *
+     * @return the tick profiler, or null if tick profiling is disabled
+     */
+    public static TickProfiler getTickProfiler() {
+        return tickProfiler;
+    }
+
+    /**
+     * A setting of the bridge, passed through the agent configuration with a {@code bridge.} prefix.
+     *
+     * @param name the name of the setting without prefix
+     * @return the value of the setting, or null if not set
+     */
+    public static String getBridgeProperty(String name) {
+        var properties = configuration;
+        return properties != null ? properties.getProperty("bridge." + name) : null;
+    }
+
+    /**
+     * The identifier of the plugin to restart after the project classes have been reloaded.
+     *
+     * @return the plugin identifier (group:name), or null if not known
+     */
+    public static String getReloadablePlugin() {
+        return reloadablePlugin;
+    }
 }
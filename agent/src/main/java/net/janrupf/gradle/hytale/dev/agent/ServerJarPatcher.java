@@ -0,0 +1,133 @@
+package net.janrupf.gradle.hytale.dev.agent;
+
+import net.janrupf.gradle.hytale.dev.agent.loader.AppliedTransformers;
+import net.janrupf.gradle.hytale.dev.agent.loader.ClassTransformPipeline;
+import net.janrupf.gradle.hytale.dev.agent.loader.HytaleDevAgentClassTransformer;
+import net.janrupf.gradle.hytale.dev.agent.transforms.AssetModuleTransformer;
+import net.janrupf.gradle.hytale.dev.agent.transforms.BridgeInjectorTransformer;
+import net.janrupf.gradle.hytale.dev.agent.transforms.FirstTickTransformer;
+import net.janrupf.gradle.hytale.dev.agent.transforms.PluginLifecycleTransformer;
+
+import java.io.IOException;
+import java.lang.classfile.ClassHierarchyResolver;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+/**
+ * Applies the built-in transformers to the server jar ahead of time.
+ * <p>
+ * Invoked by the Gradle plugin with the input and output jar paths as arguments. The
+ * patched jar records the applied transformers in its manifest, so the agent does not
+ * apply them again at runtime.
+ */
+public class ServerJarPatcher {
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: ServerJarPatcher <input jar> <output jar>");
+        }
+
+        patch(Paths.get(args[0]), Paths.get(args[1]));
+    }
+
+    /**
+     * The transformers which only depend on the server jar and can thus be applied ahead of time.
+     *
+     * @return the list of built-in transformers
+     */
+    public static List<HytaleDevAgentClassTransformer> builtinTransformers() {
+        return List.of(
+                new AssetModuleTransformer(),
+                new BridgeInjectorTransformer(),
+                new PluginLifecycleTransformer(),
+                new FirstTickTransformer()
+        );
+    }
+
+    private static void patch(Path inputJar, Path outputJar) throws IOException {
+        var transformers = builtinTransformers();
+        var temporaryJar = outputJar.resolveSibling(outputJar.getFileName() + ".tmp");
+
+        try (
+                var resourceLoader = new URLClassLoader(new URL[]{inputJar.toUri().toURL()}, null);
+                var input = new JarFile(inputJar.toFile());
+                var output = new JarOutputStream(Files.newOutputStream(temporaryJar))
+        ) {
+            var pipeline = new ClassTransformPipeline(ClassHierarchyResolver.defaultResolver()
+                    .orElse(ClassHierarchyResolver.ofResourceParsing(resourceLoader)));
+            for (var transformer : transformers) {
+                pipeline.addTransformer(transformer);
+            }
+
+            var manifest = input.getManifest() != null ? new Manifest(input.getManifest()) : new Manifest();
+            manifest.getMainAttributes().putIfAbsent(Attributes.Name.MANIFEST_VERSION, "1.0");
+            AppliedTransformers.writeToManifest(manifest, transformers);
+
+            output.putNextEntry(new JarEntry(JarFile.MANIFEST_NAME));
+            manifest.write(output);
+            output.closeEntry();
+
+            int patchedClasses = 0;
+            var entries = input.entries();
+            while (entries.hasMoreElements()) {
+                var entry = entries.nextElement();
+                var entryName = entry.getName();
+
+                if (entryName.equalsIgnoreCase(JarFile.MANIFEST_NAME) || isSignatureFile(entryName)) {
+                    // Signatures would no longer match the patched classes
+                    continue;
+                }
+
+                byte[] data;
+                try (var in = input.getInputStream(entry)) {
+                    data = in.readAllBytes();
+                }
+
+                if (entryName.endsWith(".class") && !entryName.startsWith("META-INF/")) {
+                    var className = entryName.substring(0, entryName.length() - ".class".length()).replace('/', '.');
+                    var original = ByteBuffer.wrap(data);
+                    var transformed = pipeline.transform(className, original, null, Set.of());
+
+                    if (transformed != original) {
+                        data = new byte[transformed.remaining()];
+                        transformed.get(data);
+                        patchedClasses++;
+                    }
+                }
+
+                var outputEntry = new JarEntry(entryName);
+                outputEntry.setTime(entry.getTime());
+                output.putNextEntry(outputEntry);
+                output.write(data);
+                output.closeEntry();
+            }
+
+            System.out.println("[HytaleDev] Patched " + patchedClasses + " classes in " + inputJar.getFileName());
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporaryJar);
+            throw e;
+        }
+
+        Files.move(temporaryJar, outputJar, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static boolean isSignatureFile(String entryName) {
+        if (!entryName.startsWith("META-INF/") || entryName.indexOf('/', "META-INF/".length()) != -1) {
+            return false;
+        }
+
+        return entryName.endsWith(".SF") || entryName.endsWith(".RSA")
+                || entryName.endsWith(".DSA") || entryName.endsWith(".EC");
+    }
+}
@@ -0,0 +1,151 @@
+package net.janrupf.gradle.hytale.dev.agent.hotswap;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Applies hotswap batches dropped into a directory by the Gradle {@code hotswap<Name>} task.
+ * <p>
+ * A batch is a zip of class files named {@code batch-<id>.zip}, moved into the directory
+ * atomically once complete. The outcome is written next to it as {@code batch-<id>.result}
+ * (a properties file) for the task to report. On startup the task's record of what it has
+ * sent is discarded, the freshly started server runs whatever is on disk.
+ */
+public final class HotswapDropDirectory {
+    /**
+     * The file the Gradle task records the hashes of the classes it has sent in.
+     */
+    public static final String SENT_STATE_FILE = "sent.properties";
+
+    private final Path directory;
+    private final Hotswapper hotswapper;
+
+    private HotswapDropDirectory(Path directory, Hotswapper hotswapper) {
+        this.directory = directory;
+        this.hotswapper = hotswapper;
+    }
+
+    /**
+     * Start watching the given directory on a daemon thread.
+     *
+     * @param directory  the drop directory
+     * @param hotswapper the hotswapper to apply batches with
+     */
+    public static void watch(Path directory, Hotswapper hotswapper) {
+        try {
+            Files.createDirectories(directory);
+            Files.deleteIfExists(directory.resolve(SENT_STATE_FILE));
+        } catch (IOException e) {
+            System.err.println("[HytaleDev] Failed to prepare hotswap directory: " + e.getMessage());
+            return;
+        }
+
+        var dropDirectory = new HotswapDropDirectory(directory, hotswapper);
+        var thread = new Thread(dropDirectory::run, "HytaleDev-Hotswap");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        try (var watchService = directory.getFileSystem().newWatchService()) {
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE);
+
+            // Batches dropped before the watch was registered never produce an event
+            for (var batch : existingBatches()) {
+                apply(batch);
+            }
+
+            while (true) {
+                var key = watchService.take();
+                for (var event : key.pollEvents()) {
+                    if (event.context() instanceof Path name && isBatch(name)) {
+                        var batch = directory.resolve(name);
+
+                        // Already applied by the scan above if it was dropped while registering
+                        if (Files.exists(batch)) {
+                            apply(batch);
+                        }
+                    }
+                }
+                key.reset();
+            }
+        } catch (IOException e) {
+            System.err.println("[HytaleDev] Hotswap directory watcher failed: " + e.getMessage());
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Shutting down
+        }
+    }
+
+    private List<Path> existingBatches() throws IOException {
+        try (var files = Files.list(directory)) {
+            // Batch ids are timestamps of the same length, sorting by name applies them in order
+            return files.filter((file) -> isBatch(file.getFileName()))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static boolean isBatch(Path name) {
+        var fileName = name.toString();
+        return fileName.startsWith("batch-") && fileName.endsWith(".zip");
+    }
+
+    private void apply(Path batch) {
+        HotswapResult result;
+        try {
+            result = hotswapper.redefine(readBatch(batch));
+        } catch (IOException e) {
+            result = new HotswapResult(false, 0, 0, "Failed to read batch: " + e.getMessage());
+        }
+
+        System.out.println("[HytaleDev] Hotswap: " + result.message());
+
+        var batchName = batch.getFileName().toString();
+        var resultFile = directory.resolve(batchName.substring(0, batchName.length() - ".zip".length()) + ".result");
+        var temporaryFile = directory.resolve(resultFile.getFileName() + ".tmp");
+
+        var properties = new Properties();
+        properties.setProperty("success", Boolean.toString(result.success()));
+        properties.setProperty("redefined", Integer.toString(result.redefined()));
+        properties.setProperty("notLoaded", Integer.toString(result.notLoaded()));
+        properties.setProperty("message", result.message());
+
+        try {
+            try (var writer = Files.newBufferedWriter(temporaryFile)) {
+                properties.store(writer, "Hotswap result");
+            }
+            Files.move(temporaryFile, resultFile, StandardCopyOption.REPLACE_EXISTING);
+            Files.deleteIfExists(batch);
+        } catch (IOException e) {
+            System.err.println("[HytaleDev] Failed to write hotswap result: " + e.getMessage());
+        }
+    }
+
+    private static HashMap<String, byte[]> readBatch(Path batch) throws IOException {
+        var classes = new HashMap<String, byte[]>();
+
+        try (var input = new ZipInputStream(Files.newInputStream(batch))) {
+            ZipEntry entry;
+            while ((entry = input.getNextEntry()) != null) {
+                var entryName = entry.getName();
+                if (entry.isDirectory() || !entryName.endsWith(".class")) {
+                    continue;
+                }
+
+                var className = entryName.substring(0, entryName.length() - ".class".length()).replace('/', '.');
+                classes.put(className, input.readAllBytes());
+            }
+        }
+
+        return classes;
+    }
+}
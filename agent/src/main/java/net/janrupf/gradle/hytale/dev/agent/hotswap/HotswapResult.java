@@ -0,0 +1,12 @@
+package net.janrupf.gradle.hytale.dev.agent.hotswap;
+
+/**
+ * The outcome of a hotswap batch.
+ *
+ * @param success    whether the batch was applied
+ * @param redefined  the number of classes redefined
+ * @param notLoaded  the number of classes skipped because they are not loaded
+ * @param message    a human-readable description of the outcome
+ */
+public record HotswapResult(boolean success, int redefined, int notLoaded, String message) {
+}
@@ -0,0 +1,92 @@
+package net.janrupf.gradle.hytale.dev.agent.hotswap;
+
+import net.janrupf.gradle.hytale.dev.agent.loader.HytaleDevAgentClassloader;
+
+import java.lang.instrument.ClassDefinition;
+import java.lang.instrument.Instrumentation;
+import java.lang.instrument.UnmodifiableClassException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the bytecode of loaded classes in place.
+ * <p>
+ * All classes of a batch are redefined in a single call, so either every change is applied or
+ * none is. The JVM only supports changes to method bodies, anything structural (added or removed
+ * methods and fields, changed signatures or hierarchy) fails the whole batch.
+ * <p>
+ * Classes defined by the agent classloader are passed through its transformers first, the same
+ * way they were transformed when they were defined.
+ */
+public final class Hotswapper {
+    private final Instrumentation instrumentation;
+
+    /**
+     * Create a new hotswapper.
+     *
+     * @param instrumentation the instrumentation of the JVM, must support redefinition
+     */
+    public Hotswapper(Instrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+    }
+
+    /**
+     * Redefine the loaded classes with the given bytecode.
+     * <p>
+     * Classes which are not loaded yet are skipped, they will be loaded from the updated class
+     * files once needed. A class loaded by multiple classloaders is redefined in every one of them.
+     *
+     * @param classes the new bytecode by binary class name
+     * @return the result of the redefinition
+     */
+    public synchronized HotswapResult redefine(Map<String, byte[]> classes) {
+        var loaded = new HashMap<String, List<Class<?>>>();
+        for (var loadedClass : instrumentation.getAllLoadedClasses()) {
+            if (classes.containsKey(loadedClass.getName())) {
+                loaded.computeIfAbsent(loadedClass.getName(), (name) -> new ArrayList<>()).add(loadedClass);
+            }
+        }
+
+        int notLoaded = classes.size() - loaded.size();
+
+        var definitions = new ArrayList<ClassDefinition>();
+        for (var entry : loaded.entrySet()) {
+            for (var loadedClass : entry.getValue()) {
+                var classData = classes.get(entry.getKey());
+
+                if (loadedClass.getClassLoader() instanceof HytaleDevAgentClassloader loader) {
+                    // The loader transformed the class when defining it, without this the redefinition
+                    // would strip its probes and added members would look like a structural change
+                    try {
+                        classData = loader.transformForRedefinition(loadedClass, classData);
+                    } catch (RuntimeException e) {
+                        return new HotswapResult(false, 0, notLoaded, "Transforming " + entry.getKey() + " failed: " + e);
+                    }
+                }
+
+                definitions.add(new ClassDefinition(loadedClass, classData));
+            }
+        }
+
+        if (definitions.isEmpty()) {
+            return new HotswapResult(true, 0, notLoaded, "None of the changed classes are loaded");
+        }
+
+        try {
+            instrumentation.redefineClasses(definitions.toArray(new ClassDefinition[0]));
+        } catch (UnsupportedOperationException e) {
+            return new HotswapResult(
+                    false,
+                    0,
+                    notLoaded,
+                    "Structural change, restart or reload required: " + e.getMessage()
+            );
+        } catch (ClassNotFoundException | UnmodifiableClassException | LinkageError e) {
+            return new HotswapResult(false, 0, notLoaded, "Redefinition failed: " + e);
+        }
+
+        return new HotswapResult(true, loaded.size(), notLoaded, "Redefined " + loaded.keySet());
+    }
+}
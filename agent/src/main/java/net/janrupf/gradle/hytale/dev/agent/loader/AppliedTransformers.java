@@ -0,0 +1,60 @@
+package net.janrupf.gradle.hytale.dev.agent.loader;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+
+/**
+ * Manifest marker recording which transformers were applied to a jar ahead of time.
+ */
+public final class AppliedTransformers {
+    /**
+     * Manifest main attribute listing the class names of the applied transformers, comma separated.
+     */
+    public static final Attributes.Name ATTRIBUTE = new Attributes.Name("Hytale-Dev-Applied-Transformers");
+
+    private AppliedTransformers() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Read the applied transformers from a jar manifest.
+     *
+     * @param manifest the manifest, may be null
+     * @return the class names of the applied transformers
+     */
+    public static Set<String> fromManifest(Manifest manifest) {
+        if (manifest == null) {
+            return Set.of();
+        }
+
+        var value = manifest.getMainAttributes().getValue(ATTRIBUTE);
+        if (value == null || value.isBlank()) {
+            return Set.of();
+        }
+
+        // Tolerate hand edited or repeatedly patched manifests
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter((name) -> !name.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * Record the given transformers as applied in a jar manifest.
+     *
+     * @param manifest     the manifest to modify
+     * @param transformers the applied transformers
+     */
+    public static void writeToManifest(Manifest manifest, Collection<? extends HytaleDevAgentClassTransformer> transformers) {
+        var names = transformers.stream()
+                .map((transformer) -> transformer.getClass().getName())
+                .distinct()
+                .toList();
+
+        manifest.getMainAttributes().put(ATTRIBUTE, String.join(",", names));
+    }
+}
@@ -0,0 +1,55 @@
+package net.janrupf.gradle.hytale.dev.agent.loader;
+
+/**
+ * Minimal bloom filter over strings, used to reject lookups of names that are definitely absent.
+ * <p>
+ * The filter is populated once while building the {@link ClassPathIndex} and is read-only
+ * afterwards, so concurrent queries need no synchronization.
+ */
+final class BloomFilter {
+    private static final int BITS_PER_ELEMENT = 10;
+    private static final int HASH_FUNCTIONS = 7;
+
+    private final long[] bits;
+    private final int bitCount;
+
+    BloomFilter(int expectedElements) {
+        long requestedBits = Math.max(64L, (long) expectedElements * BITS_PER_ELEMENT);
+        this.bits = new long[(int) Math.min(Integer.MAX_VALUE / 64, (requestedBits + 63) / 64)];
+        this.bitCount = bits.length * 64;
+    }
+
+    void add(String value) {
+        int hash1 = value.hashCode();
+        int hash2 = mix(hash1);
+
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            int bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            bits[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    boolean mightContain(String value) {
+        int hash1 = value.hashCode();
+        int hash2 = mix(hash1);
+
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            int bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static int mix(int hash) {
+        // Murmur3 finalizer, derives a second independent-enough hash for double hashing
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash | 1;
+    }
+}
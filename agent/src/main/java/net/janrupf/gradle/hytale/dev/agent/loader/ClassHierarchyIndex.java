@@ -0,0 +1,127 @@
+package net.janrupf.gradle.hytale.dev.agent.loader;
+
+import java.io.IOException;
+import java.lang.classfile.ClassHierarchyResolver;
+import java.lang.constant.ClassDesc;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Class hierarchy resolver backed by the index generated by the Gradle plugin during run preparation.
+ * <p>
+ * Resolving from the index avoids loading (or even parsing) arbitrary server classes while
+ * a transformer computes stack maps. Classes not contained in the index resolve to null,
+ * so this resolver is meant to be chained with fallbacks.
+ * <p>
+ * The index file is memory mapped and looked up in place through its hash table, nothing is
+ * decoded up front. It only covers the server jar, which does not change while the server runs,
+ * project classes which may be recompiled are always resolved from their current class files.
+ * <p>
+ * See GenerateClassHierarchyIndexTask in the Gradle plugin for the file format.
+ */
+public final class ClassHierarchyIndex implements ClassHierarchyResolver {
+    private static final int MAGIC = 0x48444348;
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_BYTES = 5 * Integer.BYTES;
+    private static final int ENTRY_BYTES = 4 * Integer.BYTES + 1;
+    private static final int NAME_HASH = 0;
+    private static final int NAME_INDEX = Integer.BYTES;
+    private static final int SUPER_INDEX = 2 * Integer.BYTES;
+    private static final int NEXT_ENTRY = 3 * Integer.BYTES;
+    private static final int FLAGS = 4 * Integer.BYTES;
+    private static final int FLAG_INTERFACE = 1;
+
+    private final ByteBuffer buffer;
+    private final int bucketMask;
+    private final int nameOffsets;
+    private final int buckets;
+    private final int entries;
+    private final int names;
+
+    private ClassHierarchyIndex(ByteBuffer buffer, int nameCount, int classCount, int bucketCount) {
+        this.buffer = buffer;
+        this.bucketMask = bucketCount - 1;
+        this.nameOffsets = HEADER_BYTES;
+        this.buckets = nameOffsets + nameCount * Integer.BYTES;
+        this.entries = buckets + bucketCount * Integer.BYTES;
+        this.names = entries + classCount * ENTRY_BYTES;
+    }
+
+    /**
+     * Load a class hierarchy index from the given file.
+     *
+     * @param file the index file
+     * @return the loaded index
+     * @throws IOException if the file can not be read or is not a supported index
+     */
+    public static ClassHierarchyIndex load(Path file) throws IOException {
+        ByteBuffer buffer;
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a class hierarchy index: " + file);
+        }
+
+        int version = buffer.getInt(Integer.BYTES);
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported class hierarchy index version " + version + ": " + file);
+        }
+
+        int nameCount = buffer.getInt(2 * Integer.BYTES);
+        int classCount = buffer.getInt(3 * Integer.BYTES);
+        int bucketCount = buffer.getInt(4 * Integer.BYTES);
+        long tablesEnd = HEADER_BYTES
+                + (long) nameCount * Integer.BYTES
+                + (long) bucketCount * Integer.BYTES
+                + (long) classCount * ENTRY_BYTES;
+        if (nameCount < 0 || classCount < 0 || Integer.bitCount(bucketCount) != 1 || tablesEnd > buffer.limit()) {
+            throw new IOException("Corrupt class hierarchy index: " + file);
+        }
+
+        return new ClassHierarchyIndex(buffer, nameCount, classCount, bucketCount);
+    }
+
+    @Override
+    public ClassHierarchyInfo getClassInfo(ClassDesc classDesc) {
+        if (!classDesc.isClassOrInterface()) {
+            return null;
+        }
+
+        var descriptor = classDesc.descriptorString();
+        var name = descriptor.substring(1, descriptor.length() - 1);
+        int hash = name.hashCode();
+
+        int entry = buffer.getInt(buckets + (hash & bucketMask) * Integer.BYTES);
+        while (entry != -1) {
+            int position = entries + entry * ENTRY_BYTES;
+            if (buffer.getInt(position + NAME_HASH) == hash
+                    && readName(buffer.getInt(position + NAME_INDEX)).equals(name)) {
+                if ((buffer.get(position + FLAGS) & FLAG_INTERFACE) != 0) {
+                    return ClassHierarchyInfo.ofInterface();
+                }
+
+                int superIndex = buffer.getInt(position + SUPER_INDEX);
+                return ClassHierarchyInfo.ofClass(
+                        superIndex == -1 ? null : ClassDesc.ofInternalName(readName(superIndex))
+                );
+            }
+
+            entry = buffer.getInt(position + NEXT_ENTRY);
+        }
+
+        return null;
+    }
+
+    private String readName(int index) {
+        // Absolute reads only, the buffer is shared by every thread resolving classes
+        int position = names + buffer.getInt(nameOffsets + index * Integer.BYTES);
+        var bytes = new byte[Short.toUnsignedInt(buffer.getShort(position))];
+        buffer.get(position + Short.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
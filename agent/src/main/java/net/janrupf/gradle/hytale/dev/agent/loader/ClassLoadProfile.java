@@ -0,0 +1,113 @@
+package net.janrupf.gradle.hytale.dev.agent.loader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The order in which a run defined the classes of the agent classpath.
+ * <p>
+ * Only demand loads are recorded: classes the application caused to be defined, and classes the
+ * preloader defined once the application first requests or initializes them. Classes the previous
+ * run needed but this run never used drop out, so the profile follows the application instead of
+ * only ever growing.
+ * <p>
+ * The order recorded by the previous run is used to preload classes, while the order of the
+ * current run is recorded and replaces the profile when the JVM shuts down. The file is plain
+ * text with one binary class name per line.
+ */
+final class ClassLoadProfile {
+    private static final String HEADER = "# hytale-dev class load profile v1";
+
+    private final Path file;
+    private final List<String> previousOrder;
+    private final Set<String> recorded;
+    private final Queue<String> order;
+
+    private ClassLoadProfile(Path file, List<String> previousOrder) {
+        this.file = file;
+        this.previousOrder = previousOrder;
+        this.recorded = ConcurrentHashMap.newKeySet();
+        this.order = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Open the profile stored in the given file.
+     * <p>
+     * A missing or unreadable profile is not an error, the run simply starts without a
+     * previous order.
+     *
+     * @param file the file the profile is stored in
+     * @return the opened profile
+     */
+    static ClassLoadProfile open(Path file) {
+        List<String> previousOrder = List.of();
+
+        try {
+            var lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            if (!lines.isEmpty() && lines.getFirst().equals(HEADER)) {
+                previousOrder = List.copyOf(lines.subList(1, lines.size()));
+            }
+        } catch (NoSuchFileException e) {
+            // First run with profiling enabled
+        } catch (IOException e) {
+            System.err.println("[HytaleDev] Failed to read class load profile: " + e.getMessage());
+        }
+
+        return new ClassLoadProfile(file, previousOrder);
+    }
+
+    /**
+     * The class names in the order the previous run defined them.
+     *
+     * @return the previous order, empty if there was no previous run
+     */
+    List<String> getPreviousOrder() {
+        return previousOrder;
+    }
+
+    /**
+     * Record that the application needed a class.
+     *
+     * @param className the binary name of the class
+     */
+    void record(String className) {
+        if (recorded.add(className)) {
+            order.add(className);
+        }
+    }
+
+    /**
+     * Replace the stored profile with the recorded order once the JVM shuts down.
+     */
+    void writeOnShutdown() {
+        Runtime.getRuntime().addShutdownHook(new Thread(this::write, "HytaleDev-ClassLoadProfileWriter"));
+    }
+
+    private void write() {
+        if (order.isEmpty()) {
+            return;
+        }
+
+        var lines = new ArrayList<String>(order.size() + 1);
+        lines.add(HEADER);
+        lines.addAll(order);
+
+        var temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.write(temporaryFile, lines, StandardCharsets.UTF_8);
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("[HytaleDev] Failed to write class load profile: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package net.janrupf.gradle.hytale.dev.agent.loader;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in counters describing how much time the agent classloader spends loading classes.
+ * <p>
+ * Enabled with {@code -Dhytale.dev.agent.classLoadStatistics=true}, the numbers are printed
+ * when the JVM shuts down. Running once with {@code -Dhytale.dev.agent.serialClassLoading=true},
+ * which transforms and defines every class under the loader lock like before the loader was parallel
+ * capable, and once without gives a direct comparison of lock contention during startup. Likewise, runs with
+ * and without {@code -Dhytale.dev.agent.disableClassPreload=true} show how much class loading work
+ * the preloader takes off the application threads.
+ */
+final class ClassLoadStatistics {
+    private static final boolean ENABLED = Boolean.getBoolean("hytale.dev.agent.classLoadStatistics");
+
+    private final LongAdder definedClasses;
+    private final LongAdder loadNanos;
+    private final LongAdder lockWaitNanos;
+    private final LongAdder preloadedClasses;
+    private final LongAdder preloadNanos;
+    private volatile long preloadWallNanos;
+
+    ClassLoadStatistics() {
+        this.definedClasses = new LongAdder();
+        this.loadNanos = new LongAdder();
+        this.lockWaitNanos = new LongAdder();
+        this.preloadedClasses = new LongAdder();
+        this.preloadNanos = new LongAdder();
+        this.preloadWallNanos = -1;
+    }
+
+    /**
+     * Whether statistics are collected at all.
+     *
+     * @return true if statistics are enabled
+     */
+    static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    void recordDefinition(long totalNanos, long lockWaitNanos, boolean preloaded) {
+        if (preloaded) {
+            this.preloadedClasses.increment();
+            this.preloadNanos.add(totalNanos);
+        } else {
+            this.definedClasses.increment();
+            this.loadNanos.add(totalNanos);
+        }
+
+        this.lockWaitNanos.add(lockWaitNanos);
+    }
+
+    void recordPreloadFinished(long wallNanos) {
+        this.preloadWallNanos = wallNanos;
+    }
+
+    void printOnShutdown(String loaderName, boolean parallelCapable) {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.printf(
+                    "[HytaleDev] Classloader %s (parallel capable: %s): %d classes defined on demand, %d ms loading, %d ms waiting for locks%n",
+                    loaderName,
+                    parallelCapable,
+                    definedClasses.sum(),
+                    TimeUnit.NANOSECONDS.toMillis(loadNanos.sum()),
+                    TimeUnit.NANOSECONDS.toMillis(lockWaitNanos.sum())
+            );
+
+            if (preloadedClasses.sum() > 0) {
+                long wallNanos = preloadWallNanos;
+                System.out.printf(
+                        "[HytaleDev] Classloader %s: %d classes preloaded, %d ms loading, %s%n",
+                        loaderName,
+                        preloadedClasses.sum(),
+                        TimeUnit.NANOSECONDS.toMillis(preloadNanos.sum()),
+                        wallNanos < 0 ? "preloading not finished" : "finished after " + TimeUnit.NANOSECONDS.toMillis(wallNanos) + " ms"
+                );
+            }
+        }, "HytaleDev-ClassLoadStatistics"));
+    }
+}
@@ -0,0 +1,123 @@
+package net.janrupf.gradle.hytale.dev.agent.loader;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches compiler output directories and fires once a compilation has settled.
+ * <p>
+ * A build writes many class files in quick succession, so changes are collected until no
+ * further change has been seen for {@link #QUIET_PERIOD_MILLIS}.
+ */
+final class ClassOutputWatcher {
+    private static final long QUIET_PERIOD_MILLIS = 500;
+
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirectories;
+    private final Runnable onChange;
+
+    private ClassOutputWatcher(WatchService watchService, Runnable onChange) {
+        this.watchService = watchService;
+        this.watchedDirectories = new HashMap<>();
+        this.onChange = onChange;
+    }
+
+    /**
+     * Start watching the given directories on a daemon thread.
+     *
+     * @param directories the directories to watch, recursively
+     * @param onChange    invoked after class files changed
+     */
+    static void start(List<Path> directories, Runnable onChange) {
+        try {
+            var watcher = new ClassOutputWatcher(FileSystems.getDefault().newWatchService(), onChange);
+            for (var directory : directories) {
+                if (Files.isDirectory(directory)) {
+                    watcher.registerRecursively(directory);
+                } else {
+                    System.err.println("[HytaleDev] Not watching missing class directory " + directory);
+                }
+            }
+
+            var thread = new Thread(watcher::run, "HytaleDev-ClassOutputWatcher");
+            thread.setDaemon(true);
+            thread.start();
+        } catch (IOException e) {
+            System.err.println("[HytaleDev] Failed to watch class directories, reload manually: " + e.getMessage());
+        }
+    }
+
+    private void registerRecursively(Path root) throws IOException {
+        try (var directories = Files.walk(root)) {
+            for (var directory : (Iterable<Path>) directories.filter(Files::isDirectory)::iterator) {
+                var key = directory.register(
+                        watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY,
+                        StandardWatchEventKinds.ENTRY_DELETE
+                );
+                watchedDirectories.put(key, directory);
+            }
+        }
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                boolean classesChanged = processEvents(watchService.take());
+
+                // Keep collecting until the compiler is done writing
+                WatchKey key;
+                while ((key = watchService.poll(QUIET_PERIOD_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    classesChanged |= processEvents(key);
+                }
+
+                if (classesChanged) {
+                    onChange.run();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Shutting down
+        }
+    }
+
+    private boolean processEvents(WatchKey key) {
+        var directory = watchedDirectories.get(key);
+        boolean classesChanged = false;
+
+        for (var event : key.pollEvents()) {
+            if (directory == null || !(event.context() instanceof Path relative)) {
+                continue;
+            }
+
+            var changed = directory.resolve(relative);
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changed)) {
+                try {
+                    registerRecursively(changed);
+                } catch (IOException e) {
+                    System.err.println("[HytaleDev] Failed to watch new directory " + changed + ": " + e.getMessage());
+                }
+            }
+
+            if (changed.toString().endsWith(".class") || Files.isDirectory(changed)) {
+                classesChanged = true;
+            }
+        }
+
+        if (!key.reset()) {
+            watchedDirectories.remove(key);
+        }
+
+        return classesChanged;
+    }
+}
@@ -0,0 +1,68 @@
+package net.janrupf.gradle.hytale.dev.agent.loader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.jar.Manifest;
+
+/**
+ * A single jar or directory on the agent classpath.
+ */
+abstract class ClassPathEntry implements Closeable {
+    private final URL codeSourceUrl;
+
+    protected ClassPathEntry(URL codeSourceUrl) {
+        this.codeSourceUrl = codeSourceUrl;
+    }
+
+    /**
+     * The URL this entry was created from, used as the code source of classes defined from it.
+     *
+     * @return the code source URL
+     */
+    public URL getCodeSourceUrl() {
+        return codeSourceUrl;
+    }
+
+    /**
+     * The manifest of this entry, used to define packages.
+     *
+     * @return the manifest, or null if the entry has none
+     */
+    Manifest getManifest() {
+        return null;
+    }
+
+    /**
+     * The transformers which have already been applied to the classes of this entry ahead of time.
+     *
+     * @return the class names of the applied transformers
+     */
+    Set<String> getAppliedTransformers() {
+        return Set.of();
+    }
+
+    /**
+     * Reports the name of every resource contained in this entry.
+     *
+     * @param consumer the consumer receiving resource names (e.g. "com/example/MyClass.class")
+     * @throws IOException if the entry can not be enumerated
+     */
+    abstract void forEachResourceName(Consumer<String> consumer) throws IOException;
+
+    /**
+     * Read a resource from this entry.
+     * <p>
+     * The returned buffer is positioned at the start of the data and limited to its end.
+     * Depending on the entry it may be a heap buffer sized exactly to the resource or
+     * a direct view of the underlying file.
+     *
+     * @param name the resource name
+     * @return the resource data, or null if this entry does not contain the resource
+     * @throws IOException if the resource exists but can not be read
+     */
+    abstract ByteBuffer readResource(String name) throws IOException;
+}
@@ -0,0 +1,188 @@
+package net.janrupf.gradle.hytale.dev.agent.loader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index of the classes available on the agent classpath.
+ * <p>
+ * Built once when the classloader is created, the index maps every package to the entries
+ * that contain it and keeps a bloom filter of all class resource names. This allows the
+ * classloader to decide without touching the filesystem whether a class can possibly be
+ * found locally, and if so, which entry to read it from.
+ */
+final class ClassPathIndex implements Closeable {
+    private static final ClassPathEntry[] NO_ENTRIES = new ClassPathEntry[0];
+
+    private final List<ClassPathEntry> entries;
+    private final Map<String, ClassPathEntry[]> packageOwners;
+    private final BloomFilter classNames;
+
+    private ClassPathIndex(
+            List<ClassPathEntry> entries,
+            Map<String, ClassPathEntry[]> packageOwners,
+            BloomFilter classNames
+    ) {
+        this.entries = entries;
+        this.packageOwners = packageOwners;
+        this.classNames = classNames;
+    }
+
+    /**
+     * Build an index of the given classpath.
+     *
+     * @param urls the classpath, in lookup order
+     * @return the built index
+     * @throws UncheckedIOException if a classpath entry can not be read
+     */
+    static ClassPathIndex build(URL[] urls) {
+        var entries = new ArrayList<ClassPathEntry>(urls.length);
+        var owners = new HashMap<String, Set<ClassPathEntry>>();
+        var classResources = new ArrayList<String>();
+
+        try {
+            for (var url : urls) {
+                var entry = openEntry(url);
+                if (entry == null) {
+                    continue;
+                }
+
+                entries.add(entry);
+                entry.forEachResourceName((resourceName) -> {
+                    if (!resourceName.endsWith(".class")) {
+                        return;
+                    }
+
+                    classResources.add(resourceName);
+                    owners.computeIfAbsent(packageOf(resourceName), (k) -> new LinkedHashSet<>()).add(entry);
+                });
+            }
+        } catch (IOException e) {
+            for (var entry : entries) {
+                try {
+                    entry.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+
+            throw new UncheckedIOException("Failed to index agent classpath", e);
+        }
+
+        var classNames = new BloomFilter(classResources.size());
+        for (var resourceName : classResources) {
+            classNames.add(resourceName);
+        }
+
+        var packageOwners = new HashMap<String, ClassPathEntry[]>(owners.size() * 2);
+        for (var owner : owners.entrySet()) {
+            packageOwners.put(owner.getKey(), owner.getValue().toArray(NO_ENTRIES));
+        }
+
+        return new ClassPathIndex(entries, packageOwners, classNames);
+    }
+
+    private static ClassPathEntry openEntry(URL url) throws IOException {
+        if (!"file".equals(url.getProtocol())) {
+            throw new IOException("Unsupported classpath entry, only local files are supported: " + url);
+        }
+
+        Path path;
+        try {
+            path = Path.of(url.toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException("Invalid classpath entry: " + url, e);
+        }
+
+        if (Files.isDirectory(path)) {
+            return new DirectoryClassPathEntry(url, path);
+        } else if (Files.isRegularFile(path)) {
+            return new JarClassPathEntry(url, path.toFile());
+        }
+
+        // Missing entries are normal, for example a source set without resources
+        return null;
+    }
+
+    /**
+     * Check whether the given class resource may be on this classpath, without touching the filesystem.
+     *
+     * @param packageName   the package of the class, with '/' as separator
+     * @param classResource the class resource name (e.g. "com/example/MyClass.class")
+     * @return false if the class is definitely not on this classpath
+     */
+    boolean mightContain(String packageName, String classResource) {
+        return packageOwners.containsKey(packageName) && classNames.mightContain(classResource);
+    }
+
+    /**
+     * Find the entry which contains the given class resource.
+     *
+     * @param packageName   the package of the class, with '/' as separator
+     * @param classResource the class resource name (e.g. "com/example/MyClass.class")
+     * @return the entry owning the class, or null if the class is not on this classpath
+     * @throws IOException if reading a candidate entry fails
+     */
+    ClassResource find(String packageName, String classResource) throws IOException {
+        var candidates = packageOwners.get(packageName);
+        if (candidates == null || !classNames.mightContain(classResource)) {
+            return null;
+        }
+
+        for (var candidate : candidates) {
+            var data = candidate.readResource(classResource);
+            if (data != null) {
+                return new ClassResource(candidate, data);
+            }
+        }
+
+        return null;
+    }
+
+    static String packageOf(String resourceName) {
+        int lastSlash = resourceName.lastIndexOf('/');
+        return lastSlash == -1 ? "" : resourceName.substring(0, lastSlash);
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+
+        for (var entry : entries) {
+            try {
+                entry.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * A class resource read from the classpath.
+     *
+     * @param owner the entry the class was read from
+     * @param data  the class bytes
+     */
+    record ClassResource(ClassPathEntry owner, ByteBuffer data) {
+    }
+}
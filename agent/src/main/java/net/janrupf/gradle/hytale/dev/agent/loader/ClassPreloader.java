@@ -0,0 +1,102 @@
+package net.janrupf.gradle.hytale.dev.agent.loader;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads the classes of a previous run in the background, ahead of the application.
+ * <p>
+ * The worker threads share a cursor over the recorded order, so they stay roughly in front of
+ * the main thread instead of spreading out over the whole profile. Classes are only loaded and
+ * defined, never initialized, so preloading has no observable effect on the application besides
+ * finding its classes already defined.
+ * <p>
+ * Disabled with {@code -Dhytale.dev.agent.disableClassPreload=true} while still recording the
+ * profile, which allows comparing startup with and without preloading.
+ */
+final class ClassPreloader {
+    private static final boolean ENABLED = !Boolean.getBoolean("hytale.dev.agent.disableClassPreload");
+
+    private final ClassLoader loader;
+    private final List<String> classNames;
+    private final AtomicInteger cursor;
+    private final AtomicInteger remainingWorkers;
+    private final ClassLoadStatistics statistics;
+    private final long startTime;
+
+    private ClassPreloader(
+            ClassLoader loader,
+            List<String> classNames,
+            int workers,
+            ClassLoadStatistics statistics
+    ) {
+        this.loader = loader;
+        this.classNames = classNames;
+        this.cursor = new AtomicInteger();
+        this.remainingWorkers = new AtomicInteger(workers);
+        this.statistics = statistics;
+        this.startTime = System.nanoTime();
+    }
+
+    /**
+     * Whether preloading is enabled at all.
+     *
+     * @return true if preloading is enabled
+     */
+    static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Start preloading the given classes in the background.
+     *
+     * @param loader     the loader to load the classes with
+     * @param classNames the classes to load, in the order they are expected to be needed
+     * @param statistics the statistics to report to, or null
+     */
+    static void start(ClassLoader loader, List<String> classNames, ClassLoadStatistics statistics) {
+        if (classNames.isEmpty()) {
+            return;
+        }
+
+        // Leave room for the main thread, it still does all the work the preloader has not reached yet
+        int workers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        var preloader = new ClassPreloader(loader, classNames, workers, statistics);
+
+        for (int i = 0; i < workers; i++) {
+            var thread = new WorkerThread(preloader, "HytaleDev-ClassPreloader-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Whether the current thread is a preloader worker.
+     *
+     * @return true if called from a preloader worker
+     */
+    static boolean isPreloaderThread() {
+        return Thread.currentThread() instanceof WorkerThread;
+    }
+
+    private void work() {
+        int index;
+        while ((index = cursor.getAndIncrement()) < classNames.size()) {
+            try {
+                loader.loadClass(classNames.get(index));
+            } catch (ClassNotFoundException | LinkageError e) {
+                // The profile is stale, the application will run into this on its own if it still matters
+            }
+        }
+
+        if (remainingWorkers.decrementAndGet() == 0 && statistics != null) {
+            statistics.recordPreloadFinished(System.nanoTime() - startTime);
+        }
+    }
+
+    private static final class WorkerThread extends Thread {
+        private WorkerThread(ClassPreloader preloader, String name) {
+            super(preloader::work, name);
+        }
+    }
+}
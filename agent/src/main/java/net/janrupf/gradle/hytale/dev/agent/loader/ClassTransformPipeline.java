@@ -0,0 +1,94 @@
+package net.janrupf.gradle.hytale.dev.agent.loader;
+
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.ClassHierarchyResolver;
+import java.lang.classfile.ClassModel;
+import java.lang.classfile.ClassTransform;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Set;
+
+/**
+ * Applies the registered transformers to classes.
+ * <p>
+ * The class is parsed once, the transforms of all matching transformers are chained and
+ * the result is written once. Used by the classloader at runtime and by the server jar
+ * patcher ahead of time.
+ */
+public final class ClassTransformPipeline {
+    private final ClassFile classFile;
+    private volatile TransformerDispatcher transformers;
+
+    /**
+     * Create a new, empty pipeline.
+     *
+     * @param resolver the resolver used to compute stack maps of transformed classes
+     */
+    public ClassTransformPipeline(ClassHierarchyResolver resolver) {
+        // The ClassFile context is immutable and shared by all transformations
+        this.classFile = ClassFile.of(ClassFile.ClassHierarchyResolverOption.of(resolver.cached()));
+        this.transformers = TransformerDispatcher.EMPTY;
+    }
+
+    /**
+     * Register a transformer with this pipeline.
+     *
+     * @param transformer the transformer to add
+     */
+    public synchronized void addTransformer(HytaleDevAgentClassTransformer transformer) {
+        this.transformers = this.transformers.with(transformer);
+    }
+
+    /**
+     * Transform the given class.
+     *
+     * @param name                the class name (e.g., "com.example.MyClass")
+     * @param classData           the original class bytecode
+     * @param codeSource          the location the class is loaded from, or null if unknown
+     * @param appliedTransformers class names of transformers already applied to the class ahead of time
+     * @return the transformed class bytecode, or {@code classData} itself if nothing changed
+     */
+    public ByteBuffer transform(String name, ByteBuffer classData, URL codeSource, Set<String> appliedTransformers) {
+        var matchingTransformers = this.transformers.find(name);
+        if (matchingTransformers.isEmpty()) {
+            return classData;
+        }
+
+        ClassTransform composed = null;
+        ClassModel classModel = null;
+
+        for (var transformer : matchingTransformers) {
+            if (appliedTransformers.contains(transformer.getClass().getName())
+                    || !transformer.acceptsCodeSource(codeSource)) {
+                continue;
+            }
+
+            if (classModel == null) {
+                classModel = classFile.parse(toByteArray(classData));
+            }
+
+            var transform = transformer.createTransform(name, classModel);
+            if (transform != null) {
+                composed = composed == null ? transform : composed.andThen(transform);
+            }
+        }
+
+        if (composed == null) {
+            // Every matching transformer was already applied or decided to leave the class alone
+            return classData;
+        }
+
+        return ByteBuffer.wrap(classFile.transformClass(classModel, composed));
+    }
+
+    static byte[] toByteArray(ByteBuffer buffer) {
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0
+                && buffer.remaining() == buffer.array().length) {
+            return buffer.array();
+        }
+
+        var data = new byte[buffer.remaining()];
+        buffer.duplicate().get(data);
+        return data;
+    }
+}
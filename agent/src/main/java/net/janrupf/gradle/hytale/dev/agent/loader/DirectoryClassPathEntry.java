@@ -0,0 +1,51 @@
+package net.janrupf.gradle.hytale.dev.agent.loader;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * A directory on the agent classpath, such as a source set output directory.
+ */
+final class DirectoryClassPathEntry extends ClassPathEntry {
+    private final Path root;
+
+    DirectoryClassPathEntry(URL codeSourceUrl, Path root) {
+        super(codeSourceUrl);
+        this.root = root;
+    }
+
+    @Override
+    void forEachResourceName(Consumer<String> consumer) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+
+        try (var files = Files.walk(root)) {
+            files.filter(Files::isRegularFile).forEach((file) -> {
+                var relative = root.relativize(file).toString();
+                consumer.accept(relative.replace(root.getFileSystem().getSeparator(), "/"));
+            });
+        }
+    }
+
+    @Override
+    ByteBuffer readResource(String name) throws IOException {
+        // Not memory mapped: directories hold the project output, which the compiler rewrites
+        // while the server is running (see ReloadableClassPath). A live mapping would prevent
+        // that on Windows until the buffer happens to be garbage collected.
+        try {
+            return ByteBuffer.wrap(Files.readAllBytes(root.resolve(name)));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -1,17 +1,62 @@
 package net.janrupf.gradle.hytale.dev.agent.loader;
 
+import java.lang.classfile.ClassModel;
+import java.lang.classfile.ClassTransform;
+import java.net.URL;
+import java.util.Set;
+
 /**
  * Interface for transforming class bytecode in the Hytale Dev Agent.
+ * <p>
+ * Transformers declare which classes they are interested in via {@link #getTargetClasses()}
+ * and {@link #getTargetPackages()}, the classloader only offers matching classes to them.
+ * A transformer which declares neither is offered every class.
+ * <p>
+ * When multiple transformers match the same class, the class is parsed once, their
+ * transforms are chained in registration order and the result is written once.
  */
 public interface HytaleDevAgentClassTransformer {
     /**
-     * Transform the given class data.
+     * The exact classes this transformer wants to transform.
+     *
+     * @return the set of fully qualified class names (e.g., "com.example.MyClass")
+     */
+    default Set<String> getTargetClasses() {
+        return Set.of();
+    }
+
+    /**
+     * The packages this transformer wants to transform, including their subpackages.
+     *
+     * @return the set of package names (e.g., "com.example" matching "com.example.MyClass"
+     * and "com.example.sub.MyClass")
+     */
+    default Set<String> getTargetPackages() {
+        return Set.of();
+    }
+
+    /**
+     * Whether this transformer wants to transform classes loaded from the given code source.
+     * <p>
+     * Checked after the class name matched, allows transformers to restrict themselves to classes
+     * of a specific jar or directory.
+     *
+     * @param codeSource the location the class is loaded from, or null if unknown
+     * @return true if classes from the code source should be offered to {@link #createTransform}
+     */
+    default boolean acceptsCodeSource(URL codeSource) {
+        return true;
+    }
+
+    /**
+     * Create the transform to apply to the given class.
+     * <p>
+     * Elements the transform does not want to change should be passed through with
+     * {@code builder.with(element)}, which copies them without re-emitting their code.
      *
-     * @param name         the class name (e.g., "com.example.MyClass")
-     * @param internalName the internal class name (e.g., "com/example/MyClass")
-     * @param classData    the original class bytecode
-     * @param loader       the class loader loading the class
-     * @return the transformed class bytecode, or null if no transformation is applied
+     * @param name       the class name (e.g., "com.example.MyClass")
+     * @param classModel the parsed original class
+     * @return the transform, or null if no transformation is applied
      */
-    byte[] transform(String name, String internalName, byte[] classData, ClassLoader loader);
+    ClassTransform createTransform(String name, ClassModel classModel);
 }
@@ -1,97 +1,368 @@
 package net.janrupf.gradle.hytale.dev.agent.loader;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.MalformedURLException;
-import java.net.URI;
+import java.lang.classfile.ClassHierarchyResolver;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.net.URLClassLoader;
 import java.security.CodeSigner;
 import java.security.CodeSource;
+import java.nio.file.Path;
 import java.security.ProtectionDomain;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class HytaleDevAgentClassloader extends URLClassLoader {
+    private static final boolean PARALLEL_CAPABLE;
+
+    static {
+        // The server loads classes from many threads during startup (world and plugin
+        // warmup), without this every single load would serialize on the loader instance.
+        PARALLEL_CAPABLE = !Boolean.getBoolean("hytale.dev.agent.serialClassLoading")
+                && ClassLoader.registerAsParallelCapable();
+    }
+
+    private final ClassPathIndex index;
+    private final Map<ClassPathEntry, ProtectionDomain> protectionDomains;
+    private final ClassHierarchyResolver hierarchyResolver;
+    private final ClassTransformPipeline transformPipeline;
     private final List<HytaleDevAgentClassTransformer> transformers;
+    private final ClassLoadStatistics statistics;
+    private volatile ClassLoadProfile profile;
+    private volatile ClassTransformPipeline preloadPipeline;
 
     public HytaleDevAgentClassloader(String name, URL[] urls, ClassLoader parent) {
+        this(name, urls, parent, null);
+    }
+
+    /**
+     * Create a new agent classloader.
+     *
+     * @param name                the name of the classloader
+     * @param urls                the classpath to load classes from
+     * @param parent              the parent classloader
+     * @param classHierarchyIndex the pre-computed class hierarchy of the classpath, or null if not available
+     */
+    public HytaleDevAgentClassloader(
+            String name,
+            URL[] urls,
+            ClassLoader parent,
+            ClassHierarchyResolver classHierarchyIndex
+    ) {
         super(name, urls, parent);
-        this.transformers = new ArrayList<>();
+        this.index = ClassPathIndex.build(urls);
+        this.protectionDomains = new ConcurrentHashMap<>();
+
+        // Never resolve by loading classes, that may trigger recursive loading in the middle
+        // of a transformation. JDK classes are resolved by the default resolver, everything
+        // the index does not know about by parsing the class file from our classpath.
+        var resolver = ClassHierarchyResolver.defaultResolver()
+                .orElse(ClassHierarchyResolver.ofResourceParsing(this));
+        if (classHierarchyIndex != null) {
+            resolver = classHierarchyIndex.orElse(resolver);
+        }
+
+        this.hierarchyResolver = resolver;
+        this.transformPipeline = new ClassTransformPipeline(resolver);
+        this.transformers = new CopyOnWriteArrayList<>();
+
+        if (ClassLoadStatistics.isEnabled()) {
+            this.statistics = new ClassLoadStatistics();
+            this.statistics.printOnShutdown(name, PARALLEL_CAPABLE);
+        } else {
+            this.statistics = null;
+        }
     }
 
     public void addTransformer(HytaleDevAgentClassTransformer transformer) {
+        this.transformPipeline.addTransformer(transformer);
         this.transformers.add(transformer);
     }
 
+    /**
+     * Load the classes of the given classpath entries from a child classloader which can be
+     * replaced at runtime.
+     * <p>
+     * The entries must not be part of this loader's classpath, this loader never delegates to the
+     * child. Should be called after all transformers have been added.
+     *
+     * @param urls the classpath entries to make reloadable, usually the project output directories
+     * @return the reloadable classpath
+     */
+    public ReloadableClassPath enableReloading(URL[] urls) {
+        return new ReloadableClassPath(this, urls, transformers);
+    }
+
+    /**
+     * Record the order in which classes are loaded to the given profile, and preload the
+     * classes recorded by the previous run in the background.
+     * <p>
+     * Should be called after all transformers have been added, since preloaded classes
+     * are transformed immediately. Preloaded classes are additionally transformed with the
+     * given probe, which has to report their initialization to {@link #recordClassUse(String)}.
+     *
+     * @param profileFile   the file the profile is stored in
+     * @param classUseProbe the transformer applied to preloaded classes
+     */
+    public void enableClassLoadProfile(Path profileFile, HytaleDevAgentClassTransformer classUseProbe) {
+        var profile = ClassLoadProfile.open(profileFile);
+        profile.writeOnShutdown();
+        this.profile = profile;
+
+        var preloadPipeline = new ClassTransformPipeline(hierarchyResolver);
+        preloadPipeline.addTransformer(classUseProbe);
+        this.preloadPipeline = preloadPipeline;
+
+        if (ClassPreloader.isEnabled()) {
+            ClassPreloader.start(this, profile.getPreviousOrder(), statistics);
+        }
+    }
+
+    /**
+     * Record that the application used a class defined by this loader, for the class load profile.
+     * <p>
+     * Called when a preloaded class is initialized. The JVM resolves references to classes this loader
+     * defined without calling {@link #loadClass} again, so the first use is not visible otherwise.
+     *
+     * @param name the binary name of the class
+     */
+    public void recordClassUse(String name) {
+        var profile = this.profile;
+        if (profile != null && !ClassPreloader.isPreloaderThread()) {
+            profile.record(name);
+        }
+    }
+
+    /**
+     * Apply this loader's transformers to new bytecode of a class it defined, like when the class was
+     * defined.
+     * <p>
+     * Needed before redefining the class, the transformers of this loader are not registered with the
+     * instrumentation and the JVM would install the bytecode as is.
+     *
+     * @param definedClass the class defined by this loader
+     * @param classData    the new, untransformed bytecode of the class
+     * @return the transformed bytecode
+     */
+    public byte[] transformForRedefinition(Class<?> definedClass, byte[] classData) {
+        var codeSource = definedClass.getProtectionDomain().getCodeSource();
+        var transformed = transformPipeline.transform(
+                definedClass.getName(),
+                ByteBuffer.wrap(classData),
+                codeSource != null ? codeSource.getLocation() : null,
+                // Fresh compiler output, never patched ahead of time
+                Set.of()
+        );
+
+        return ClassTransformPipeline.toByteArray(transformed);
+    }
+
     @Override
     protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
-        synchronized (this.getClassLoadingLock(name)) {
-            var loaded = this.findLoadedClass(name);
-            if (loaded != null) {
-                if (resolve) {
-                    this.resolveClass(loaded);
-                }
+        if (name.startsWith("java.")) {
+            // Can never be defined by us, don't even bother looking
+            return super.loadClass(name, resolve);
+        }
 
-                return loaded;
-            }
+        var loaded = this.findLoadedClass(name);
 
-            var internalName = name.replace('.', '/');
-            var classResource = this.findResource(internalName + ".class");
+        if (loaded == null) {
+            loaded = loadLocalClass(name);
 
-            if (classResource == null) {
+            if (loaded == null) {
                 return super.loadClass(name, resolve);
             }
+        }
+
+        if (loaded.getClassLoader() == this) {
+            // An application request for a class the preloader may have defined
+            recordClassUse(name);
+        }
 
-            try (InputStream in = classResource.openStream()) {
-                var classData = in.readAllBytes();
+        if (resolve) {
+            this.resolveClass(loaded);
+        }
 
-                return transformClass(classResource, name, internalName, classData);
-            } catch (IOException e) {
-                throw new ClassNotFoundException("Failed to read class data for " + name, e);
-            }
+        return loaded;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        // Reached when the parent does not know the class either. The index covers the whole
+        // classpath, URLClassLoader's lookup would only probe every entry for nothing.
+        var loaded = loadLocalClass(name);
+        if (loaded == null) {
+            throw new ClassNotFoundException(name);
+        }
+
+        return loaded;
+    }
+
+    /**
+     * Load a class from this loader's own classpath, without delegating to the parent.
+     *
+     * @param name the binary name of the class
+     * @return the loaded class, or null if the class is not on this loader's classpath
+     * @throws ClassNotFoundException if the class data can not be read
+     */
+    Class<?> loadLocalClass(String name) throws ClassNotFoundException {
+        var internalName = name.replace('.', '/');
+        var packageName = ClassPathIndex.packageOf(internalName);
+        var classResourceName = internalName + ".class";
+
+        if (!index.mightContain(packageName, classResourceName)) {
+            return null;
         }
+
+        var loaded = this.findLoadedClass(name);
+        if (loaded != null) {
+            return loaded;
+        }
+
+        ClassPathIndex.ClassResource classResource;
+        try {
+            classResource = index.find(packageName, classResourceName);
+        } catch (IOException e) {
+            throw new ClassNotFoundException("Failed to read class data for " + name, e);
+        }
+
+        if (classResource == null) {
+            return null;
+        }
+
+        return defineFromResource(classResource, name);
     }
 
-    private Class<?> transformClass(URL url, String name, String internalName, byte[] classData) {
-        for (var transformer : transformers) {
-            var transformedData = transformer.transform(name, internalName, classData, this);
-            if (transformedData != null) {
-                classData = transformedData;
+    private Class<?> defineFromResource(
+            ClassPathIndex.ClassResource classResource,
+            String name
+    ) {
+        long startTime = statistics != null ? System.nanoTime() : 0;
+        var owner = classResource.owner();
+
+        if (!PARALLEL_CAPABLE) {
+            // The behavior before the loader was parallel capable, for comparison: transform
+            // and define under the loader lock, so the lock wait includes other transforms
+            synchronized (this.getClassLoadingLock(name)) {
+                long lockAcquiredTime = statistics != null ? System.nanoTime() : 0;
+
+                var loaded = this.findLoadedClass(name);
+                if (loaded != null) {
+                    return loaded;
+                }
+
+                var classData = transform(name, classResource);
+                return define(name, classData, owner, startTime, lockAcquiredTime - startTime);
             }
         }
 
-        URL codeSourceUrl = getCodeSourceUrl(url, internalName);
-        CodeSource codeSource = new CodeSource(codeSourceUrl, (CodeSigner[]) null);
+        // Transformers run outside the class loading lock on purpose. They may need to
+        // load other classes (for example to compute stack maps), and doing so while
+        // holding the per-class lock can deadlock against a thread loading in the
+        // opposite direction. Two threads may transform the same class concurrently,
+        // but only one of them gets to define it.
+        var classData = transform(name, classResource);
+
+        long lockRequestTime = statistics != null ? System.nanoTime() : 0;
+        synchronized (this.getClassLoadingLock(name)) {
+            long lockAcquiredTime = statistics != null ? System.nanoTime() : 0;
+
+            var loaded = this.findLoadedClass(name);
+            if (loaded != null) {
+                return loaded;
+            }
+
+            return define(name, classData, owner, startTime, lockAcquiredTime - lockRequestTime);
+        }
+    }
 
-        return this.defineClass(
+    private ByteBuffer transform(String name, ClassPathIndex.ClassResource classResource) {
+        var owner = classResource.owner();
+        var classData = transformPipeline.transform(
                 name,
-                classData,
-                0,
-                classData.length,
-                new ProtectionDomain(codeSource, null, this, null)
+                classResource.data(),
+                owner.getCodeSourceUrl(),
+                owner.getAppliedTransformers()
         );
+
+        var preloadPipeline = this.preloadPipeline;
+        if (preloadPipeline != null && ClassPreloader.isPreloaderThread()) {
+            // Preloading is not a use, the probe records the class once the application initializes it
+            classData = preloadPipeline.transform(name, classData, owner.getCodeSourceUrl(), Set.of());
+        }
+
+        return classData;
     }
 
-    private static URL getCodeSourceUrl(URL resource, String internalName) {
-        String urlStr = resource.toString();
-        String classPath = internalName + ".class";
+    private Class<?> define(
+            String name,
+            ByteBuffer classData,
+            ClassPathEntry owner,
+            long startTime,
+            long lockWaitNanos
+    ) {
+        definePackageIfAbsent(name, owner);
+        var defined = this.defineClass(name, classData, getProtectionDomain(owner));
 
-        try {
-            if (urlStr.startsWith("jar:")) {
-                int bangIndex = urlStr.indexOf("!/");
+        var profile = this.profile;
+        if (profile != null && !ClassPreloader.isPreloaderThread()) {
+            // Recorded at definition, the JVM resolves defined classes without calling loadClass again.
+            // Classes defined by the preloader are recorded once they are used, see recordClassUse.
+            profile.record(name);
+        }
 
-                if (bangIndex > 0) {
-                    return URI.create(urlStr.substring(4, bangIndex)).toURL();
-                }
-            } else if (urlStr.endsWith(classPath)) {
-                return URI.create(urlStr.substring(0, urlStr.length() - classPath.length())).toURL();
-            }
-        } catch (MalformedURLException ignored) {
-            // Ignore and return the original resource URL
+        if (statistics != null) {
+            statistics.recordDefinition(
+                    System.nanoTime() - startTime,
+                    lockWaitNanos,
+                    ClassPreloader.isPreloaderThread()
+            );
+        }
+
+        return defined;
+    }
+
+    private ProtectionDomain getProtectionDomain(ClassPathEntry owner) {
+        return protectionDomains.computeIfAbsent(owner, (entry) -> new ProtectionDomain(
+                new CodeSource(entry.getCodeSourceUrl(), (CodeSigner[]) null),
+                null,
+                this,
+                null
+        ));
+    }
+
+    private void definePackageIfAbsent(String className, ClassPathEntry owner) {
+        int lastDot = className.lastIndexOf('.');
+        if (lastDot == -1) {
+            return;
+        }
+
+        var packageName = className.substring(0, lastDot);
+        if (this.getDefinedPackage(packageName) != null) {
+            return;
         }
 
-        return resource;
+        try {
+            var manifest = owner.getManifest();
+            if (manifest != null) {
+                this.definePackage(packageName, manifest, owner.getCodeSourceUrl());
+            } else {
+                this.definePackage(packageName, null, null, null, null, null, null, null);
+            }
+        } catch (IllegalArgumentException e) {
+            // Another thread defined the package concurrently (different class of the same package)
+        }
     }
 
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            index.close();
+        }
+    }
 }
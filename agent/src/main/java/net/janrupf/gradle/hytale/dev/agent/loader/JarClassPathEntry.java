@@ -0,0 +1,68 @@
+package net.janrupf.gradle.hytale.dev.agent.loader;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipFile;
+
+/**
+ * A jar file on the agent classpath, kept open for the lifetime of the classloader.
+ */
+final class JarClassPathEntry extends ClassPathEntry {
+    private final JarFile jarFile;
+    private final Manifest manifest;
+    private final Set<String> appliedTransformers;
+
+    JarClassPathEntry(URL codeSourceUrl, File file) throws IOException {
+        super(codeSourceUrl);
+        this.jarFile = new JarFile(file, true, ZipFile.OPEN_READ, JarFile.runtimeVersion());
+        this.manifest = jarFile.getManifest();
+        this.appliedTransformers = AppliedTransformers.fromManifest(manifest);
+    }
+
+    @Override
+    Set<String> getAppliedTransformers() {
+        return appliedTransformers;
+    }
+
+    @Override
+    Manifest getManifest() {
+        return manifest;
+    }
+
+    @Override
+    void forEachResourceName(Consumer<String> consumer) {
+        jarFile.versionedStream().forEach((entry) -> {
+            if (!entry.isDirectory()) {
+                consumer.accept(entry.getName());
+            }
+        });
+    }
+
+    @Override
+    ByteBuffer readResource(String name) throws IOException {
+        var entry = jarFile.getJarEntry(name);
+        if (entry == null) {
+            return null;
+        }
+
+        try (var in = jarFile.getInputStream(entry)) {
+            long size = entry.getSize();
+
+            // The central directory almost always knows the uncompressed size, which
+            // lets us inflate straight into a correctly sized array instead of growing one
+            var data = size >= 0 && size <= Integer.MAX_VALUE ? in.readNBytes((int) size) : in.readAllBytes();
+            return ByteBuffer.wrap(data);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        jarFile.close();
+    }
+}
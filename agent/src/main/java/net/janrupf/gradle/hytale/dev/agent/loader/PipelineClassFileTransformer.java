@@ -0,0 +1,103 @@
+package net.janrupf.gradle.hytale.dev.agent.loader;
+
+import java.io.IOException;
+import java.lang.instrument.ClassFileTransformer;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.ProtectionDomain;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarFile;
+
+/**
+ * Applies a {@link ClassTransformPipeline} to classes loaded by any classloader of the JVM.
+ * <p>
+ * Used when the agent is attached with {@code -javaagent} instead of defining the classes itself.
+ * Transformers already applied ahead of time are skipped based on the manifest of the jar the
+ * class is loaded from, just like the agent classloader does.
+ */
+public final class PipelineClassFileTransformer implements ClassFileTransformer {
+    private final ClassTransformPipeline pipeline;
+    private final Map<URL, Set<String>> appliedTransformers;
+
+    /**
+     * Create a new transformer applying the given pipeline.
+     *
+     * @param pipeline the pipeline to apply
+     */
+    public PipelineClassFileTransformer(ClassTransformPipeline pipeline) {
+        this.pipeline = pipeline;
+        this.appliedTransformers = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public byte[] transform(
+            ClassLoader loader,
+            String className,
+            Class<?> classBeingRedefined,
+            ProtectionDomain protectionDomain,
+            byte[] classfileBuffer
+    ) {
+        if (loader == null || className == null) {
+            // Bootstrap and hidden classes are never targeted
+            return null;
+        }
+
+        var original = ByteBuffer.wrap(classfileBuffer);
+        var transformed = pipeline.transform(
+                className.replace('/', '.'),
+                original,
+                getCodeSource(protectionDomain),
+                getAppliedTransformers(protectionDomain)
+        );
+
+        if (transformed == original) {
+            return null;
+        }
+
+        var data = new byte[transformed.remaining()];
+        transformed.get(data);
+        return data;
+    }
+
+    private static URL getCodeSource(ProtectionDomain protectionDomain) {
+        if (protectionDomain == null || protectionDomain.getCodeSource() == null) {
+            return null;
+        }
+
+        return protectionDomain.getCodeSource().getLocation();
+    }
+
+    private Set<String> getAppliedTransformers(ProtectionDomain protectionDomain) {
+        var location = getCodeSource(protectionDomain);
+        if (location == null) {
+            return Set.of();
+        }
+
+        return appliedTransformers.computeIfAbsent(location, PipelineClassFileTransformer::readAppliedTransformers);
+    }
+
+    private static Set<String> readAppliedTransformers(URL location) {
+        if (!"file".equals(location.getProtocol())) {
+            return Set.of();
+        }
+
+        try {
+            var path = Path.of(location.toURI());
+            if (!Files.isRegularFile(path)) {
+                return Set.of();
+            }
+
+            try (var jarFile = new JarFile(path.toFile())) {
+                return AppliedTransformers.fromManifest(jarFile.getManifest());
+            }
+        } catch (IOException | URISyntaxException e) {
+            System.err.println("[HytaleDev] Failed to read manifest of " + location + ": " + e.getMessage());
+            return Set.of();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package net.janrupf.gradle.hytale.dev.agent.loader;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Classpath entries loaded by a child classloader which is replaced on every reload.
+ * <p>
+ * Each reload creates a new generation loader over the same entries, so classes compiled since
+ * the last reload are picked up, while the server classes stay loaded in the parent. The entries
+ * are not on the parent's classpath and the parent never delegates to a generation: the JVM would
+ * record the parent as initiating loader of the first generation's classes and keep resolving
+ * their names to them. Classes of the reloadable classpath are only reached by loading them from
+ * the current generation explicitly, see {@link #loadClass(String, boolean)}.
+ * <p>
+ * The previous generation is closed once the reload listeners restarted the plugin, classes it
+ * already defined stay usable as long as they are referenced.
+ */
+public final class ReloadableClassPath {
+    private final HytaleDevAgentClassloader parent;
+    private final URL[] urls;
+    private final List<HytaleDevAgentClassTransformer> transformers;
+    private final List<Runnable> reloadListeners;
+
+    private int generationNumber;
+    private volatile HytaleDevAgentClassloader generation;
+
+    ReloadableClassPath(
+            HytaleDevAgentClassloader parent,
+            URL[] urls,
+            List<HytaleDevAgentClassTransformer> transformers
+    ) {
+        this.parent = parent;
+        this.urls = urls.clone();
+        this.transformers = transformers;
+        this.reloadListeners = new CopyOnWriteArrayList<>();
+        this.generation = createGeneration();
+    }
+
+    /**
+     * Load a class from the current generation.
+     *
+     * @param name       the binary name of the class
+     * @param initialize whether to initialize the class
+     * @return the loaded class, or null if the class is not on the reloadable classpath
+     * @throws ClassNotFoundException if the class data can not be read
+     */
+    public Class<?> loadClass(String name, boolean initialize) throws ClassNotFoundException {
+        var current = generation;
+        var loaded = current.loadLocalClass(name);
+        if (loaded == null || !initialize) {
+            return loaded;
+        }
+
+        // Defined by the generation by now, this only runs the static initializer
+        return Class.forName(name, true, current);
+    }
+
+    /**
+     * The current generation number, starting at 0 and incremented on every reload.
+     *
+     * @return the generation number
+     */
+    public synchronized int getGenerationNumber() {
+        return generationNumber;
+    }
+
+    /**
+     * Replace the current generation with a fresh one and notify the reload listeners.
+     * <p>
+     * Classes of the old generation stay alive as long as they are referenced, it is up to the
+     * listeners to re-create the objects using them (usually by reloading the plugin). The old
+     * generation is closed afterward, it can not load any class it has not loaded yet.
+     */
+    public void reload() {
+        HytaleDevAgentClassloader previous;
+        synchronized (this) {
+            previous = this.generation;
+            this.generation = createGeneration();
+            System.out.println("[HytaleDev] Reloaded project classes (generation " + generationNumber + ")");
+        }
+
+        for (var listener : reloadListeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                System.err.println("[HytaleDev] Reload listener failed: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+
+        // Also releases the file handles of its classpath index
+        try {
+            previous.close();
+        } catch (IOException e) {
+            System.err.println("[HytaleDev] Failed to close previous generation: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Register a listener invoked after every reload.
+     *
+     * @param listener the listener to invoke
+     */
+    public void addReloadListener(Runnable listener) {
+        reloadListeners.add(listener);
+    }
+
+    /**
+     * Start watching the classpath directories and reload when class files change.
+     */
+    public void watchForChanges() {
+        var directories = new ArrayList<Path>();
+        for (var url : urls) {
+            if (!"file".equals(url.getProtocol())) {
+                continue;
+            }
+
+            try {
+                directories.add(Path.of(url.toURI()));
+            } catch (Exception e) {
+                System.err.println("[HytaleDev] Can not watch " + url + ": " + e.getMessage());
+            }
+        }
+
+        ClassOutputWatcher.start(directories, this::reload);
+    }
+
+    private HytaleDevAgentClassloader createGeneration() {
+        var loader = new HytaleDevAgentClassloader(
+                parent.getName() + "-reload-" + generationNumber++,
+                urls,
+                parent
+        );
+
+        for (var transformer : transformers) {
+            loader.addTransformer(transformer);
+        }
+
+        return loader;
+    }
+}
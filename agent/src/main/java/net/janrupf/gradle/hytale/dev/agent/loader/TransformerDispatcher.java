@@ -0,0 +1,145 @@
+package net.janrupf.gradle.hytale.dev.agent.loader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the transformers interested in a class through hash lookups.
+ * <p>
+ * The cost of a lookup depends on the depth of the class's package, not on the number of
+ * registered transformers. The dispatcher is immutable, registering a transformer creates
+ * a new instance.
+ */
+final class TransformerDispatcher {
+    static final TransformerDispatcher EMPTY = new TransformerDispatcher(
+            List.of(),
+            Map.of(),
+            Map.of(),
+            List.of()
+    );
+
+    private final List<HytaleDevAgentClassTransformer> all;
+    private final Map<String, List<HytaleDevAgentClassTransformer>> byClass;
+    private final Map<String, List<HytaleDevAgentClassTransformer>> byPackage;
+    private final List<HytaleDevAgentClassTransformer> wildcard;
+
+    private TransformerDispatcher(
+            List<HytaleDevAgentClassTransformer> all,
+            Map<String, List<HytaleDevAgentClassTransformer>> byClass,
+            Map<String, List<HytaleDevAgentClassTransformer>> byPackage,
+            List<HytaleDevAgentClassTransformer> wildcard
+    ) {
+        this.all = all;
+        this.byClass = byClass;
+        this.byPackage = byPackage;
+        this.wildcard = wildcard;
+    }
+
+    /**
+     * Create a new dispatcher which additionally dispatches to the given transformer.
+     *
+     * @param transformer the transformer to add
+     * @return the new dispatcher
+     */
+    TransformerDispatcher with(HytaleDevAgentClassTransformer transformer) {
+        var newAll = new ArrayList<>(all);
+        newAll.add(transformer);
+
+        var newByClass = new HashMap<String, List<HytaleDevAgentClassTransformer>>();
+        var newByPackage = new HashMap<String, List<HytaleDevAgentClassTransformer>>();
+        var newWildcard = new ArrayList<HytaleDevAgentClassTransformer>();
+
+        for (var candidate : newAll) {
+            var targetClasses = candidate.getTargetClasses();
+            var targetPackages = candidate.getTargetPackages();
+
+            if (targetClasses.isEmpty() && targetPackages.isEmpty()) {
+                newWildcard.add(candidate);
+                continue;
+            }
+
+            for (var targetClass : targetClasses) {
+                newByClass.computeIfAbsent(targetClass, (k) -> new ArrayList<>()).add(candidate);
+            }
+
+            for (var targetPackage : targetPackages) {
+                newByPackage.computeIfAbsent(targetPackage, (k) -> new ArrayList<>()).add(candidate);
+            }
+        }
+
+        return new TransformerDispatcher(
+                List.copyOf(newAll),
+                newByClass,
+                newByPackage,
+                List.copyOf(newWildcard)
+        );
+    }
+
+    /**
+     * Find the transformers interested in the given class.
+     *
+     * @param className the fully qualified class name
+     * @return the matching transformers in registration order, empty if none match
+     */
+    List<HytaleDevAgentClassTransformer> find(String className) {
+        List<HytaleDevAgentClassTransformer> first = wildcard.isEmpty() ? null : wildcard;
+        List<HytaleDevAgentClassTransformer> matches = null;
+
+        if (!byClass.isEmpty()) {
+            var exact = byClass.get(className);
+            if (exact != null) {
+                if (first == null) {
+                    first = exact;
+                } else {
+                    matches = merge(null, first, exact);
+                }
+            }
+        }
+
+        if (!byPackage.isEmpty()) {
+            // Walk "com", "com.example", "com.example.sub", ... up to the package of the class
+            int dot = className.indexOf('.');
+            while (dot != -1) {
+                var packageMatches = byPackage.get(className.substring(0, dot));
+                if (packageMatches != null) {
+                    if (first == null) {
+                        first = packageMatches;
+                    } else {
+                        matches = merge(matches, first, packageMatches);
+                    }
+                }
+
+                dot = className.indexOf('.', dot + 1);
+            }
+        }
+
+        if (matches != null) {
+            return matches;
+        }
+
+        return first == null ? Collections.emptyList() : first;
+    }
+
+    private List<HytaleDevAgentClassTransformer> merge(
+            List<HytaleDevAgentClassTransformer> matches,
+            List<HytaleDevAgentClassTransformer> first,
+            List<HytaleDevAgentClassTransformer> additional
+    ) {
+        if (matches == null) {
+            matches = new ArrayList<>(first);
+        }
+
+        for (var transformer : additional) {
+            if (!matches.contains(transformer)) {
+                matches.add(transformer);
+            }
+        }
+
+        // Keep registration order, the result of one transformer is the input of the next
+        matches.sort((a, b) -> Integer.compare(all.indexOf(a), all.indexOf(b)));
+        return matches;
+    }
+}
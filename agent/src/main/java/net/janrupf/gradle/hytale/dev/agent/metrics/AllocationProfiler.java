@@ -0,0 +1,236 @@
+package net.janrupf.gradle.hytale.dev.agent.metrics;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Counts allocations performed by instrumented allocation sites.
+ * <p>
+ * Sites are registered while classes are transformed and identified by their index afterward, so the
+ * instrumented code only passes an int. A class loaded multiple times (for example after a hot reload)
+ * registers its sites again and gets the ids of the first registration back.
+ * <p>
+ * Sites are stored in fixed-size chunks which are never copied, so registering stays constant time
+ * however many classes are instrumented, and lookups by id need no lock.
+ */
+public final class AllocationProfiler {
+    private static final int REPORT_SITES = 50;
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int MAX_CHUNKS = 1 << 12;
+
+    private static final char INSTANCE_SITE = 'i';
+    private static final char ARRAY_SITE = 'a';
+    private static final char MULTI_ARRAY_SITE = 'm';
+
+    private final AtomicReferenceArray<AtomicReferenceArray<AllocationSite>> chunks;
+    private final Map<SiteKey, Integer> siteIds;
+    private volatile int siteCount;
+
+    public AllocationProfiler() {
+        this.chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+        this.siteIds = new HashMap<>();
+    }
+
+    /**
+     * Register a site allocating instances of a class.
+     *
+     * @param location the source location of the site
+     * @param typeName the binary name of the allocated class
+     * @return the id of the site
+     */
+    public int registerInstanceSite(String location, String typeName) {
+        return register(new SiteKey(INSTANCE_SITE, location, typeName), AllocationSite.instance(location, typeName));
+    }
+
+    /**
+     * Register a site allocating one-dimensional arrays.
+     *
+     * @param location    the source location of the site
+     * @param typeName    the name of the allocated array type
+     * @param elementSize the size of a single element in bytes, 0 for references
+     * @return the id of the site
+     */
+    public int registerArraySite(String location, String typeName, int elementSize) {
+        return register(
+                new SiteKey(ARRAY_SITE, location, typeName),
+                AllocationSite.array(location, typeName, elementSize)
+        );
+    }
+
+    /**
+     * Register a site allocating multidimensional arrays.
+     *
+     * @param location the source location of the site
+     * @param typeName the name of the allocated array type
+     * @return the id of the site
+     */
+    public int registerMultiArraySite(String location, String typeName) {
+        return register(
+                new SiteKey(MULTI_ARRAY_SITE, location, typeName),
+                AllocationSite.multiArray(location, typeName)
+        );
+    }
+
+    private synchronized int register(SiteKey key, AllocationSite site) {
+        var existing = siteIds.get(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        int id = siteCount;
+        int chunkIndex = id >>> CHUNK_BITS;
+        if (chunkIndex >= MAX_CHUNKS) {
+            throw new IllegalStateException(
+                    "Too many allocation sites, at most " + MAX_CHUNKS * CHUNK_SIZE + " are supported"
+            );
+        }
+
+        var chunk = chunks.get(chunkIndex);
+        if (chunk == null) {
+            chunk = new AtomicReferenceArray<>(CHUNK_SIZE);
+            chunks.set(chunkIndex, chunk);
+        }
+
+        chunk.set(id & (CHUNK_SIZE - 1), site);
+        siteIds.put(key, id);
+        siteCount = id + 1;
+        return id;
+    }
+
+    private AllocationSite site(int siteId) {
+        return chunks.get(siteId >>> CHUNK_BITS).get(siteId & (CHUNK_SIZE - 1));
+    }
+
+    /**
+     * Whether the instance size of a site still has to be determined with the allocating class.
+     *
+     * @param siteId the id of the site
+     * @return true if the next allocation should pass its caller
+     */
+    public boolean needsCaller(int siteId) {
+        return site(siteId).needsInstanceSize();
+    }
+
+    /**
+     * Record the allocation of an instance, called by instrumented code.
+     *
+     * @param siteId the id of the site
+     * @param caller the class performing the allocation, only required if {@link #needsCaller} is true
+     */
+    public void recordInstance(int siteId, Class<?> caller) {
+        var site = site(siteId);
+        if (site.needsInstanceSize()) {
+            site.resolveInstanceSize(caller);
+        }
+        site.recordInstance();
+    }
+
+    /**
+     * Record the allocation of an array, called by instrumented code.
+     *
+     * @param siteId the id of the site
+     * @param length the length of the array
+     */
+    public void recordArray(int siteId, int length) {
+        site(siteId).recordArray(length);
+    }
+
+    /**
+     * Record the allocation of a multidimensional array, called by instrumented code.
+     *
+     * @param siteId the id of the site
+     */
+    public void recordMultiArray(int siteId) {
+        site(siteId).recordInstance();
+    }
+
+    /**
+     * Find the sites which allocated the most bytes.
+     *
+     * @param limit the maximum number of sites to return
+     * @return the sites ordered by allocated bytes, descending
+     */
+    public List<SiteSummary> getTopSites(int limit) {
+        var merged = new LinkedHashMap<String, SiteSummary>();
+
+        int siteCount = this.siteCount;
+        for (int siteId = 0; siteId < siteCount; siteId++) {
+            var site = site(siteId);
+            long count = site.getCount();
+            if (count == 0) {
+                continue;
+            }
+
+            merged.merge(
+                    site.getLocation() + " " + site.getTypeName(),
+                    new SiteSummary(site.getLocation(), site.getTypeName(), count, site.getApproximateBytes()),
+                    (a, b) -> new SiteSummary(a.location(), a.typeName(), a.count() + b.count(), a.approximateBytes() + b.approximateBytes())
+            );
+        }
+
+        var result = new ArrayList<>(merged.values());
+        result.sort(Comparator.comparingLong(SiteSummary::approximateBytes).reversed());
+        return result.size() > limit ? result.subList(0, limit) : result;
+    }
+
+    /**
+     * Write the report of the top allocation sites when the JVM shuts down.
+     *
+     * @param reportFile the file to write the report to
+     */
+    public void writeReportOnShutdown(Path reportFile) {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                writeReport(reportFile);
+            } catch (IOException e) {
+                System.err.println("[HytaleDev] Failed to write allocation report: " + e.getMessage());
+            }
+        }, "HytaleDev-AllocationReport"));
+    }
+
+    private void writeReport(Path reportFile) throws IOException {
+        Files.createDirectories(reportFile.toAbsolutePath().getParent());
+
+        try (var writer = new PrintWriter(Files.newBufferedWriter(reportFile))) {
+            writer.printf("# Top %d allocation sites by approximate bytes, written %s%n", REPORT_SITES, Instant.now());
+            writer.printf("%16s %12s  %-40s %s%n", "bytes", "count", "type", "location");
+
+            for (var site : getTopSites(REPORT_SITES)) {
+                writer.printf(
+                        "%16d %12d  %-40s %s%n",
+                        site.approximateBytes(),
+                        site.count(),
+                        site.typeName(),
+                        site.location()
+                );
+            }
+        }
+
+        System.out.println("[HytaleDev] Allocation report written to " + reportFile);
+    }
+
+    /**
+     * The allocations of all sites sharing a location and type.
+     *
+     * @param location         the source location
+     * @param typeName         the allocated type
+     * @param count            the number of allocations
+     * @param approximateBytes the estimated number of bytes allocated
+     */
+    public record SiteSummary(String location, String typeName, long count, long approximateBytes) {
+    }
+
+    private record SiteKey(char kind, String location, String typeName) {
+    }
+}
@@ -0,0 +1,139 @@
+package net.janrupf.gradle.hytale.dev.agent.metrics;
+
+import java.lang.reflect.Modifier;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A single {@code new} or array creation instruction and the allocations it performed.
+ * <p>
+ * Counters are striped, so hot sites do not contend on a single cache line. Sizes are estimates
+ * assuming compressed class pointers and references, object instances are sized once by reflection
+ * on the first allocation.
+ */
+public final class AllocationSite {
+    private static final int OBJECT_HEADER_BYTES = 12;
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int REFERENCE_BYTES = 4;
+    private static final int UNKNOWN = -1;
+
+    private final String location;
+    private final String typeName;
+    private final int elementSize;
+    private final LongAdder count;
+    private final LongAdder bytes;
+    private volatile long instanceSize;
+
+    private AllocationSite(String location, String typeName, int elementSize, long instanceSize) {
+        this.location = location;
+        this.typeName = typeName;
+        this.elementSize = elementSize;
+        this.count = new LongAdder();
+        this.bytes = new LongAdder();
+        this.instanceSize = instanceSize;
+    }
+
+    /**
+     * Create a site allocating instances of a class.
+     *
+     * @param location the source location of the site
+     * @param typeName the binary name of the allocated class
+     * @return the site
+     */
+    static AllocationSite instance(String location, String typeName) {
+        return new AllocationSite(location, typeName, 0, UNKNOWN);
+    }
+
+    /**
+     * Create a site allocating one-dimensional arrays.
+     *
+     * @param location    the source location of the site
+     * @param typeName    the name of the allocated array type
+     * @param elementSize the size of a single element in bytes, 0 for references
+     * @return the site
+     */
+    static AllocationSite array(String location, String typeName, int elementSize) {
+        return new AllocationSite(location, typeName, elementSize == 0 ? REFERENCE_BYTES : elementSize, 0);
+    }
+
+    /**
+     * Create a site allocating multidimensional arrays, which are only counted.
+     *
+     * @param location the source location of the site
+     * @param typeName the name of the allocated array type
+     * @return the site
+     */
+    static AllocationSite multiArray(String location, String typeName) {
+        return new AllocationSite(location, typeName, 0, 0);
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public String getTypeName() {
+        return typeName;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getApproximateBytes() {
+        return bytes.sum();
+    }
+
+    boolean needsInstanceSize() {
+        return instanceSize == UNKNOWN;
+    }
+
+    void resolveInstanceSize(Class<?> caller) {
+        long size = OBJECT_HEADER_BYTES;
+
+        try {
+            var loader = caller == null ? null : caller.getClassLoader();
+            for (Class<?> type = Class.forName(typeName, false, loader); type != null; type = type.getSuperclass()) {
+                for (var field : type.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        size += fieldSize(field.getType());
+                    }
+                }
+            }
+        } catch (ClassNotFoundException | LinkageError e) {
+            // Keep the header only, the count is still accurate
+        }
+
+        instanceSize = align(size);
+    }
+
+    void recordInstance() {
+        count.increment();
+        bytes.add(Math.max(instanceSize, 0));
+    }
+
+    void recordArray(int length) {
+        count.increment();
+        if (length > 0) {
+            bytes.add(align(ARRAY_HEADER_BYTES + (long) length * elementSize));
+        } else {
+            bytes.add(ARRAY_HEADER_BYTES);
+        }
+    }
+
+    private static int fieldSize(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        } else if (type == int.class || type == float.class) {
+            return 4;
+        } else if (type == short.class || type == char.class) {
+            return 2;
+        } else if (type == byte.class || type == boolean.class) {
+            return 1;
+        }
+
+        return REFERENCE_BYTES;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+}
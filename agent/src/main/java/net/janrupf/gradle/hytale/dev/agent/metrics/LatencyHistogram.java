@@ -0,0 +1,165 @@
+package net.janrupf.gradle.hytale.dev.agent.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations in nanoseconds.
+ * <p>
+ * Values are sorted into buckets of a power of two, each split into {@value #SUB_BUCKETS} linear
+ * sub-buckets, which keeps the relative error of reported percentiles below 12.5% at a fixed
+ * size. Recording is wait-free and safe from any number of threads. Snapshots drain the
+ * histogram, so each snapshot describes the interval since the previous one.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets;
+    private final AtomicLong count;
+    private final AtomicLong total;
+    private final AtomicLong max;
+
+    public LatencyHistogram() {
+        this.buckets = new AtomicLongArray(BUCKET_COUNT);
+        this.count = new AtomicLong();
+        this.total = new AtomicLong();
+        this.max = new AtomicLong();
+    }
+
+    /**
+     * Record a duration.
+     *
+     * @param nanos the duration in nanoseconds, negative values are recorded as 0
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+
+        buckets.incrementAndGet(bucketIndex(nanos));
+        count.incrementAndGet();
+        total.addAndGet(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Take a snapshot of the recorded durations and reset the histogram.
+     * <p>
+     * Values recorded concurrently end up in either this or the next snapshot.
+     *
+     * @return the snapshot
+     */
+    public Snapshot snapshotAndReset() {
+        var counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.getAndSet(i, 0);
+        }
+
+        return new Snapshot(counts, count.getAndSet(0), total.getAndSet(0), max.getAndSet(0));
+    }
+
+    private static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        long lowerBound = (1L << exponent) + (subBucket << (exponent - SUB_BUCKET_BITS));
+        return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    /**
+     * The durations recorded during one interval.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long total;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long total, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.total = total;
+            this.max = max;
+        }
+
+        /**
+         * The number of recorded durations.
+         *
+         * @return the count
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * The sum of all recorded durations.
+         *
+         * @return the total in nanoseconds
+         */
+        public long getTotalNanos() {
+            return total;
+        }
+
+        /**
+         * The mean of all recorded durations.
+         *
+         * @return the mean in nanoseconds, 0 if nothing was recorded
+         */
+        public long getMeanNanos() {
+            return count == 0 ? 0 : total / count;
+        }
+
+        /**
+         * The longest recorded duration.
+         *
+         * @return the maximum in nanoseconds
+         */
+        public long getMaxNanos() {
+            return max;
+        }
+
+        /**
+         * Approximate the given percentile of the recorded durations.
+         *
+         * @param percentile the percentile between 0 and 100
+         * @return the upper bound of the bucket containing the percentile in nanoseconds, capped at
+         * the maximum, 0 if nothing was recorded
+         */
+        public long getPercentileNanos(double percentile) {
+            long recorded = 0;
+            for (var bucketCount : counts) {
+                recorded += bucketCount;
+            }
+
+            if (recorded == 0) {
+                return 0;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(recorded * percentile / 100.0));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(bucketUpperBound(i), max);
+                }
+            }
+
+            return max;
+        }
+    }
+}
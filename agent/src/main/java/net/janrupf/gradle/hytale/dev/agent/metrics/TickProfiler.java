@@ -0,0 +1,167 @@
+package net.janrupf.gradle.hytale.dev.agent.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the durations of world ticks.
+ * <p>
+ * Every world gets its own {@link LatencyHistogram}, keyed by the identity of the object the tick
+ * method is invoked on. Worlds usually tick on a dedicated thread, so the world last seen by a thread
+ * is cached and the lookup is skipped. Worlds which have not ticked for a while are forgotten, so
+ * unloaded worlds do not linger in the statistics.
+ */
+public final class TickProfiler {
+    private static final int STALE_INTERVALS = 10;
+
+    private final long budgetNanos;
+    private final Map<Object, WorldTicks> worlds;
+    private final ThreadLocal<WorldTicks> lastWorld;
+    private long lastSummaryNanos;
+
+    /**
+     * Create a new tick profiler.
+     *
+     * @param budgetNanos the duration above which a tick counts as overrun
+     */
+    public TickProfiler(long budgetNanos) {
+        this.budgetNanos = budgetNanos;
+        this.worlds = new ConcurrentHashMap<>();
+        this.lastWorld = new ThreadLocal<>();
+        this.lastSummaryNanos = System.nanoTime();
+    }
+
+    /**
+     * Record a completed tick, called by instrumented code.
+     *
+     * @param world      the object the tick method was invoked on, null for static tick methods
+     * @param startNanos the {@link System#nanoTime()} at the start of the tick
+     */
+    public void recordTick(Object world, long startNanos) {
+        long duration = System.nanoTime() - startNanos;
+
+        // Static tick methods are told apart by thread
+        Object key = world != null ? world : Thread.currentThread();
+
+        var ticks = lastWorld.get();
+        if (ticks == null || ticks.key != key || ticks.forgotten) {
+            ticks = worlds.computeIfAbsent(new IdentityKey(key), (k) -> new WorldTicks(key, nameOf(world)));
+            lastWorld.set(ticks);
+        }
+
+        ticks.histogram.record(duration);
+        if (duration > budgetNanos) {
+            ticks.overruns.incrementAndGet();
+        }
+    }
+
+    /**
+     * Summarize the ticks of every world since the previous summary.
+     * <p>
+     * Should be called from a single thread, roughly once per second.
+     *
+     * @return the summaries, one per world which ticked recently
+     */
+    public List<WorldTickSummary> summarize() {
+        long now = System.nanoTime();
+        long intervalNanos = Math.max(1, now - lastSummaryNanos);
+        lastSummaryNanos = now;
+
+        var summaries = new ArrayList<WorldTickSummary>();
+        for (var entry : worlds.entrySet()) {
+            var ticks = entry.getValue();
+            var snapshot = ticks.histogram.snapshotAndReset();
+
+            if (snapshot.getCount() == 0) {
+                if (++ticks.idleIntervals >= STALE_INTERVALS) {
+                    ticks.forgotten = true;
+                    worlds.remove(entry.getKey());
+                }
+                continue;
+            }
+
+            ticks.idleIntervals = 0;
+            summaries.add(new WorldTickSummary(
+                    ticks.name,
+                    snapshot.getCount() * 1_000_000_000.0 / intervalNanos,
+                    snapshot.getMeanNanos() / 1_000_000.0,
+                    snapshot.getPercentileNanos(99) / 1_000_000.0,
+                    snapshot.getMaxNanos() / 1_000_000.0,
+                    snapshot.getCount(),
+                    ticks.overruns.getAndSet(0)
+            ));
+        }
+
+        return summaries;
+    }
+
+    private static String nameOf(Object world) {
+        if (world == null) {
+            return Thread.currentThread().getName();
+        }
+
+        try {
+            var getName = world.getClass().getMethod("getName");
+            if (getName.getReturnType() == String.class) {
+                return (String) getName.invoke(world);
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Fall back to the string representation
+        }
+
+        return String.valueOf(world);
+    }
+
+    private record IdentityKey(Object key) {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof IdentityKey(Object otherKey) && otherKey == key;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(key);
+        }
+    }
+
+    private static final class WorldTicks {
+        private final Object key;
+        private final String name;
+        private final LatencyHistogram histogram;
+        private final AtomicLong overruns;
+        private int idleIntervals;
+        private volatile boolean forgotten;
+
+        private WorldTicks(Object key, String name) {
+            this.key = key;
+            this.name = name;
+            this.histogram = new LatencyHistogram();
+            this.overruns = new AtomicLong();
+        }
+    }
+
+    /**
+     * The ticks of a world during one summary interval.
+     *
+     * @param world        the name of the world
+     * @param tps          the ticks per second
+     * @param meanMspt     the mean tick duration in milliseconds
+     * @param p99Mspt      the approximate 99th percentile tick duration in milliseconds
+     * @param maxMspt      the longest tick duration in milliseconds
+     * @param ticks        the number of ticks
+     * @param overrunTicks the number of ticks exceeding the tick budget
+     */
+    public record WorldTickSummary(
+            String world,
+            double tps,
+            double meanMspt,
+            double p99Mspt,
+            double maxMspt,
+            long ticks,
+            long overrunTicks
+    ) {
+    }
+}
@@ -0,0 +1,258 @@
+package net.janrupf.gradle.hytale.dev.agent.timeline;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Records how long the phases of the server startup take.
+ * <p>
+ * Phases are recorded by the agent, the bridge and transformed server code, with times relative to
+ * the start of the JVM. The timeline is complete once the first world ticked, at which point it is
+ * written as JSON and handed to the listeners. If the server never gets that far (or its tick method
+ * could not be found), the timeline is written when the JVM shuts down instead.
+ */
+public final class StartupTimeline {
+    /**
+     * The suffix of the file the timeline of the previous launch is moved to.
+     */
+    public static final String PREVIOUS_SUFFIX = ".previous";
+
+    private static final StartupTimeline INSTANCE = new StartupTimeline();
+
+    private final long jvmStartEpochMillis;
+    private final long originEpochMillis;
+    private final long originNanos;
+    private final ConcurrentLinkedQueue<Phase> phases;
+    private final List<Consumer<List<Phase>>> completionListeners;
+    private volatile Path outputFile;
+    private volatile boolean complete;
+
+    private StartupTimeline() {
+        this.originNanos = System.nanoTime();
+        this.originEpochMillis = System.currentTimeMillis();
+        this.jvmStartEpochMillis = ProcessHandle.current().info().startInstant()
+                .map(Instant::toEpochMilli)
+                .orElse(originEpochMillis);
+        this.phases = new ConcurrentLinkedQueue<>();
+        this.completionListeners = new CopyOnWriteArrayList<>();
+
+        // Everything before the agent runs: JVM initialization and loading the agent itself
+        this.phases.add(new Phase("jvm", "boot", 0, originEpochMillis - jvmStartEpochMillis, "main"));
+    }
+
+    public static StartupTimeline get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Write the timeline to the given file once complete, moving the timeline of the previous launch
+     * aside for comparison.
+     *
+     * @param file the file to write the timeline to
+     */
+    public void writeTo(Path file) {
+        try {
+            if (Files.exists(file)) {
+                Files.move(file, file.resolveSibling(file.getFileName() + PREVIOUS_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.err.println("[HytaleDev] Failed to keep previous startup timeline: " + e.getMessage());
+        }
+
+        this.outputFile = file;
+        Runtime.getRuntime().addShutdownHook(new Thread(this::write, "HytaleDev-StartupTimeline"));
+    }
+
+    /**
+     * Record a phase which started at the given time and ends now.
+     *
+     * @param category   the category of the phase (e.g., "agent" or "plugin")
+     * @param name       the name of the phase
+     * @param startNanos the {@link System#nanoTime()} at the start of the phase
+     */
+    public void record(String category, String name, long startNanos) {
+        long endNanos = System.nanoTime();
+        phases.add(new Phase(
+                category,
+                name,
+                toJvmMillis(startNanos),
+                (endNanos - startNanos) / 1_000_000.0,
+                Thread.currentThread().getName()
+        ));
+    }
+
+    /**
+     * Record the start or end of a plugin lifecycle method.
+     *
+     * @param plugin     the plugin
+     * @param method     the lifecycle method (e.g., "setup")
+     * @param startNanos the {@link System#nanoTime()} at the start of the method
+     */
+    public void recordPluginPhase(Object plugin, String method, long startNanos) {
+        record("plugin", pluginName(plugin) + " " + method, startNanos);
+    }
+
+    /**
+     * Record an instant without duration.
+     *
+     * @param category the category of the event
+     * @param name     the name of the event
+     */
+    public void mark(String category, String name) {
+        record(category, name, System.nanoTime());
+    }
+
+    /**
+     * Mark the startup as complete, writing the timeline and notifying the listeners.
+     * <p>
+     * Only the first call has an effect.
+     *
+     * @param category the category of the completing event
+     * @param name     the name of the completing event
+     */
+    public void complete(String category, String name) {
+        synchronized (this) {
+            if (complete) {
+                return;
+            }
+            mark(category, name);
+            complete = true;
+        }
+
+        write();
+
+        var snapshot = getPhases();
+        for (var listener : completionListeners) {
+            listener.accept(snapshot);
+        }
+    }
+
+    /**
+     * Whether the startup has completed.
+     *
+     * @return true if complete
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Register a listener invoked with the phases once the startup completes.
+     *
+     * @param listener the listener
+     */
+    public void addCompletionListener(Consumer<List<Phase>> listener) {
+        completionListeners.add(listener);
+    }
+
+    /**
+     * The phases recorded so far, ordered by their start.
+     *
+     * @return the phases
+     */
+    public List<Phase> getPhases() {
+        var sorted = new ArrayList<>(phases);
+        sorted.sort(Comparator.comparingDouble(Phase::startMillis));
+        return sorted;
+    }
+
+    private double toJvmMillis(long nanos) {
+        return (originEpochMillis - jvmStartEpochMillis) + (nanos - originNanos) / 1_000_000.0;
+    }
+
+    private synchronized void write() {
+        var file = outputFile;
+        if (file == null) {
+            return;
+        }
+
+        var json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"jvmStart\": ").append(jvmStartEpochMillis).append(",\n");
+        json.append("  \"complete\": ").append(complete).append(",\n");
+        json.append("  \"phases\": [");
+
+        var sorted = getPhases();
+        for (int i = 0; i < sorted.size(); i++) {
+            var phase = sorted.get(i);
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append(String.format(
+                    Locale.ROOT,
+                    "    {\"category\": %s, \"name\": %s, \"startMillis\": %.3f, \"durationMillis\": %.3f, \"thread\": %s}",
+                    quote(phase.category()),
+                    quote(phase.name()),
+                    phase.startMillis(),
+                    phase.durationMillis(),
+                    quote(phase.thread())
+            ));
+        }
+        json.append("\n  ]\n}\n");
+
+        try {
+            var temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.writeString(temporaryFile, json);
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("[HytaleDev] Failed to write startup timeline: " + e.getMessage());
+        }
+    }
+
+    private static String quote(String value) {
+        var quoted = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                case '\n' -> quoted.append("\\n");
+                case '\r' -> quoted.append("\\r");
+                case '\t' -> quoted.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+                }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    private static String pluginName(Object plugin) {
+        for (var accessor : new String[]{"getIdentifier", "getName"}) {
+            try {
+                var value = plugin.getClass().getMethod(accessor).invoke(plugin);
+                if (value != null) {
+                    return value.toString();
+                }
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                // Try the next accessor
+            }
+        }
+
+        return plugin.getClass().getName();
+    }
+
+    /**
+     * A phase of the startup.
+     *
+     * @param category       the category of the phase
+     * @param name           the name of the phase
+     * @param startMillis    the start of the phase in milliseconds since the JVM started
+     * @param durationMillis the duration of the phase in milliseconds, 0 for instants
+     * @param thread         the name of the thread the phase ended on
+     */
+    public record Phase(String category, String name, double startMillis, double durationMillis, String thread) {
+    }
+}
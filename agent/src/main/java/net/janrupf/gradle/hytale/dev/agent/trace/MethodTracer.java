@@ -0,0 +1,294 @@
+package net.janrupf.gradle.hytale.dev.agent.trace;
+
+import net.janrupf.gradle.hytale.dev.agent.metrics.LatencyHistogram;
+
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.ClassHierarchyResolver;
+import java.lang.classfile.ClassTransform;
+import java.lang.classfile.MethodModel;
+import java.lang.classfile.MethodTransform;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.lang.instrument.UnmodifiableClassException;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Adds timing probes to methods of a running server and removes them again.
+ * <p>
+ * Tracing a method retransforms the classes declaring it, the probes feed a {@link LatencyHistogram}
+ * per traced method. Classes loaded later are instrumented as they are defined, which also covers
+ * classes reloaded by the agent. Stopping the trace retransforms the classes back to their original
+ * code.
+ * <p>
+ * The tracer only registers itself with the JVM once the first method is traced, a retransformation
+ * capable transformer makes the JVM keep a copy of every class file loaded afterward.
+ */
+public final class MethodTracer implements ClassFileTransformer {
+    private final Instrumentation instrumentation;
+    private final Map<String, Map<String, Probe>> probesByClass;
+    private volatile Probe[] probesById;
+    private boolean registered;
+
+    /**
+     * Create a new tracer.
+     *
+     * @param instrumentation the instrumentation of the JVM, must support retransformation
+     */
+    public MethodTracer(Instrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+        this.probesByClass = new ConcurrentHashMap<>();
+        this.probesById = new Probe[0];
+    }
+
+    /**
+     * Start tracing all overloads of a method.
+     *
+     * @param className  the binary name of the class declaring the method
+     * @param methodName the name of the method
+     * @return a description of what is being traced
+     * @throws IllegalArgumentException if the method can not be traced
+     * @throws IllegalStateException    if the loaded classes could not be retransformed
+     */
+    public synchronized String start(String className, String methodName) {
+        if (methodName.equals("<init>") || methodName.equals("<clinit>")) {
+            throw new IllegalArgumentException("Constructors and static initializers can not be traced");
+        }
+
+        var traced = probesByClass.get(className);
+        if (traced != null && traced.containsKey(methodName)) {
+            throw new IllegalArgumentException(className + "#" + methodName + " is already traced");
+        }
+
+        var loadedClasses = findLoadedClasses(className);
+        for (var loadedClass : loadedClasses) {
+            if (Arrays.stream(loadedClass.getDeclaredMethods()).noneMatch((method) -> method.getName().equals(methodName))) {
+                throw new IllegalArgumentException(className + " does not declare a method named " + methodName);
+            }
+        }
+
+        if (!registered) {
+            instrumentation.addTransformer(this, true);
+            registered = true;
+        }
+
+        var ids = probesById;
+        var probe = new Probe(ids.length, className, methodName);
+        ids = Arrays.copyOf(ids, ids.length + 1);
+        ids[probe.id] = probe;
+        probesById = ids;
+        probesByClass.computeIfAbsent(className, (k) -> new ConcurrentHashMap<>()).put(methodName, probe);
+
+        try {
+            retransform(loadedClasses);
+        } catch (IllegalStateException e) {
+            removeProbe(probe);
+            throw e;
+        }
+
+        if (loadedClasses.isEmpty()) {
+            return "Tracing " + probe.describe() + " once its class is loaded";
+        }
+
+        return "Tracing " + probe.describe() + " in " + loadedClasses.size() + " loaded classes";
+    }
+
+    /**
+     * Stop tracing a method and remove its probes.
+     *
+     * @param className  the binary name of the class declaring the method
+     * @param methodName the name of the method
+     * @return whether the method was traced
+     * @throws IllegalStateException if the loaded classes could not be retransformed
+     */
+    public synchronized boolean stop(String className, String methodName) {
+        var methods = probesByClass.get(className);
+        if (methods == null) {
+            return false;
+        }
+
+        var probe = methods.get(methodName);
+        if (probe == null) {
+            return false;
+        }
+
+        removeProbe(probe);
+        retransform(findLoadedClasses(className));
+        return true;
+    }
+
+    /**
+     * Stop tracing all methods.
+     */
+    public synchronized void stopAll() {
+        for (var probe : probesById) {
+            if (probe != null) {
+                stop(probe.className, probe.methodName);
+            }
+        }
+    }
+
+    /**
+     * Whether any method is currently traced.
+     *
+     * @return true if at least one method is traced
+     */
+    public boolean isTracing() {
+        return !probesByClass.isEmpty();
+    }
+
+    /**
+     * Summarize the calls of every traced method since the previous summary.
+     *
+     * @return the summaries, one per traced method
+     */
+    public List<TraceSummary> summarize() {
+        var summaries = new ArrayList<TraceSummary>();
+
+        for (var probe : probesById) {
+            if (probe == null) {
+                continue;
+            }
+
+            var snapshot = probe.histogram.snapshotAndReset();
+            summaries.add(new TraceSummary(
+                    probe.className,
+                    probe.methodName,
+                    snapshot.getCount(),
+                    snapshot.getTotalNanos(),
+                    snapshot.getMeanNanos(),
+                    snapshot.getPercentileNanos(50),
+                    snapshot.getPercentileNanos(99),
+                    snapshot.getMaxNanos()
+            ));
+        }
+
+        return summaries;
+    }
+
+    /**
+     * Record a call of a traced method, called by the probes.
+     *
+     * @param probeId    the id of the probe
+     * @param startNanos the {@link System#nanoTime()} at method entry
+     */
+    public void recordExit(int probeId, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+
+        var ids = probesById;
+        if (probeId < ids.length) {
+            var probe = ids[probeId];
+            if (probe != null) {
+                probe.histogram.record(elapsed);
+            }
+        }
+    }
+
+    @Override
+    public byte[] transform(
+            ClassLoader loader,
+            String className,
+            Class<?> classBeingRedefined,
+            ProtectionDomain protectionDomain,
+            byte[] classfileBuffer
+    ) {
+        if (className == null) {
+            return null;
+        }
+
+        var methods = probesByClass.get(className.replace('/', '.'));
+        if (methods == null || methods.isEmpty()) {
+            // Without probes retransformation restores the original code
+            return null;
+        }
+
+        try {
+            var resolver = ClassHierarchyResolver.defaultResolver();
+            if (loader != null) {
+                resolver = resolver.orElse(ClassHierarchyResolver.ofResourceParsing(loader));
+            }
+
+            var classFile = ClassFile.of(ClassFile.ClassHierarchyResolverOption.of(resolver));
+            var classModel = classFile.parse(classfileBuffer);
+
+            ClassTransform transform = (builder, element) -> {
+                if (element instanceof MethodModel method && method.code().isPresent()) {
+                    var probe = methods.get(method.methodName().stringValue());
+                    if (probe != null) {
+                        // Overloads share the probe, but each body needs its own transform state
+                        builder.transformMethod(method, MethodTransform.transformingCode(
+                                TimingProbeTransform.forTraceProbe(probe.id)
+                        ));
+                        return;
+                    }
+                }
+
+                builder.with(element);
+            };
+
+            return classFile.transformClass(classModel, transform);
+        } catch (RuntimeException e) {
+            // Exceptions thrown from here are swallowed by the JVM, report them at least
+            System.err.println("[HytaleDev] Failed to add trace probes to " + className + ": " + e);
+            return null;
+        }
+    }
+
+    private void removeProbe(Probe probe) {
+        var methods = probesByClass.get(probe.className);
+        methods.remove(probe.methodName);
+        if (methods.isEmpty()) {
+            probesByClass.remove(probe.className);
+        }
+
+        // Calls still running the old code report to an empty slot and are dropped
+        probesById[probe.id] = null;
+    }
+
+    private List<Class<?>> findLoadedClasses(String className) {
+        var classes = new ArrayList<Class<?>>();
+
+        // Reloaded project classes exist once per classloader generation
+        for (var loadedClass : instrumentation.getAllLoadedClasses()) {
+            if (loadedClass.getName().equals(className) && instrumentation.isModifiableClass(loadedClass)) {
+                classes.add(loadedClass);
+            }
+        }
+
+        return classes;
+    }
+
+    private void retransform(List<Class<?>> classes) {
+        if (classes.isEmpty()) {
+            return;
+        }
+
+        try {
+            instrumentation.retransformClasses(classes.toArray(new Class<?>[0]));
+        } catch (UnmodifiableClassException | UnsupportedOperationException | LinkageError e) {
+            throw new IllegalStateException("Failed to retransform " + classes.getFirst().getName() + ": " + e, e);
+        }
+    }
+
+    private static final class Probe {
+        private final int id;
+        private final String className;
+        private final String methodName;
+        private final LatencyHistogram histogram;
+
+        private Probe(int id, String className, String methodName) {
+            this.id = id;
+            this.className = className;
+            this.methodName = methodName;
+            this.histogram = new LatencyHistogram();
+        }
+
+        private String describe() {
+            return className + "#" + methodName;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package net.janrupf.gradle.hytale.dev.agent.trace;
+
+import net.janrupf.gradle.hytale.dev.agent.BytecodeEntryPoints;
+
+import java.lang.classfile.CodeBuilder;
+import java.lang.classfile.CodeElement;
+import java.lang.classfile.CodeTransform;
+import java.lang.classfile.Label;
+import java.lang.classfile.TypeKind;
+import java.lang.classfile.instruction.ReturnInstruction;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.ConstantDescs;
+import java.lang.constant.MethodTypeDesc;
+
+/**
+ * Wraps a method body with timing probes.
+ * <p>
+ * The start time is taken on entry, every return and every exception leaving the method runs the
+ * exit probe with the start time in a local variable. Must not be applied to constructors, the
+ * exception handler would cover the uninitialized {@code this}.
+ */
+public final class TimingProbeTransform implements CodeTransform {
+    private static final ClassDesc SYSTEM_CLASS = ClassDesc.of(System.class.getName());
+    private static final ClassDesc BYTECODE_ENTRY_POINTS_CLASS = ClassDesc.of(BytecodeEntryPoints.class.getName());
+    private static final MethodTypeDesc NANO_TIME = MethodTypeDesc.of(ConstantDescs.CD_long);
+    private static final MethodTypeDesc TRACE_METHOD_EXIT = MethodTypeDesc.of(
+            ConstantDescs.CD_void,
+            ConstantDescs.CD_int,
+            ConstantDescs.CD_long
+    );
+
+    private final ExitProbe exitProbe;
+    private int startSlot;
+    private Label bodyStart;
+
+    /**
+     * Create a transform running the given exit probe.
+     *
+     * @param exitProbe emits the code reporting the elapsed time, must leave the stack unchanged
+     */
+    public TimingProbeTransform(ExitProbe exitProbe) {
+        this.exitProbe = exitProbe;
+    }
+
+    /**
+     * Create a transform reporting to {@link BytecodeEntryPoints#traceMethodExit(int, long)}.
+     *
+     * @param probeId the id of the trace probe
+     * @return the transform
+     */
+    static TimingProbeTransform forTraceProbe(int probeId) {
+        return new TimingProbeTransform((builder, startSlot) -> {
+            builder.loadConstant(probeId);
+            builder.lload(startSlot);
+            builder.invokestatic(BYTECODE_ENTRY_POINTS_CLASS, "traceMethodExit", TRACE_METHOD_EXIT);
+        });
+    }
+
+    @Override
+    public void atStart(CodeBuilder builder) {
+        startSlot = builder.allocateLocal(TypeKind.LONG);
+        builder.invokestatic(SYSTEM_CLASS, "nanoTime", NANO_TIME);
+        builder.lstore(startSlot);
+
+        // The handler reads the start time, so it may only cover code after it has been stored
+        bodyStart = builder.newBoundLabel();
+    }
+
+    @Override
+    public void accept(CodeBuilder builder, CodeElement element) {
+        if (element instanceof ReturnInstruction) {
+            exitProbe.emit(builder, startSlot);
+        }
+        builder.with(element);
+    }
+
+    @Override
+    public void atEnd(CodeBuilder builder) {
+        // Catch-all handler appended last, so the method's own handlers still take precedence
+        var handler = builder.newBoundLabel();
+        exitProbe.emit(builder, startSlot);
+        builder.athrow();
+        builder.exceptionCatchAll(bodyStart, handler, handler);
+    }
+
+    /**
+     * Emits the code run whenever the method is left.
+     */
+    @FunctionalInterface
+    public interface ExitProbe {
+        /**
+         * Emit the probe.
+         *
+         * @param builder   the builder to emit to
+         * @param startSlot the local variable slot holding the {@link System#nanoTime()} at entry
+         */
+        void emit(CodeBuilder builder, int startSlot);
+    }
+}
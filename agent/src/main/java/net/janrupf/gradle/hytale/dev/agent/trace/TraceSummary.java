@@ -0,0 +1,25 @@
+package net.janrupf.gradle.hytale.dev.agent.trace;
+
+/**
+ * The latencies of a traced method during one reporting interval.
+ *
+ * @param className  the traced class
+ * @param methodName the traced method, all overloads are aggregated
+ * @param calls      the number of calls completed during the interval
+ * @param totalNanos the time spent in the method during the interval
+ * @param meanNanos  the mean call duration
+ * @param p50Nanos   the approximate median call duration
+ * @param p99Nanos   the approximate 99th percentile call duration
+ * @param maxNanos   the longest call duration
+ */
+public record TraceSummary(
+        String className,
+        String methodName,
+        long calls,
+        long totalNanos,
+        long meanNanos,
+        long p50Nanos,
+        long p99Nanos,
+        long maxNanos
+) {
+}
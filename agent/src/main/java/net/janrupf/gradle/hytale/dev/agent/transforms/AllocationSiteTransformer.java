@@ -0,0 +1,169 @@
+package net.janrupf.gradle.hytale.dev.agent.transforms;
+
+import net.janrupf.gradle.hytale.dev.agent.BytecodeEntryPoints;
+import net.janrupf.gradle.hytale.dev.agent.loader.HytaleDevAgentClassTransformer;
+import net.janrupf.gradle.hytale.dev.agent.metrics.AllocationProfiler;
+
+import java.lang.classfile.*;
+import java.lang.classfile.instruction.LineNumber;
+import java.lang.classfile.instruction.NewMultiArrayInstruction;
+import java.lang.classfile.instruction.NewObjectInstruction;
+import java.lang.classfile.instruction.NewPrimitiveArrayInstruction;
+import java.lang.classfile.instruction.NewReferenceArrayInstruction;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.ConstantDescs;
+import java.lang.constant.MethodTypeDesc;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Transformer that counts the allocations performed by the project's own classes.
+ * <p>
+ * Every {@code new}, {@code newarray}, {@code anewarray} and {@code multianewarray} instruction reports
+ * to the {@link AllocationProfiler} before allocating. Only classes loaded from the given code sources
+ * are instrumented, server and JDK classes are never touched so the overhead stays with the code under
+ * investigation.
+ */
+public class AllocationSiteTransformer implements HytaleDevAgentClassTransformer {
+    private static final ClassDesc BYTECODE_ENTRY_POINTS_CLASS = ClassDesc.of(BytecodeEntryPoints.class.getName());
+    private static final MethodTypeDesc RECORD_ALLOCATION = MethodTypeDesc.of(
+            ConstantDescs.CD_void,
+            ConstantDescs.CD_int
+    );
+    private static final MethodTypeDesc RECORD_ARRAY_ALLOCATION = MethodTypeDesc.of(
+            ConstantDescs.CD_void,
+            ConstantDescs.CD_int,
+            ConstantDescs.CD_int
+    );
+    private static final Set<String> EXCLUDED_PREFIXES = Set.of("com.hypixel.", "java.", "javax.", "jdk.", "sun.");
+
+    private final AllocationProfiler profiler;
+    private final Set<Path> codeSources;
+    private final Map<String, Boolean> acceptedCodeSources;
+
+    /**
+     * Create a new allocation site transformer.
+     *
+     * @param profiler    the profiler to register sites with
+     * @param codeSources the directories and jars containing the project classes
+     */
+    public AllocationSiteTransformer(AllocationProfiler profiler, Set<Path> codeSources) {
+        this.profiler = profiler;
+        this.codeSources = codeSources;
+        this.acceptedCodeSources = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public boolean acceptsCodeSource(URL codeSource) {
+        if (codeSource == null) {
+            return false;
+        }
+
+        return acceptedCodeSources.computeIfAbsent(codeSource.toExternalForm(), (location) -> {
+            try {
+                return codeSources.contains(Path.of(codeSource.toURI()).toAbsolutePath().normalize());
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                return false;
+            }
+        });
+    }
+
+    @Override
+    public ClassTransform createTransform(String name, ClassModel classModel) {
+        for (var prefix : EXCLUDED_PREFIXES) {
+            if (name.startsWith(prefix)) {
+                return null;
+            }
+        }
+
+        return (builder, element) -> {
+            if (element instanceof MethodModel method && method.code().isPresent()) {
+                var location = name + "." + method.methodName().stringValue();
+                builder.transformMethod(method, MethodTransform.transformingCode(
+                        CodeTransform.ofStateful(() -> new SiteTransform(location))
+                ));
+            } else {
+                builder.with(element);
+            }
+        };
+    }
+
+    private final class SiteTransform implements CodeTransform {
+        private final String location;
+        private int line;
+
+        private SiteTransform(String location) {
+            this.location = location;
+            this.line = -1;
+        }
+
+        @Override
+        public void accept(CodeBuilder builder, CodeElement element) {
+            switch (element) {
+                case LineNumber lineNumber -> line = lineNumber.line();
+                case NewObjectInstruction newObject -> {
+                    int site = profiler.registerInstanceSite(
+                            siteLocation(),
+                            newObject.className().asInternalName().replace('/', '.')
+                    );
+                    builder.loadConstant(site);
+                    builder.invokestatic(BYTECODE_ENTRY_POINTS_CLASS, "recordAllocation", RECORD_ALLOCATION);
+                }
+                case NewPrimitiveArrayInstruction newArray -> {
+                    int site = profiler.registerArraySite(
+                            siteLocation(),
+                            newArray.typeKind().name().toLowerCase(Locale.ROOT) + "[]",
+                            primitiveSize(newArray.typeKind())
+                    );
+                    invokeRecordArrayAllocation(builder, site);
+                }
+                case NewReferenceArrayInstruction newArray -> {
+                    int site = profiler.registerArraySite(
+                            siteLocation(),
+                            newArray.componentType().asSymbol().displayName() + "[]",
+                            0
+                    );
+                    invokeRecordArrayAllocation(builder, site);
+                }
+                case NewMultiArrayInstruction newArray -> {
+                    int site = profiler.registerMultiArraySite(
+                            siteLocation(),
+                            newArray.arrayType().asSymbol().displayName()
+                    );
+                    builder.loadConstant(site);
+                    builder.invokestatic(BYTECODE_ENTRY_POINTS_CLASS, "recordMultiArrayAllocation", RECORD_ALLOCATION);
+                }
+                default -> {
+                }
+            }
+
+            builder.with(element);
+        }
+
+        private String siteLocation() {
+            return line < 0 ? location : location + ":" + line;
+        }
+
+        private void invokeRecordArrayAllocation(CodeBuilder builder, int site) {
+            // [length] -> [length, length] -> [length, length, site] -> [length, site, length]
+            builder.dup();
+            builder.loadConstant(site);
+            builder.swap();
+            builder.invokestatic(BYTECODE_ENTRY_POINTS_CLASS, "recordArrayAllocation", RECORD_ARRAY_ALLOCATION);
+        }
+
+        private static int primitiveSize(TypeKind typeKind) {
+            return switch (typeKind) {
+                case BOOLEAN, BYTE -> 1;
+                case CHAR, SHORT -> 2;
+                case LONG, DOUBLE -> 8;
+                default -> 4;
+            };
+        }
+    }
+}
@@ -8,6 +8,7 @@ import java.lang.constant.ClassDesc;
 import java.lang.constant.MethodTypeDesc;
 import java.lang.reflect.AccessFlag;
 import java.nio.file.Path;
+import java.util.Set;
 
 public class AssetModuleTransformer implements HytaleDevAgentClassTransformer {
     private static final ClassDesc NIO_PATH_CLASS = ClassDesc.of(Path.class.getName());
@@ -15,41 +16,30 @@ public class AssetModuleTransformer implements HytaleDevAgentClassTransformer {
     private static final ClassDesc BYTECODE_ENTRY_POINTS_CLASS = ClassDesc.of(BytecodeEntryPoints.class.getName());
 
     @Override
-    public byte[] transform(String name, String internalName, byte[] classData, ClassLoader loader) {
-        if (!name.equals("com.hypixel.hytale.server.core.asset.AssetModule")) {
-            return null;
-        }
-
-        var resolver = ClassHierarchyResolver.ofClassLoading(loader);
-        var originalClass = ClassFile.of(ClassFile.ClassHierarchyResolverOption.of(resolver)).parse(classData);
-        return ClassFile.of(ClassFile.ClassHierarchyResolverOption.of(resolver)).build(
-                originalClass.thisClass().asSymbol(),
-                (builder) -> this.rebuildAssetModuleClass(originalClass, builder)
-        );
+    public Set<String> getTargetClasses() {
+        return Set.of("com.hypixel.hytale.server.core.asset.AssetModule");
     }
 
-    private void rebuildAssetModuleClass(ClassModel originalClass, ClassBuilder builder) {
-        for (var element : originalClass) {
-            int pathParamIndex;
-            if (!(element instanceof MethodModel method) ||
-                    !method.methodName().equalsString("registerPack") ||
-                    (pathParamIndex = this.pathParameter(method)) == -1
-            ) {
-                builder.with(element);
-                continue;
-            }
+    @Override
+    public ClassTransform createTransform(String name, ClassModel classModel) {
+        return this::transformAssetModuleElement;
+    }
 
-            builder.withMethod(
-                    method.methodName(),
-                    method.methodType(),
-                    method.flags().flagsMask(),
-                    (methodBuilder) -> this.rebuildRegisterPackMethod(
-                            method,
-                            methodBuilder,
-                            pathParamIndex
-                    )
-            );
+    private void transformAssetModuleElement(ClassBuilder builder, ClassElement element) {
+        int pathParamIndex;
+        if (!(element instanceof MethodModel method) ||
+                !method.methodName().equalsString("registerPack") ||
+                (pathParamIndex = this.pathParameter(method)) == -1
+        ) {
+            builder.with(element);
+            return;
         }
+
+        builder.transformMethod(method, MethodTransform.transformingCode(
+                new RedirectPathParameterTransform(
+                        pathParamIndex + (method.flags().has(AccessFlag.STATIC) ? 0 : 1)
+                )
+        ));
     }
 
     private int pathParameter(MethodModel model) {
@@ -64,35 +54,27 @@ public class AssetModuleTransformer implements HytaleDevAgentClassTransformer {
         return -1;
     }
 
-    private void rebuildRegisterPackMethod(MethodModel originalMethod, MethodBuilder builder, int pathParamIndex) {
-        for (var element : originalMethod) {
-            if (element instanceof CodeModel code) {
-                builder.withCode(
-                        (codeBuilder) -> this.rebuildRegisterPackMethodCode(
-                                code,
-                                codeBuilder,
-                                pathParamIndex + (originalMethod.flags().has(AccessFlag.STATIC) ? 0 : 1)
-                        )
-                );
-            } else {
-                builder.with(element);
-            }
+    /**
+     * Prepends the asset pack path redirect to the registerPack method body, leaving
+     * the original code untouched.
+     */
+    private record RedirectPathParameterTransform(int pathParamIndex) implements CodeTransform {
+        @Override
+        public void atStart(CodeBuilder builder) {
+            builder.loadLocal(NIO_PATH_TYPE_KIND, pathParamIndex);
+            builder.invokestatic(
+                    BYTECODE_ENTRY_POINTS_CLASS,
+                    "redirectAssetPackPath",
+                    MethodTypeDesc.of(
+                            NIO_PATH_CLASS,
+                            NIO_PATH_CLASS
+                    )
+            );
+            builder.storeLocal(NIO_PATH_TYPE_KIND, pathParamIndex);
         }
-    }
-
-    private void rebuildRegisterPackMethodCode(CodeModel originalCode, CodeBuilder builder, int pathParamIndex) {
-        builder.loadLocal(NIO_PATH_TYPE_KIND, pathParamIndex);
-        builder.invokestatic(
-                BYTECODE_ENTRY_POINTS_CLASS,
-                "redirectAssetPackPath",
-                MethodTypeDesc.of(
-                        NIO_PATH_CLASS,
-                        NIO_PATH_CLASS
-                )
-        );
-        builder.storeLocal(NIO_PATH_TYPE_KIND, pathParamIndex);
 
-        for (var element : originalCode) {
+        @Override
+        public void accept(CodeBuilder builder, CodeElement element) {
             builder.with(element);
         }
     }
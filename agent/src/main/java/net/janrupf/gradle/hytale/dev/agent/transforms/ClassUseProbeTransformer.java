@@ -0,0 +1,69 @@
+package net.janrupf.gradle.hytale.dev.agent.transforms;
+
+import net.janrupf.gradle.hytale.dev.agent.BytecodeEntryPoints;
+import net.janrupf.gradle.hytale.dev.agent.loader.HytaleDevAgentClassTransformer;
+
+import java.lang.classfile.*;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.ConstantDescs;
+import java.lang.constant.MethodTypeDesc;
+import java.lang.reflect.AccessFlag;
+
+/**
+ * Transformer that reports when a class is initialized, applied to classes defined by the class preloader.
+ * <p>
+ * The JVM resolves references between classes of the same loader without asking the loader again, so
+ * the first use of a preloaded class is only observable once it is initialized. The static initializer
+ * (created if missing) starts with a call to {@link BytecodeEntryPoints#recordClassUse(Class)}.
+ */
+public class ClassUseProbeTransformer implements HytaleDevAgentClassTransformer {
+    private static final ClassDesc BYTECODE_ENTRY_POINTS_CLASS = ClassDesc.of(BytecodeEntryPoints.class.getName());
+    private static final MethodTypeDesc RECORD_CLASS_USE = MethodTypeDesc.of(
+            ConstantDescs.CD_void,
+            ConstantDescs.CD_Class
+    );
+
+    @Override
+    public ClassTransform createTransform(String name, ClassModel classModel) {
+        // Class constants can only be loaded from Java 5 class files on
+        if (classModel.majorVersion() < ClassFile.JAVA_5_VERSION || classModel.flags().has(AccessFlag.MODULE)) {
+            return null;
+        }
+
+        var thisClass = classModel.thisClass().asSymbol();
+        boolean hasClinit = classModel.methods().stream()
+                .anyMatch((method) -> method.methodName().equalsString(ConstantDescs.CLASS_INIT_NAME));
+
+        if (hasClinit) {
+            return ClassTransform.transformingMethodBodies(
+                    (method) -> method.methodName().equalsString(ConstantDescs.CLASS_INIT_NAME),
+                    new CodeTransform() {
+                        @Override
+                        public void atStart(CodeBuilder builder) {
+                            invokeRecordClassUse(builder, thisClass);
+                        }
+
+                        @Override
+                        public void accept(CodeBuilder builder, CodeElement element) {
+                            builder.with(element);
+                        }
+                    }
+            );
+        }
+
+        return ClassTransform.endHandler((builder) -> builder.withMethodBody(
+                ConstantDescs.CLASS_INIT_NAME,
+                ConstantDescs.MTD_void,
+                ClassFile.ACC_STATIC,
+                (codeBuilder) -> {
+                    invokeRecordClassUse(codeBuilder, thisClass);
+                    codeBuilder.return_();
+                }
+        ));
+    }
+
+    private static void invokeRecordClassUse(CodeBuilder builder, ClassDesc thisClass) {
+        builder.ldc(thisClass);
+        builder.invokestatic(BYTECODE_ENTRY_POINTS_CLASS, "recordClassUse", RECORD_CLASS_USE);
+    }
+}
@@ -0,0 +1,57 @@
+package net.janrupf.gradle.hytale.dev.agent.transforms;
+
+import net.janrupf.gradle.hytale.dev.agent.BytecodeEntryPoints;
+import net.janrupf.gradle.hytale.dev.agent.loader.HytaleDevAgentClassTransformer;
+
+import java.lang.classfile.*;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.MethodTypeDesc;
+import java.util.Set;
+
+/**
+ * Transformer that reports the first world tick, which completes the startup timeline.
+ * <p>
+ * A call to {@link BytecodeEntryPoints#recordFirstTick()} is injected at the start of the world's tick
+ * method. Unlike the tick profiler this is always installed and part of the built-in transformers, so the
+ * server's readiness is known in every launch mode, including a patched server jar on the application
+ * classpath.
+ */
+public class FirstTickTransformer implements HytaleDevAgentClassTransformer {
+    private static final String TARGET_CLASS = "com.hypixel.hytale.server.core.universe.world.World";
+    private static final String TICK_METHOD = "tick";
+    private static final ClassDesc BYTECODE_ENTRY_POINTS_CLASS = ClassDesc.of(BytecodeEntryPoints.class.getName());
+
+    @Override
+    public Set<String> getTargetClasses() {
+        return Set.of(TARGET_CLASS);
+    }
+
+    @Override
+    public ClassTransform createTransform(String name, ClassModel classModel) {
+        if (classModel.methods().stream().noneMatch(FirstTickTransformer::isTickMethod)) {
+            System.err.println("[HytaleDev] Tick method " + TICK_METHOD + " not found in " + name
+                    + ", the startup only completes on shutdown");
+            return null;
+        }
+
+        return ClassTransform.transformingMethodBodies(FirstTickTransformer::isTickMethod, new CodeTransform() {
+            @Override
+            public void atStart(CodeBuilder builder) {
+                builder.invokestatic(
+                        BYTECODE_ENTRY_POINTS_CLASS,
+                        "recordFirstTick",
+                        MethodTypeDesc.ofDescriptor("()V")
+                );
+            }
+
+            @Override
+            public void accept(CodeBuilder builder, CodeElement element) {
+                builder.with(element);
+            }
+        });
+    }
+
+    private static boolean isTickMethod(MethodModel method) {
+        return method.methodName().equalsString(TICK_METHOD) && method.code().isPresent();
+    }
+}
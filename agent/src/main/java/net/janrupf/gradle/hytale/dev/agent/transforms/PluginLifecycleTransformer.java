@@ -0,0 +1,90 @@
+package net.janrupf.gradle.hytale.dev.agent.transforms;
+
+import net.janrupf.gradle.hytale.dev.agent.BytecodeEntryPoints;
+import net.janrupf.gradle.hytale.dev.agent.loader.HytaleDevAgentClassTransformer;
+
+import java.lang.classfile.*;
+import java.lang.classfile.instruction.InvokeInstruction;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.ConstantDescs;
+import java.lang.constant.MethodTypeDesc;
+import java.util.Set;
+
+/**
+ * Transformer that times the {@code setup()} and {@code start()} calls of every plugin.
+ * <p>
+ * Plugins override these methods, so instead of the methods themselves the calls the server's plugin
+ * package makes to them are wrapped. The plugin and the start time are kept in fresh locals and
+ * reported to {@link BytecodeEntryPoints#recordPluginPhase(Object, String, long)} once the call
+ * returned. Calls which throw are not recorded, the plugin failed to load anyway.
+ */
+public class PluginLifecycleTransformer implements HytaleDevAgentClassTransformer {
+    private static final String PLUGIN_PACKAGE = "com.hypixel.hytale.server.core.plugin";
+    private static final String PLUGIN_PACKAGE_INTERNAL = PLUGIN_PACKAGE.replace('.', '/') + "/";
+    private static final Set<String> LIFECYCLE_METHODS = Set.of("setup", "start");
+    private static final ClassDesc SYSTEM_CLASS = ClassDesc.of(System.class.getName());
+    private static final ClassDesc BYTECODE_ENTRY_POINTS_CLASS = ClassDesc.of(BytecodeEntryPoints.class.getName());
+    private static final MethodTypeDesc NANO_TIME = MethodTypeDesc.of(ConstantDescs.CD_long);
+    private static final MethodTypeDesc RECORD_PLUGIN_PHASE = MethodTypeDesc.of(
+            ConstantDescs.CD_void,
+            ConstantDescs.CD_Object,
+            ConstantDescs.CD_String,
+            ConstantDescs.CD_long
+    );
+
+    @Override
+    public Set<String> getTargetPackages() {
+        return Set.of(PLUGIN_PACKAGE);
+    }
+
+    @Override
+    public ClassTransform createTransform(String name, ClassModel classModel) {
+        boolean hasLifecycleCalls = classModel.methods().stream()
+                .anyMatch(PluginLifecycleTransformer::hasLifecycleCalls);
+
+        if (!hasLifecycleCalls) {
+            return null;
+        }
+
+        return ClassTransform.transformingMethodBodies(
+                PluginLifecycleTransformer::hasLifecycleCalls,
+                this::transformCodeElement
+        );
+    }
+
+    private void transformCodeElement(CodeBuilder builder, CodeElement element) {
+        if (!(element instanceof InvokeInstruction invoke) || !isLifecycleCall(invoke)) {
+            builder.with(element);
+            return;
+        }
+
+        // [plugin] -> [plugin], with the plugin and start time stored aside
+        int pluginSlot = builder.allocateLocal(TypeKind.REFERENCE);
+        int startSlot = builder.allocateLocal(TypeKind.LONG);
+        builder.dup();
+        builder.astore(pluginSlot);
+        builder.invokestatic(SYSTEM_CLASS, "nanoTime", NANO_TIME);
+        builder.lstore(startSlot);
+
+        builder.with(element);
+
+        builder.aload(pluginSlot);
+        builder.loadConstant(invoke.name().stringValue());
+        builder.lload(startSlot);
+        builder.invokestatic(BYTECODE_ENTRY_POINTS_CLASS, "recordPluginPhase", RECORD_PLUGIN_PHASE);
+    }
+
+    private static boolean hasLifecycleCalls(MethodModel method) {
+        return method.code()
+                .map((code) -> code.elementStream().anyMatch((element) ->
+                        element instanceof InvokeInstruction invoke && isLifecycleCall(invoke)))
+                .orElse(false);
+    }
+
+    private static boolean isLifecycleCall(InvokeInstruction invoke) {
+        return invoke.opcode() != Opcode.INVOKESTATIC
+                && LIFECYCLE_METHODS.contains(invoke.name().stringValue())
+                && invoke.type().equalsString("()V")
+                && invoke.owner().asInternalName().startsWith(PLUGIN_PACKAGE_INTERNAL);
+    }
+}
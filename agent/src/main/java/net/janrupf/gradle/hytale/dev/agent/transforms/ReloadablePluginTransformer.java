@@ -0,0 +1,114 @@
+package net.janrupf.gradle.hytale.dev.agent.transforms;
+
+import net.janrupf.gradle.hytale.dev.agent.BytecodeEntryPoints;
+import net.janrupf.gradle.hytale.dev.agent.loader.HytaleDevAgentClassTransformer;
+
+import java.lang.classfile.*;
+import java.lang.classfile.instruction.InvokeInstruction;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.ConstantDescs;
+import java.lang.constant.MethodTypeDesc;
+import java.util.Set;
+
+/**
+ * Transformer that makes the server's plugin package load classes of the reloadable classpath from its
+ * current generation.
+ * <p>
+ * The JVM remembers which class a loader returned for a name and never asks it again, so after the first
+ * load the plugin entry point would always resolve to the first generation. Instead, the reflective class
+ * lookups of the plugin package ({@code Class.forName} and {@code ClassLoader.loadClass}) are redirected
+ * to {@link BytecodeEntryPoints}, which asks the current generation loader directly and only falls back
+ * to the original lookup for other classes.
+ */
+public class ReloadablePluginTransformer implements HytaleDevAgentClassTransformer {
+    private static final String PLUGIN_PACKAGE = "com.hypixel.hytale.server.core.plugin";
+    private static final String PLUGIN_PACKAGE_INTERNAL = PLUGIN_PACKAGE.replace('.', '/') + "/";
+    private static final Set<String> JDK_CLASS_LOADERS = Set.of(
+            "java/lang/ClassLoader",
+            "java/security/SecureClassLoader",
+            "java/net/URLClassLoader"
+    );
+    private static final ClassDesc BYTECODE_ENTRY_POINTS_CLASS = ClassDesc.of(BytecodeEntryPoints.class.getName());
+    private static final ClassDesc CLASS_LOADER_CLASS = ClassDesc.of(ClassLoader.class.getName());
+    private static final MethodTypeDesc FOR_NAME = MethodTypeDesc.of(ConstantDescs.CD_Class, ConstantDescs.CD_String);
+    private static final MethodTypeDesc FOR_NAME_WITH_LOADER = MethodTypeDesc.of(
+            ConstantDescs.CD_Class,
+            ConstantDescs.CD_String,
+            ConstantDescs.CD_boolean,
+            CLASS_LOADER_CLASS
+    );
+    private static final MethodTypeDesc LOAD_CLASS = MethodTypeDesc.of(ConstantDescs.CD_Class, ConstantDescs.CD_String);
+    private static final MethodTypeDesc LOAD_CLASS_STATIC = MethodTypeDesc.of(
+            ConstantDescs.CD_Class,
+            CLASS_LOADER_CLASS,
+            ConstantDescs.CD_String
+    );
+
+    @Override
+    public Set<String> getTargetPackages() {
+        return Set.of(PLUGIN_PACKAGE);
+    }
+
+    @Override
+    public ClassTransform createTransform(String name, ClassModel classModel) {
+        boolean hasClassLookups = classModel.methods().stream()
+                .anyMatch(ReloadablePluginTransformer::hasClassLookups);
+
+        if (!hasClassLookups) {
+            return null;
+        }
+
+        return ClassTransform.transformingMethodBodies(
+                ReloadablePluginTransformer::hasClassLookups,
+                this::transformCodeElement
+        );
+    }
+
+    private void transformCodeElement(CodeBuilder builder, CodeElement element) {
+        if (!(element instanceof InvokeInstruction invoke)) {
+            builder.with(element);
+            return;
+        }
+
+        if (isForName(invoke)) {
+            // Same stack layout, only the owner changes
+            builder.invokestatic(BYTECODE_ENTRY_POINTS_CLASS, "forName", invoke.typeSymbol());
+        } else if (isLoadClass(invoke)) {
+            // [loader, name] -> [class], the receiver becomes the first argument
+            builder.invokestatic(BYTECODE_ENTRY_POINTS_CLASS, "loadClass", LOAD_CLASS_STATIC);
+        } else {
+            builder.with(element);
+        }
+    }
+
+    private static boolean hasClassLookups(MethodModel method) {
+        return method.code()
+                .map((code) -> code.elementStream().anyMatch((element) ->
+                        element instanceof InvokeInstruction invoke && (isForName(invoke) || isLoadClass(invoke))))
+                .orElse(false);
+    }
+
+    private static boolean isForName(InvokeInstruction invoke) {
+        if (invoke.opcode() != Opcode.INVOKESTATIC
+                || !invoke.owner().asInternalName().equals("java/lang/Class")
+                || !invoke.name().equalsString("forName")) {
+            return false;
+        }
+
+        var type = invoke.typeSymbol();
+        return type.equals(FOR_NAME) || type.equals(FOR_NAME_WITH_LOADER);
+    }
+
+    private static boolean isLoadClass(InvokeInstruction invoke) {
+        if (invoke.opcode() != Opcode.INVOKEVIRTUAL
+                || !invoke.name().equalsString("loadClass")
+                || !invoke.typeSymbol().equals(LOAD_CLASS)) {
+            return false;
+        }
+
+        // Only receivers known to be class loaders, anything else could not be passed as one
+        var owner = invoke.owner().asInternalName();
+        return JDK_CLASS_LOADERS.contains(owner)
+                || (owner.startsWith(PLUGIN_PACKAGE_INTERNAL) && owner.endsWith("ClassLoader"));
+    }
+}
@@ -0,0 +1,76 @@
+package net.janrupf.gradle.hytale.dev.agent.transforms;
+
+import net.janrupf.gradle.hytale.dev.agent.BytecodeEntryPoints;
+import net.janrupf.gradle.hytale.dev.agent.loader.HytaleDevAgentClassTransformer;
+import net.janrupf.gradle.hytale.dev.agent.trace.TimingProbeTransform;
+
+import java.lang.classfile.*;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.ConstantDescs;
+import java.lang.constant.MethodTypeDesc;
+import java.lang.reflect.AccessFlag;
+import java.util.Set;
+
+/**
+ * Transformer that times the tick method of the server's worlds.
+ * <p>
+ * The configured method is wrapped with a {@link TimingProbeTransform} reporting the receiver and
+ * the start time to {@link BytecodeEntryPoints#recordTick(Object, long)} whenever it returns or throws.
+ * All overloads of the method are wrapped.
+ */
+public class TickProfilerTransformer implements HytaleDevAgentClassTransformer {
+    private static final ClassDesc BYTECODE_ENTRY_POINTS_CLASS = ClassDesc.of(BytecodeEntryPoints.class.getName());
+    private static final MethodTypeDesc RECORD_TICK = MethodTypeDesc.of(
+            ConstantDescs.CD_void,
+            ConstantDescs.CD_Object,
+            ConstantDescs.CD_long
+    );
+
+    private final String targetClass;
+    private final String targetMethod;
+
+    /**
+     * Create a new tick profiler transformer.
+     *
+     * @param targetClass  the class declaring the tick method (e.g., "com.example.World")
+     * @param targetMethod the name of the tick method
+     */
+    public TickProfilerTransformer(String targetClass, String targetMethod) {
+        this.targetClass = targetClass;
+        this.targetMethod = targetMethod;
+    }
+
+    @Override
+    public Set<String> getTargetClasses() {
+        return Set.of(targetClass);
+    }
+
+    @Override
+    public ClassTransform createTransform(String name, ClassModel classModel) {
+        if (classModel.methods().stream().noneMatch((method) -> method.methodName().equalsString(targetMethod))) {
+            System.err.println("[HytaleDev] Tick method " + targetMethod + " not found in " + name + ", ticks are not profiled");
+            return null;
+        }
+
+        return (builder, element) -> {
+            if (element instanceof MethodModel method
+                    && method.methodName().equalsString(targetMethod)
+                    && method.code().isPresent()) {
+                boolean isStatic = method.flags().has(AccessFlag.STATIC);
+                builder.transformMethod(method, MethodTransform.transformingCode(
+                        new TimingProbeTransform((codeBuilder, startSlot) -> {
+                            if (isStatic) {
+                                codeBuilder.aconst_null();
+                            } else {
+                                codeBuilder.aload(0);
+                            }
+                            codeBuilder.lload(startSlot);
+                            codeBuilder.invokestatic(BYTECODE_ENTRY_POINTS_CLASS, "recordTick", RECORD_TICK);
+                        })
+                ));
+            } else {
+                builder.with(element);
+            }
+        };
+    }
+}
@@ -48,6 +48,9 @@ val serverJar = findServerJar()
 
 dependencies {
     implementation(project(":protocol"))
+
+    // Provided at runtime by the agent launching the server
+    compileOnly(project(":agent"))
     implementation("org.java-websocket:Java-WebSocket:1.5.4")
 
     if (serverJar != null) {
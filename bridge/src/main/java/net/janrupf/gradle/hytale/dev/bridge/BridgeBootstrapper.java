@@ -1,16 +1,39 @@
 package net.janrupf.gradle.hytale.dev.bridge;
 
+import net.janrupf.gradle.hytale.dev.agent.HytaleDevAgent;
+import net.janrupf.gradle.hytale.dev.agent.timeline.StartupTimeline;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Static initialization entry point called from bytecode injection.
  * <p>
  * This class is loaded reflectively by the agent after injecting a call
  * into HytaleLogger's static initializer. It provides early bridge
  * initialization before the main server code runs.
+ * <p>
+ * Initialization never waits for the IDE. Log records are captured from the
+ * first one on while a virtual thread connects, and are forwarded in order
+ * once the IDE requested logs. If the IDE can not be reached, the client keeps
+ * retrying in the background.
+ * <p>
+ * If the IDE offers a Unix domain socket through {@code HYTALE_DEV_BRIDGE_SOCKET},
+ * the bridge connects to it. Otherwise, or if the socket does not exist, it falls
+ * back to the WebSocket on {@code HYTALE_DEV_BRIDGE_PORT}.
+ * <p>
+ * If the run configures a journal, logs are recorded to it even without an IDE,
+ * and the client adds its events while it exists.
  */
 public final class BridgeBootstrapper {
+    private static final long CONNECT_TIMEOUT_SECONDS = 5;
+    private static final long DEFAULT_JOURNAL_MAX_MIB = 1024;
+
     private static volatile boolean initialized = false;
-    private static DevBridgeClient client;
-    private static LogSubscriber subscriber;
+    private static volatile DevBridgeClient client;
+    private static volatile RunJournal journal;
+    private static volatile RunJournalRecorder journalRecorder;
 
     private BridgeBootstrapper() {
         // Prevent instantiation
@@ -22,63 +45,140 @@ public final class BridgeBootstrapper {
      * This method is safe to call multiple times - subsequent calls will be no-ops.
      * If the required environment variables are not set, initialization is skipped silently.
      */
-    public static void initialize() {
+    public static synchronized void initialize() {
         if (initialized) {
             return;
         }
         initialized = true;
+        openJournal();
 
         // Check for bridge environment variables
         String port = System.getenv("HYTALE_DEV_BRIDGE_PORT");
+        String socket = System.getenv("HYTALE_DEV_BRIDGE_SOCKET");
         String token = System.getenv("HYTALE_DEV_BRIDGE_TOKEN");
 
-        if (port == null || token == null) {
+        if ((port == null && socket == null) || token == null) {
             // Bridge not configured, skip initialization silently
             return;
         }
 
         try {
-            int portNumber = Integer.parseInt(port);
+            String endpoint;
+            BridgeTransport.Factory transportFactory;
+
+            if (socket != null && (port == null || Files.exists(Path.of(socket)))) {
+                Path socketPath = Path.of(socket);
+                endpoint = "socket " + socketPath;
+                transportFactory = listener -> new UnixSocketTransport(socketPath, token, listener);
+            } else {
+                int portNumber = Integer.parseInt(port);
+                endpoint = "port " + portNumber;
+                transportFactory = listener -> new WebSocketTransport(portNumber, token, listener);
+            }
+
+            // Capture logs right away, they are replayed once the IDE asks for them
+            DevBridgeClient bridgeClient = new DevBridgeClient(transportFactory);
+            bridgeClient.setJournal(journal);
+            bridgeClient.setEarlyLogCapture(EarlyLogCapture.start(LogSubscriber.readBufferCapacity()));
+            client = bridgeClient;
+
+            Thread.ofVirtual().name("HytaleDev-BridgeConnect").start(() -> connect(bridgeClient, endpoint));
+        } catch (NumberFormatException e) {
+            System.err.println("[HytaleDev] Invalid bridge port number: " + port);
+        } catch (Exception e) {
+            System.err.println("[HytaleDev] Failed to initialize bridge: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static void openJournal() {
+        String directory = HytaleDevAgent.getBridgeProperty("journal");
+        if (directory == null) {
+            return;
+        }
+
+        try {
+            RunJournal opened = RunJournal.open(Path.of(directory), readJournalMaxBytes());
+            RunJournalRecorder recorder = new RunJournalRecorder(opened);
+            recorder.start();
 
-            // Initialize bridge client and log subscriber
-            client = new DevBridgeClient(portNumber, token);
-            subscriber = new LogSubscriber(client);
+            journal = opened;
+            journalRecorder = recorder;
+        } catch (Exception e) {
+            System.err.println("[HytaleDev] Failed to open run journal: " + e.getMessage());
+        }
+    }
 
-            // Connect synchronously (wait for connection before subscribing to logs)
-            // This ensures we don't miss early logs while connection is being established
-            boolean connected = client.connectBlocking(5, java.util.concurrent.TimeUnit.SECONDS);
+    private static long readJournalMaxBytes() {
+        String value = HytaleDevAgent.getBridgeProperty("journalMaxSize");
+        long maxMiB = DEFAULT_JOURNAL_MAX_MIB;
+        if (value != null) {
+            try {
+                maxMiB = Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                System.err.println("[HytaleDev] Invalid journal max size " + value + ", using " + maxMiB + " MiB");
+            }
+        }
+
+        return maxMiB * 1024 * 1024;
+    }
+
+    private static void connect(DevBridgeClient bridgeClient, String endpoint) {
+        long start = System.nanoTime();
+        try {
+            boolean connected = bridgeClient.connectBlocking(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
             if (!connected) {
-                System.err.println("[HytaleDev] Failed to connect to IDE bridge (timeout)");
+                // Early logs stay captured, the IDE may still come up
+                System.err.println("[HytaleDev] Failed to connect to IDE bridge, retrying in the background");
+                bridgeClient.scheduleReconnect();
                 return;
             }
 
-            // Now subscribe to logs - connection is established
-            subscriber.subscribe();
+            if (!bridgeClient.awaitIdeHello(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                System.err.println("[HytaleDev] IDE did not send its hello (timeout)");
+                return;
+            }
 
-            System.out.println("[HytaleDev] Bridge initialized on port " + portNumber);
-        } catch (NumberFormatException e) {
-            System.err.println("[HytaleDev] Invalid bridge port number: " + port);
+            StartupTimeline.get().record("bridge", "connect", start);
+            System.out.println("[HytaleDev] Bridge initialized on " + endpoint);
         } catch (InterruptedException e) {
             System.err.println("[HytaleDev] Bridge connection interrupted");
+            bridgeClient.discardEarlyLogs();
             Thread.currentThread().interrupt();
         } catch (Exception e) {
-            System.err.println("[HytaleDev] Failed to initialize bridge: " + e.getMessage());
-            e.printStackTrace();
+            System.err.println("[HytaleDev] Failed to connect bridge: " + e.getMessage());
+            bridgeClient.scheduleReconnect();
         }
     }
 
+    /**
+     * The client created by {@link #initialize()}.
+     *
+     * @return the client, or null if the bridge is not configured
+     */
+    public static DevBridgeClient getClient() {
+        return client;
+    }
+
     /**
      * Shutdown the bridge gracefully.
      * <p>
      * This method can be called during server shutdown to clean up resources.
      */
     public static void shutdown() {
-        if (client != null) {
+        DevBridgeClient bridgeClient = client;
+        if (bridgeClient != null) {
             try {
-                client.close();
+                bridgeClient.shutdown();
             } catch (Exception e) {
                 System.err.println("[HytaleDev] Failed to close bridge client: " + e.getMessage());
             }
         }
+
+        RunJournalRecorder recorder = journalRecorder;
+        if (recorder != null) {
+            recorder.stop();
+            journal.close();
+        }
     }
 }
@@ -0,0 +1,98 @@
+package net.janrupf.gradle.hytale.dev.bridge;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Carries serialized protocol messages between the bridge and the IDE.
+ * <p>
+ * A transport only moves whole frames, each holding exactly one message. Sequencing, replaying and
+ * reconnect scheduling are left to the {@link DevBridgeClient}, which receives everything through a
+ * {@link Listener}.
+ */
+public interface BridgeTransport {
+    /**
+     * Connect to the IDE, waiting at most the given time.
+     * <p>
+     * {@link Listener#onOpen()} has been called once this returns true.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of the timeout
+     * @return true if connected
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean connect(long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * Drop the current connection, if any, and connect again.
+     *
+     * @return true if connected
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean reconnect() throws InterruptedException;
+
+    /**
+     * Send a single frame.
+     *
+     * @param frame the serialized message
+     * @throws IOException if the transport is not connected or the frame could not be written
+     */
+    void send(byte[] frame) throws IOException;
+
+    /**
+     * Whether the transport is currently connected.
+     *
+     * @return true if connected
+     */
+    boolean isOpen();
+
+    /**
+     * Close the connection, {@link Listener#onClose(String)} is still called.
+     */
+    void close();
+
+    /**
+     * Receives the events of a transport.
+     */
+    interface Listener {
+        /**
+         * Called when a connection has been established.
+         */
+        void onOpen();
+
+        /**
+         * Called for every frame received from the IDE.
+         *
+         * @param frame the serialized message
+         */
+        void onFrame(byte[] frame);
+
+        /**
+         * Called when a connection was closed or could not be established.
+         *
+         * @param reason a human readable reason
+         */
+        void onClose(String reason);
+
+        /**
+         * Called when the transport encountered an error.
+         *
+         * @param error the error
+         */
+        void onError(Exception error);
+    }
+
+    /**
+     * Creates the transport of a client.
+     */
+    @FunctionalInterface
+    interface Factory {
+        /**
+         * Create a new, not yet connected transport.
+         *
+         * @param listener the listener to report to
+         * @return the transport
+         */
+        BridgeTransport create(Listener listener);
+    }
+}
@@ -9,32 +9,65 @@ import com.hypixel.hytale.server.core.command.system.arguments.types.ArgumentTyp
 import net.janrupf.gradle.hytale.dev.protocol.HytaleBridgeProto.ArgumentInfo;
 import net.janrupf.gradle.hytale.dev.protocol.HytaleBridgeProto.CommandInfo;
 import net.janrupf.gradle.hytale.dev.protocol.HytaleBridgeProto.CommandRegistryResponse;
+import net.janrupf.gradle.hytale.dev.protocol.HytaleBridgeProto.GetCommandsRequest;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.lang.reflect.Field;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
 import java.util.logging.Level;
 
 /**
  * Extracts command metadata from Hytale's CommandManager and converts
  * it to protobuf format for IDE consumption.
+ * <p>
+ * Extracted commands are cached per command instance, along with a cheap
+ * structural fingerprint (names, permissions and the number of arguments and
+ * subcommands). A command whose fingerprint changed, or which was registered
+ * again, for example by a reloaded plugin, is extracted again. Every registry carries a version hash, and the IDE can ask
+ * for only the commands added, changed or removed since a version it has.
  */
 public class CommandMetadataExtractor {
-    private static final CommandMetadataExtractor INSTANCE = new CommandMetadataExtractor();
     private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+    private static final VarHandle OPTIONAL_ARGUMENTS = findOptionalArguments();
+    private static final CommandMetadataExtractor INSTANCE = new CommandMetadataExtractor();
+
+    // Registry versions the IDE can request changes since
+    private static final int MAX_SNAPSHOTS = 8;
+
+    private final Map<AbstractCommand, CachedCommand> cache;
+    private final Map<Long, Map<String, CachedCommand>> snapshots;
 
     public static CommandMetadataExtractor getInstance() {
         return INSTANCE;
     }
 
     private CommandMetadataExtractor() {
+        this.cache = new WeakHashMap<>();
+        this.snapshots = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Map<String, CachedCommand>> eldest) {
+                return size() > MAX_SNAPSHOTS;
+            }
+        };
+    }
+
+    private record CachedCommand(CommandInfo info, long hash, long fingerprint) {
     }
 
     /**
-     * Extract full command registry from CommandManager.
+     * Extract the command registry from CommandManager.
+     * <p>
+     * If the request names a version which is still known, only the commands
+     * added, changed or removed since are included.
      *
-     * @return the command registry response containing all registered commands
+     * @param request the request of the IDE
+     * @return the command registry response
      */
-    public CommandRegistryResponse extractFullRegistry() {
+    public synchronized CommandRegistryResponse extractRegistry(GetCommandsRequest request) {
         CommandManager manager = CommandManager.get();
         if (manager == null) {
             LOGGER.at(Level.WARNING).log("CommandManager not available");
@@ -42,20 +75,61 @@ public class CommandMetadataExtractor {
         }
 
         Map<String, AbstractCommand> commands = manager.getCommandRegistration();
-        CommandRegistryResponse.Builder builder = CommandRegistryResponse.newBuilder();
+        Map<String, CachedCommand> current = new LinkedHashMap<>();
+        long version = 0;
+        int extracted = 0;
 
         for (AbstractCommand cmd : commands.values()) {
+            CachedCommand cached = cache.get(cmd);
             try {
-                CommandInfo info = extractCommand(cmd);
-                if (info != null) {
-                    builder.addCommands(info);
+                // Subcommands, arguments or permissions may be added after registration
+                long fingerprint = fingerprint(cmd);
+                if (cached == null || cached.fingerprint() != fingerprint) {
+                    CommandInfo info = extractCommand(cmd);
+                    if (info == null) {
+                        continue;
+                    }
+
+                    cached = new CachedCommand(info, hash(info), fingerprint);
+                    cache.put(cmd, cached);
+                    extracted++;
                 }
             } catch (Exception e) {
                 LOGGER.at(Level.WARNING).withCause(e).log("Failed to extract command: %s", cmd.getName());
+                continue;
+            }
+
+            if (current.putIfAbsent(cached.info().getName(), cached) == null) {
+                // Independent of the registration order
+                version += cached.hash();
+            }
+        }
+
+        Map<String, CachedCommand> previous = request.hasSinceVersion()
+                ? snapshots.get(request.getSinceVersion())
+                : null;
+        snapshots.put(version, current);
+
+        CommandRegistryResponse.Builder builder = CommandRegistryResponse.newBuilder()
+                .setVersion(version)
+                .setIncremental(previous != null);
+
+        for (CachedCommand cached : current.values()) {
+            CachedCommand old = previous != null ? previous.get(cached.info().getName()) : null;
+            if (old == null || old.hash() != cached.hash()) {
+                builder.addCommands(cached.info());
+            }
+        }
+
+        if (previous != null) {
+            for (String name : previous.keySet()) {
+                if (!current.containsKey(name)) {
+                    builder.addRemovedCommands(name);
+                }
             }
         }
 
-        LOGGER.at(Level.FINE).log("Extracted %d commands", builder.getCommandsCount());
+        LOGGER.at(Level.FINE).log("Extracted %d of %d commands, %d cached", extracted, current.size(), current.size() - extracted);
         return builder.build();
     }
 
@@ -103,15 +177,17 @@ public class CommandMetadataExtractor {
     }
 
     /**
-     * Extract optional arguments using reflection.
+     * Extract optional arguments through the cached field accessor since the field is private.
      */
     private void extractOptionalArguments(AbstractCommand cmd, CommandInfo.Builder builder) {
+        if (OPTIONAL_ARGUMENTS == null) {
+            return;
+        }
+
         try {
-            Field field = AbstractCommand.class.getDeclaredField("optionalArguments");
-            field.setAccessible(true);
             @SuppressWarnings("unchecked")
             Map<String, AbstractOptionalArg<?, ?>> optArgs =
-                    (Map<String, AbstractOptionalArg<?, ?>>) field.get(cmd);
+                    (Map<String, AbstractOptionalArg<?, ?>>) OPTIONAL_ARGUMENTS.get(cmd);
 
             for (AbstractOptionalArg<?, ?> arg : optArgs.values()) {
                 builder.addOptionalArgs(extractOptionalArgument(arg));
@@ -175,4 +251,56 @@ public class CommandMetadataExtractor {
                     .replace("Argument", "");
         }
     }
+
+    /**
+     * FNV-1a hash of the serialized command, stable across requests unlike the identity of the info.
+     */
+    private static long hash(CommandInfo info) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : info.toByteArray()) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Fingerprint of everything extracted from a command which can change after registration, without
+     * building any protobuf.
+     */
+    private static long fingerprint(AbstractCommand cmd) {
+        long fingerprint = Objects.hash(cmd.getName(), cmd.getDescription(), cmd.getPermission());
+
+        for (String alias : cmd.getAliases()) {
+            fingerprint = fingerprint * 31 + Objects.hashCode(alias);
+        }
+
+        for (RequiredArg<?> arg : cmd.getRequiredArguments()) {
+            fingerprint = fingerprint * 31 + Objects.hashCode(arg.getName());
+        }
+
+        if (OPTIONAL_ARGUMENTS != null) {
+            Map<?, ?> optArgs = (Map<?, ?>) OPTIONAL_ARGUMENTS.get(cmd);
+            fingerprint = fingerprint * 31 + (optArgs != null ? optArgs.size() : -1);
+        }
+
+        var subCommands = cmd.getSubCommands();
+        fingerprint = fingerprint * 31 + subCommands.size();
+        for (AbstractCommand sub : subCommands.values()) {
+            fingerprint = fingerprint * 31 + fingerprint(sub);
+        }
+
+        return fingerprint;
+    }
+
+    private static VarHandle findOptionalArguments() {
+        try {
+            Field field = AbstractCommand.class.getDeclaredField("optionalArguments");
+            return MethodHandles.privateLookupIn(AbstractCommand.class, MethodHandles.lookup())
+                    .unreflectVarHandle(field);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOGGER.at(Level.WARNING).withCause(e).log("Optional command arguments are not available");
+            return null;
+        }
+    }
 }
@@ -1,78 +1,152 @@
 package net.janrupf.gradle.hytale.dev.bridge;
 
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.MessageOrBuilder;
+import com.google.protobuf.TextFormat;
 import com.hypixel.hytale.logger.HytaleLogger;
 import com.hypixel.hytale.server.core.command.system.CommandManager;
 import com.hypixel.hytale.server.core.console.ConsoleSender;
 import com.hypixel.hytale.server.core.modules.i18n.I18nModule;
+import net.janrupf.gradle.hytale.dev.agent.HytaleDevAgent;
 import net.janrupf.gradle.hytale.dev.protocol.HytaleBridgeProto.*;
-import org.java_websocket.client.WebSocketClient;
-import org.java_websocket.handshake.ServerHandshake;
 
-import java.net.URI;
-import java.nio.ByteBuffer;
-import java.util.Collections;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 
 /**
- * WebSocket client that connects to the IntelliJ IDE's Dev Bridge server.
+ * Client that connects to the IntelliJ IDE's Dev Bridge server.
  * <p>
  * Handles the bidirectional protocol communication between the running
  * Hytale server and the IDE for features like log forwarding, command
- * autocomplete, and asset path synchronization.
+ * autocomplete, and asset path synchronization. How the messages travel is up to the
+ * {@link BridgeTransport}.
+ * <p>
+ * Features are only enabled once the IDE's hello names them in its requested capabilities, an IDE
+ * which requests nothing gets everything available. Log records are not even subscribed to unless
+ * the IDE asked for logs.
+ * <p>
+ * Every message carries a sequence number, and logs and events are kept in a {@link ReplayWindow}.
+ * When the connection drops the client reconnects with a growing delay, meanwhile logs and events
+ * keep going into the window. An IDE which names the stream and the last sequence it received in
+ * its hello gets the missed messages instead of a new stream.
  */
-public class DevBridgeClient extends WebSocketClient {
+public class DevBridgeClient implements BridgeTransport.Listener {
     private static final int PROTOCOL_VERSION = 1;
     private static final String AGENT_VERSION = "0.1.0";
     private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
-
-    private final String authToken;
+    private static final int DEFAULT_ALLOCATION_SITES = 50;
+    private static final int REPLAY_WINDOW_MESSAGES = 4096;
+    private static final long REPLAY_WINDOW_BYTES = 16L * 1024 * 1024;
+    private static final long INITIAL_RECONNECT_DELAY_MILLIS = 1000;
+    private static final long MAX_RECONNECT_DELAY_MILLIS = 30_000;
+
+    private final BridgeTransport transport;
+    private final CountDownLatch ideHelloReceived = new CountDownLatch(1);
+    private final long streamId = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+    private final Object streamLock = new Object();
+    private final ReplayWindow replayWindow = new ReplayWindow(REPLAY_WINDOW_MESSAGES, REPLAY_WINDOW_BYTES);
+    private final AtomicBoolean reconnecting = new AtomicBoolean();
     private volatile boolean connected = false;
+    private volatile boolean helloHandled = false;
+    private volatile boolean shuttingDown = false;
+    private boolean streaming = false;
+    private boolean logStreamRestarted = false;
+    private volatile Set<String> enabledCapabilities = Set.of();
+    private volatile LogSubscriber logSubscriber;
+    private volatile EarlyLogCapture earlyLogCapture;
+    private volatile RunJournal journal;
 
-    public DevBridgeClient(int port, String authToken) {
-        super(URI.create("ws://localhost:" + port + "/hytale-dev-bridge"),
-                createHeaders(authToken));
-        this.authToken = authToken;
-        this.setConnectionLostTimeout(30);
+    /**
+     * Create a new, not yet connected client.
+     *
+     * @param transportFactory creates the transport to the IDE
+     */
+    public DevBridgeClient(BridgeTransport.Factory transportFactory) {
+        this.transport = transportFactory.create(this);
     }
 
-    private static Map<String, String> createHeaders(String token) {
-        return Collections.singletonMap("Authorization", "Bearer " + token);
+    /**
+     * Connect to the IDE, waiting at most the given time.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of the timeout
+     * @return true if connected
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean connectBlocking(long timeout, TimeUnit unit) throws InterruptedException {
+        return transport.connect(timeout, unit);
     }
 
     @Override
-    public void onOpen(ServerHandshake handshakedata) {
+    public void onOpen() {
         connected = true;
+        helloHandled = false;
+
+        long lastSequence;
+        synchronized (streamLock) {
+            lastSequence = replayWindow.getLastSequence();
+        }
 
         // Send hello message
         AgentHello hello = AgentHello.newBuilder()
                 .setProtocolVersion(PROTOCOL_VERSION)
                 .setAgentVersion(AGENT_VERSION)
-                .addCapabilities("logs")
-                .addCapabilities("commands")
-                .addCapabilities("assets")
-                .addCapabilities("translate")
+                .addAllCapabilities(getAvailableCapabilities())
+                .setStreamId(streamId)
+                .setLastSequence(lastSequence)
                 .build();
 
         AgentMessage message = AgentMessage.newBuilder()
                 .setHello(hello)
                 .build();
 
-        send(message.toByteArray());
+        sendFrame(message.toByteArray());
     }
 
-    @Override
-    public void onMessage(String message) {
-        LOGGER.at(Level.WARNING).log("Received unexpected text message: %s", message);
+    private List<String> getAvailableCapabilities() {
+        List<String> capabilities = new ArrayList<>(List.of(
+                "logs", "log_batch", "structured_throwables", "string_dictionary", "commands", "assets", "translate"
+        ));
+
+        if (HotReloadHandler.getInstance().isAvailable()) {
+            capabilities.add("hot_reload");
+        }
+
+        if (HytaleDevAgent.getHotswapper() != null) {
+            capabilities.add("hotswap");
+        }
+
+        if (MethodTraceHandler.getInstance().isAvailable()) {
+            capabilities.add("method_trace");
+        }
+
+        if (HytaleDevAgent.getAllocationProfiler() != null) {
+            capabilities.add("allocation_profile");
+        }
+
+        if (TickStatsHandler.getInstance().isAvailable()) {
+            capabilities.add("tick_stats");
+        }
+
+        capabilities.add("startup_timeline");
+        return capabilities;
     }
 
     @Override
-    public void onMessage(ByteBuffer bytes) {
+    public void onFrame(byte[] frame) {
         try {
-            byte[] data = new byte[bytes.remaining()];
-            bytes.get(data);
-            IdeMessage message = IdeMessage.parseFrom(data);
+            IdeMessage message = IdeMessage.parseFrom(frame);
             handleIdeMessage(message);
         } catch (Exception e) {
             LOGGER.at(Level.WARNING).withCause(e).log("Failed to parse IDE message");
@@ -80,6 +154,12 @@ public class DevBridgeClient extends WebSocketClient {
     }
 
     private void handleIdeMessage(IdeMessage message) {
+        String capability = requiredCapability(message.getPayloadCase());
+        if (capability != null && !isCapabilityEnabled(capability)) {
+            LOGGER.at(Level.WARNING).log("Ignoring %s, the IDE did not request %s", message.getPayloadCase(), capability);
+            return;
+        }
+
         switch (message.getPayloadCase()) {
             case HELLO:
                 handleIdeHello(message.getHello());
@@ -96,32 +176,235 @@ public class DevBridgeClient extends WebSocketClient {
             case TRANSLATE:
                 handleTranslateRequest(message.getTranslate());
                 break;
+            case RELOAD_PLUGIN:
+                HotReloadHandler.getInstance().reload();
+                break;
+            case HOTSWAP:
+                handleHotswap(message.getHotswap());
+                break;
+            case START_TRACE:
+                handleStartTrace(message.getStartTrace());
+                break;
+            case STOP_TRACE:
+                MethodTraceHandler.getInstance().stop(message.getStopTrace());
+                break;
+            case GET_ALLOCATION_SITES:
+                handleGetAllocationSites(message.getGetAllocationSites());
+                break;
+            case UPDATE_LOG_FILTER:
+                handleUpdateLogFilter(message.getUpdateLogFilter());
+                break;
             default:
                 LOGGER.at(Level.WARNING).log("Received unknown IDE message type: %s", message.getPayloadCase());
                 break;
         }
     }
 
+    private static String requiredCapability(IdeMessage.PayloadCase payload) {
+        return switch (payload) {
+            case GET_COMMANDS, GET_SUGGESTIONS, EXECUTE_COMMAND -> "commands";
+            case TRANSLATE -> "translate";
+            case RELOAD_PLUGIN -> "hot_reload";
+            case HOTSWAP -> "hotswap";
+            case START_TRACE, STOP_TRACE -> "method_trace";
+            case GET_ALLOCATION_SITES -> "allocation_profile";
+            case UPDATE_LOG_FILTER -> "logs";
+            default -> null;
+        };
+    }
+
     private void handleIdeHello(IdeHello hello) {
         LOGGER.at(Level.INFO).log("IDE connected: version %s", hello.getPluginVersion());
+
+        if (helloHandled) {
+            LOGGER.at(Level.WARNING).log("Ignoring repeated IDE hello, send an UpdateLogFilterRequest to change the log filter");
+            return;
+        }
+        helloHandled = true;
+
+        Set<String> enabled = new HashSet<>(getAvailableCapabilities());
+        if (hello.getRequestedCapabilitiesCount() > 0) {
+            // Older IDE plugins request nothing and get everything
+            enabled.retainAll(hello.getRequestedCapabilitiesList());
+        }
+        enabledCapabilities = Set.copyOf(enabled);
+        LOGGER.at(Level.FINE).log("Enabled capabilities: %s", enabled);
+
+        boolean resumed = resumeStream(hello);
+        if (resumed) {
+            LOGGER.at(Level.INFO).log("Resumed stream after message %d", hello.getLastAcknowledgedSequence());
+        }
+
+        applyLogCapability(hello, enabled.contains("logs"));
+
+        if (enabled.contains("hot_reload")) {
+            HotReloadHandler.getInstance().addClient(this);
+        } else {
+            HotReloadHandler.getInstance().removeClient(this);
+        }
+
+        if (enabled.contains("method_trace")) {
+            MethodTraceHandler.getInstance().addClient(this);
+        }
+
+        if (enabled.contains("tick_stats")) {
+            TickStatsHandler.getInstance().addClient(this);
+        } else {
+            TickStatsHandler.getInstance().removeClient(this);
+        }
+
+        if (!resumed || !enabled.contains("startup_timeline")) {
+            // A new stream needs the completed timeline again
+            StartupTimelineHandler.getInstance().removeClient(this);
+        }
+
+        if (enabled.contains("startup_timeline")) {
+            // A completed timeline is sent right away
+            StartupTimelineHandler.getInstance().addClient(this);
+        }
+
+        ideHelloReceived.countDown();
+    }
+
+    /**
+     * Resume the stream the IDE names in its hello, or start a new one if that is not possible.
+     *
+     * @param hello the hello of the IDE
+     * @return true if the stream was resumed
+     */
+    private boolean resumeStream(IdeHello hello) {
+        synchronized (streamLock) {
+            List<byte[]> replay = hello.getStreamId() == streamId
+                    ? replayWindow.resumeAfter(hello.getLastAcknowledgedSequence())
+                    : null;
+            boolean resumed = replay != null;
+
+            if (!resumed) {
+                // A restarted IDE, or one which missed evicted messages, still gets everything kept
+                prepareFreshReplay();
+                replay = replayWindow.retained();
+                logStreamRestarted = true;
+            }
+
+            AgentMessage status = AgentMessage.newBuilder()
+                    .setStreamStatus(StreamStatus.newBuilder()
+                            .setResumed(resumed)
+                            .setStreamId(streamId))
+                    .build();
+            sendFrame(status.toByteArray());
+
+            for (byte[] data : replay) {
+                sendFrame(data);
+            }
+
+            streaming = true;
+            return resumed;
+        }
+    }
+
+    /**
+     * Make the kept log batches understandable for a receiver which knows no string or trace yet.
+     * <p>
+     * The rewritten batches stay in the window, so later resumes send them as replayed now.
+     */
+    private void prepareFreshReplay() {
+        LogSubscriber subscriber = logSubscriber;
+        if (subscriber == null) {
+            return;
+        }
+
+        List<byte[]> messages = replayWindow.retained();
+        List<AgentMessage.Builder> parsed = new ArrayList<>(messages.size());
+        List<LogBatch.Builder> batches = new ArrayList<>();
+
+        try {
+            for (byte[] data : messages) {
+                AgentMessage.Builder message = AgentMessage.parseFrom(data).toBuilder();
+                if (message.getPayloadCase() == AgentMessage.PayloadCase.LOG_BATCH) {
+                    batches.add(message.getLogBatchBuilder());
+                }
+                parsed.add(message);
+            }
+        } catch (InvalidProtocolBufferException e) {
+            // Serialized by ourselves, and logging here could block on the stream lock we hold
+            return;
+        }
+
+        if (batches.isEmpty()) {
+            return;
+        }
+
+        subscriber.restartReplay(batches);
+
+        List<byte[]> rewritten = new ArrayList<>(parsed.size());
+        for (AgentMessage.Builder message : parsed) {
+            rewritten.add(message.build().toByteArray());
+        }
+        replayWindow.replaceRetained(rewritten);
+    }
+
+    private void applyLogCapability(IdeHello hello, boolean enabled) {
+        LogSubscriber subscriber = logSubscriber;
+
+        if (!enabled) {
+            discardEarlyLogs();
+            if (subscriber != null) {
+                subscriber.unsubscribe();
+                logSubscriber = null;
+            }
+            return;
+        }
+
+        if (subscriber == null) {
+            // Opt-in even for IDEs requesting nothing, older IDE plugins only understand the plain fields.
+            // The encoding stays the same for the lifetime of the subscriber, reconnects keep it.
+            List<String> requested = hello.getRequestedCapabilitiesList();
+            subscriber = new LogSubscriber(
+                    this,
+                    requested.contains("structured_throwables"),
+                    requested.contains("string_dictionary")
+            );
+        }
+
+        subscriber.setFilter(hello.hasLogFilter()
+                ? LogRecordFilter.fromProto(hello.getLogFilter())
+                : LogRecordFilter.ACCEPT_ALL);
+
+        if (logSubscriber == null) {
+            EarlyLogCapture capture = takeEarlyLogCapture();
+            if (capture != null) {
+                subscriber.subscribe(capture);
+            } else {
+                subscriber.subscribe();
+            }
+            logSubscriber = subscriber;
+        }
+    }
+
+    private void handleUpdateLogFilter(UpdateLogFilterRequest request) {
+        LogSubscriber subscriber = logSubscriber;
+        if (subscriber != null) {
+            subscriber.setFilter(LogRecordFilter.fromProto(request.getFilter()));
+        }
     }
 
     private void handleGetCommands(GetCommandsRequest request) {
         LOGGER.at(Level.FINE).log("Extracting command registry...");
-        CommandRegistryResponse response = CommandMetadataExtractor.getInstance().extractFullRegistry();
-        AgentMessage message = AgentMessage.newBuilder()
-                .setCommandRegistry(response)
-                .build();
-        send(message.toByteArray());
-        LOGGER.at(Level.INFO).log("Sent %d commands to IDE", response.getCommandsCount());
+        CommandRegistryResponse response = CommandMetadataExtractor.getInstance().extractRegistry(request);
+        sendMessage(AgentMessage.newBuilder()
+                .setCommandRegistry(response));
+        if (response.getIncremental()) {
+            LOGGER.at(Level.INFO).log("Sent %d changed and %d removed commands to IDE",
+                    response.getCommandsCount(), response.getRemovedCommandsCount());
+        } else {
+            LOGGER.at(Level.INFO).log("Sent %d commands to IDE", response.getCommandsCount());
+        }
     }
 
     private void handleGetSuggestions(GetSuggestionsRequest request) {
         SuggestionsResponse response = SuggestionHandler.getInstance().getSuggestions(request);
-        AgentMessage message = AgentMessage.newBuilder()
-                .setSuggestions(response)
-                .build();
-        send(message.toByteArray());
+        sendMessage(AgentMessage.newBuilder()
+                .setSuggestions(response));
     }
 
     private void handleExecuteCommand(ExecuteCommandRequest request) {
@@ -146,16 +429,25 @@ public class DevBridgeClient extends WebSocketClient {
             }
         }
 
-        AgentMessage message = AgentMessage.newBuilder()
-                .setTranslateResponse(builder.build())
-                .build();
-        send(message.toByteArray());
+        sendMessage(AgentMessage.newBuilder()
+                .setTranslateResponse(builder.build()));
     }
 
     @Override
-    public void onClose(int code, String reason, boolean remote) {
+    public void onClose(String reason) {
         connected = false;
+        synchronized (streamLock) {
+            streaming = false;
+        }
+
+        // Traces slow the server down, only keep them while someone is watching. Logs and events
+        // keep going into the replay window until the IDE is back.
+        MethodTraceHandler.getInstance().removeClient(this);
         LOGGER.at(Level.INFO).log("Connection closed: %s", reason);
+
+        if (!shuttingDown) {
+            scheduleReconnect();
+        }
     }
 
     @Override
@@ -164,18 +456,195 @@ public class DevBridgeClient extends WebSocketClient {
     }
 
     /**
-     * Send a log event to the IDE.
+     * Send a batch of log events to the IDE.
      *
-     * @param logEvent the log event to send
+     * @param logBatch      the batch to send
+     * @param restartStream called with the batch first if it is the first one of a new stream, has to
+     *                      define everything the events of the batch reference
+     * @return the sequence number of the batch
      */
-    public void sendLogEvent(LogEvent logEvent) {
-        if (!connected) return;
+    public long sendLogBatch(LogBatch.Builder logBatch, Consumer<LogBatch.Builder> restartStream) {
+        synchronized (streamLock) {
+            if (logStreamRestarted) {
+                restartStream.accept(logBatch);
+                logStreamRestarted = false;
+            }
 
-        AgentMessage message = AgentMessage.newBuilder()
-                .setLogEvent(logEvent)
+            sendMessage(AgentMessage.newBuilder()
+                    .setLogBatch(logBatch));
+
+            // Log batches are always kept, sendMessage just assigned the latest sequence number to it
+            return replayWindow.getLastSequence();
+        }
+    }
+
+    /**
+     * The sequence number of the oldest message which may still be replayed.
+     * <p>
+     * Everything before it has been evicted from the replay window and is never sent again.
+     *
+     * @return the sequence number of the oldest kept message
+     */
+    public long getOldestReplayableSequence() {
+        synchronized (streamLock) {
+            return replayWindow.getOldestSequence();
+        }
+    }
+
+    private void sendMessage(AgentMessage.Builder message) {
+        boolean replayable = isReplayable(message.getPayloadCase());
+
+        synchronized (streamLock) {
+            if (!streaming && !replayable) {
+                // Replies only make sense on the connection they were requested on
+                return;
+            }
+
+            long sequence = replayWindow.nextSequence();
+            AgentMessage built = message.setSequence(sequence).build();
+            byte[] data = built.toByteArray();
+            if (replayable) {
+                replayWindow.add(sequence, data);
+                journalEvent(built);
+            }
+
+            if (streaming) {
+                sendFrame(data);
+            }
+        }
+    }
+
+    private void sendFrame(byte[] data) {
+        try {
+            transport.send(data);
+        } catch (IOException e) {
+            // Closed concurrently, kept messages are replayed once the IDE is back
+        }
+    }
+
+    private void journalEvent(AgentMessage message) {
+        RunJournal target = journal;
+        AgentMessage.PayloadCase payload = message.getPayloadCase();
+        if (target == null || payload == AgentMessage.PayloadCase.LOG_BATCH || payload == AgentMessage.PayloadCase.LOG_EVENT) {
+            // Logs are recorded by the RunJournalRecorder, with or without an IDE
+            return;
+        }
+
+        var field = AgentMessage.getDescriptor().findFieldByNumber(payload.getNumber());
+        target.appendEvent(
+                System.currentTimeMillis(),
+                payload.name().toLowerCase(Locale.ROOT),
+                TextFormat.printer().shortDebugString((MessageOrBuilder) message.getField(field))
+        );
+    }
+
+    private static boolean isReplayable(AgentMessage.PayloadCase payload) {
+        return switch (payload) {
+            case LOG_EVENT, LOG_BATCH, ASSET_PATHS, SERVER_STATE, PLUGIN_RELOADED, TRACE_SUMMARY, TICK_STATS,
+                 STARTUP_TIMELINE -> true;
+            default -> false;
+        };
+    }
+
+    private void handleHotswap(HotswapRequest request) {
+        var hotswapper = HytaleDevAgent.getHotswapper();
+        HotswapResult response;
+
+        if (hotswapper == null) {
+            response = HotswapResult.newBuilder()
+                    .setSuccess(false)
+                    .setMessage("Hotswap is not enabled for this run")
+                    .build();
+        } else {
+            var classes = new HashMap<String, byte[]>();
+            for (ClassDefinition definition : request.getClassesList()) {
+                classes.put(definition.getName(), definition.getBytecode().toByteArray());
+            }
+
+            var result = hotswapper.redefine(classes);
+            LOGGER.at(result.success() ? Level.INFO : Level.WARNING).log("Hotswap: %s", result.message());
+
+            response = HotswapResult.newBuilder()
+                    .setSuccess(result.success())
+                    .setRedefined(result.redefined())
+                    .setNotLoaded(result.notLoaded())
+                    .setMessage(result.message())
+                    .build();
+        }
+
+        sendMessage(AgentMessage.newBuilder()
+                .setHotswapResult(response));
+    }
+
+    private void handleStartTrace(StartTraceRequest request) {
+        TraceStatusEvent status = MethodTraceHandler.getInstance().start(request);
+        sendMessage(AgentMessage.newBuilder()
+                .setTraceStatus(status));
+    }
+
+    private void handleGetAllocationSites(GetAllocationSitesRequest request) {
+        AllocationSitesResponse.Builder response = AllocationSitesResponse.newBuilder();
+
+        var profiler = HytaleDevAgent.getAllocationProfiler();
+        if (profiler != null) {
+            int limit = request.getLimit() > 0 ? request.getLimit() : DEFAULT_ALLOCATION_SITES;
+            for (var site : profiler.getTopSites(limit)) {
+                response.addSites(AllocationSiteInfo.newBuilder()
+                        .setLocation(site.location())
+                        .setTypeName(site.typeName())
+                        .setCount(site.count())
+                        .setApproximateBytes(site.approximateBytes()));
+            }
+        } else {
+            LOGGER.at(Level.WARNING).log("Allocation sites requested, but allocation profiling is not enabled for this run");
+        }
+
+        sendMessage(AgentMessage.newBuilder()
+                .setAllocationSites(response));
+    }
+
+    /**
+     * Send the latest method trace summaries to the IDE.
+     *
+     * @param summary the summaries of all traced methods
+     */
+    public void sendTraceSummary(TraceSummaryEvent summary) {
+        sendMessage(AgentMessage.newBuilder()
+                .setTraceSummary(summary));
+    }
+
+    /**
+     * Send the latest world tick statistics to the IDE.
+     *
+     * @param stats the statistics of all worlds which ticked
+     */
+    public void sendTickStats(TickStatsEvent stats) {
+        sendMessage(AgentMessage.newBuilder()
+                .setTickStats(stats));
+    }
+
+    /**
+     * Send the startup timeline to the IDE.
+     *
+     * @param timeline the recorded startup phases
+     */
+    public void sendStartupTimeline(StartupTimelineEvent timeline) {
+        sendMessage(AgentMessage.newBuilder()
+                .setStartupTimeline(timeline));
+    }
+
+    /**
+     * Notify the IDE that the project classes have been reloaded.
+     *
+     * @param generation the generation of the reloaded classes
+     */
+    public void sendPluginReloaded(int generation) {
+        PluginReloadedEvent event = PluginReloadedEvent.newBuilder()
+                .setGeneration(generation)
                 .build();
 
-        send(message.toByteArray());
+        sendMessage(AgentMessage.newBuilder()
+                .setPluginReloaded(event));
     }
 
     /**
@@ -184,17 +653,12 @@ public class DevBridgeClient extends WebSocketClient {
      * @param state the server state
      */
     public void sendServerState(ServerState state) {
-        if (!connected) return;
-
         ServerStateEvent event = ServerStateEvent.newBuilder()
                 .setState(state)
                 .build();
 
-        AgentMessage message = AgentMessage.newBuilder()
-                .setServerState(event)
-                .build();
-
-        send(message.toByteArray());
+        sendMessage(AgentMessage.newBuilder()
+                .setServerState(event));
     }
 
     /**
@@ -206,35 +670,136 @@ public class DevBridgeClient extends WebSocketClient {
      * @param paths list of absolute paths to plugin asset directories
      */
     public void sendAssetPaths(List<String> paths) {
-        if (!connected) return;
-
         AssetPathsEvent event = AssetPathsEvent.newBuilder()
                 .addAllPaths(paths)
                 .build();
 
-        AgentMessage message = AgentMessage.newBuilder()
-                .setAssetPaths(event)
-                .build();
-
-        send(message.toByteArray());
+        sendMessage(AgentMessage.newBuilder()
+                .setAssetPaths(event));
         LOGGER.at(Level.INFO).log("Sent %d asset paths to IDE", paths.size());
     }
 
+    /**
+     * Set the capture holding the records logged before the connection was established, they are
+     * forwarded once the IDE requested logs.
+     *
+     * @param capture the capture to take over
+     */
+    public void setEarlyLogCapture(EarlyLogCapture capture) {
+        this.earlyLogCapture = capture;
+    }
+
+    /**
+     * Set the journal events are recorded in, besides being sent to the IDE.
+     *
+     * @param journal the journal, or null to not record events
+     */
+    public void setJournal(RunJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Stop capturing early log records, for example because the IDE could not be reached.
+     */
+    public void discardEarlyLogs() {
+        EarlyLogCapture capture = takeEarlyLogCapture();
+        if (capture != null) {
+            capture.close();
+        }
+    }
+
+    private synchronized EarlyLogCapture takeEarlyLogCapture() {
+        EarlyLogCapture capture = earlyLogCapture;
+        earlyLogCapture = null;
+        return capture;
+    }
+
+    /**
+     * Wait for the IDE to send its hello, after which the requested capabilities are enabled.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of the timeout
+     * @return true if the hello was received in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitIdeHello(long timeout, TimeUnit unit) throws InterruptedException {
+        return ideHelloReceived.await(timeout, unit);
+    }
+
+    /**
+     * Whether the IDE requested a capability and it is available in this run.
+     *
+     * @param capability the name of the capability
+     * @return true if the capability is enabled
+     */
+    public boolean isCapabilityEnabled(String capability) {
+        return enabledCapabilities.contains(capability);
+    }
+
     /**
      * Check if the client is currently connected to the IDE.
      *
      * @return true if connected
      */
     public boolean isConnected() {
-        return connected && isOpen();
+        return connected && transport.isOpen();
     }
 
     /**
-     * Disconnect from the IDE gracefully.
+     * Reconnect in the background until the IDE is reachable again.
+     * <p>
+     * The delay between attempts starts at one second and doubles up to 30 seconds. Does nothing if a
+     * reconnect is already in progress or the client is shutting down.
      */
-    public void disconnect() {
-        if (isOpen()) {
-            close();
+    public void scheduleReconnect() {
+        if (shuttingDown || !reconnecting.compareAndSet(false, true)) {
+            return;
+        }
+
+        Thread.ofVirtual().name("HytaleDev-BridgeReconnect").start(() -> {
+            long delay = INITIAL_RECONNECT_DELAY_MILLIS;
+            try {
+                while (!shuttingDown) {
+                    Thread.sleep(delay);
+                    if (shuttingDown) {
+                        break;
+                    }
+
+                    if (transport.reconnect()) {
+                        LOGGER.at(Level.INFO).log("Reconnected to the IDE");
+                        break;
+                    }
+
+                    delay = Math.min(delay * 2, MAX_RECONNECT_DELAY_MILLIS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                reconnecting.set(false);
+            }
+        });
+    }
+
+    /**
+     * Disconnect from the IDE gracefully and stop forwarding anything.
+     */
+    public void shutdown() {
+        shuttingDown = true;
+        discardEarlyLogs();
+
+        LogSubscriber subscriber = logSubscriber;
+        if (subscriber != null) {
+            subscriber.unsubscribe();
+            logSubscriber = null;
+        }
+
+        HotReloadHandler.getInstance().removeClient(this);
+        MethodTraceHandler.getInstance().removeClient(this);
+        TickStatsHandler.getInstance().removeClient(this);
+        StartupTimelineHandler.getInstance().removeClient(this);
+
+        if (transport.isOpen()) {
+            transport.close();
         }
     }
 }
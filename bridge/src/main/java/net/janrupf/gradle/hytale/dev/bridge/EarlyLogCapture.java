@@ -0,0 +1,115 @@
+package net.janrupf.gradle.hytale.dev.bridge;
+
+import com.hypixel.hytale.logger.backend.HytaleLoggerBackend;
+
+import java.util.ArrayDeque;
+import java.util.function.BiConsumer;
+import java.util.logging.LogRecord;
+
+/**
+ * Buffers the log records written while the bridge is still connecting to the IDE.
+ * <p>
+ * The capture subscribes to the logger backend as soon as the bridge initializes and keeps the most
+ * recent records in a bounded buffer. Once the IDE requested logs, {@link #handOver} replays the buffer
+ * in order and then passes every further record straight through. Replay and the switch happen under
+ * one lock, so no record can overtake the buffered ones. After the hand-over no lock is taken anymore.
+ */
+public class EarlyLogCapture {
+    private final Object lock;
+    private final ArrayDeque<LogForwarder.PendingLog> pending;
+    private final int capacity;
+    private final LogSubscriber.LogRecordCallback callback;
+
+    private volatile BiConsumer<LogRecord, String> target;
+    private boolean closed;
+    private long droppedRecords;
+
+    private EarlyLogCapture(int capacity) {
+        this.lock = new Object();
+        this.pending = new ArrayDeque<>();
+        this.capacity = capacity;
+        this.callback = new LogSubscriber.LogRecordCallback(this::onLogRecord);
+    }
+
+    /**
+     * Start capturing log records.
+     *
+     * @param capacity the maximum number of records to buffer, older records are dropped first
+     * @return the started capture
+     */
+    public static EarlyLogCapture start(int capacity) {
+        EarlyLogCapture capture = new EarlyLogCapture(capacity);
+        HytaleLoggerBackend.subscribe(capture.callback);
+        return capture;
+    }
+
+    /**
+     * Replay the buffered records to a consumer and pass every further record to it directly.
+     *
+     * @param consumer receives the records together with the name of the thread which logged them
+     * @return false if the capture was already closed
+     */
+    public boolean handOver(BiConsumer<LogRecord, String> consumer) {
+        long dropped;
+        synchronized (lock) {
+            if (closed) {
+                return false;
+            }
+
+            for (LogForwarder.PendingLog record : pending) {
+                consumer.accept(record.record(), record.threadName());
+            }
+            pending.clear();
+
+            target = consumer;
+            dropped = droppedRecords;
+        }
+
+        if (dropped > 0) {
+            System.err.println("[HytaleDev] Dropped " + dropped + " log records while connecting to the IDE");
+        }
+
+        return true;
+    }
+
+    /**
+     * Stop capturing and discard everything buffered.
+     */
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            target = null;
+            pending.clear();
+        }
+
+        HytaleLoggerBackend.unsubscribe(callback);
+    }
+
+    private void onLogRecord(LogRecord record) {
+        String threadName = Thread.currentThread().getName();
+
+        BiConsumer<LogRecord, String> consumer = target;
+        if (consumer != null) {
+            consumer.accept(record, threadName);
+            return;
+        }
+
+        synchronized (lock) {
+            // Handed over or closed while waiting for the lock
+            if (target != null) {
+                target.accept(record, threadName);
+                return;
+            }
+
+            if (closed) {
+                return;
+            }
+
+            if (pending.size() >= capacity) {
+                pending.pollFirst();
+                droppedRecords++;
+            }
+            pending.addLast(new LogForwarder.PendingLog(record, threadName));
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package net.janrupf.gradle.hytale.dev.bridge;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+import com.hypixel.hytale.server.core.command.system.CommandManager;
+import com.hypixel.hytale.server.core.console.ConsoleSender;
+import net.janrupf.gradle.hytale.dev.agent.HytaleDevAgent;
+import net.janrupf.gradle.hytale.dev.agent.loader.ReloadableClassPath;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+
+/**
+ * Restarts the project plugin after the agent reloaded the project classes.
+ * <p>
+ * The agent swaps the classloader of the project classes, either because its file watcher saw
+ * a compilation or because the IDE requested it. Afterwards the plugin is restarted through the
+ * server's plugin command, so the new instance is created from the new classes.
+ */
+public class HotReloadHandler {
+    private static final HotReloadHandler INSTANCE = new HotReloadHandler();
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    private final List<DevBridgeClient> clients;
+    private volatile boolean installed;
+
+    public static HotReloadHandler getInstance() {
+        return INSTANCE;
+    }
+
+    private HotReloadHandler() {
+        this.clients = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Whether the agent has hot reloading enabled for this run.
+     *
+     * @return true if hot reloading is available
+     */
+    public boolean isAvailable() {
+        return HytaleDevAgent.getReloadableClassPath() != null;
+    }
+
+    /**
+     * Start listening for reloads of the agent, if hot reloading is enabled.
+     */
+    public synchronized void install() {
+        var reloadableClassPath = HytaleDevAgent.getReloadableClassPath();
+        if (installed || reloadableClassPath == null) {
+            return;
+        }
+
+        installed = true;
+        reloadableClassPath.addReloadListener(() -> onReloaded(reloadableClassPath));
+        LOGGER.at(Level.INFO).log("Hot reload enabled for plugin %s", HytaleDevAgent.getReloadablePlugin());
+    }
+
+    /**
+     * Register a client to notify about reloads.
+     *
+     * @param client the client to notify
+     */
+    public void addClient(DevBridgeClient client) {
+        if (!clients.contains(client)) {
+            clients.add(client);
+        }
+    }
+
+    /**
+     * Unregister a client previously registered with {@link #addClient}.
+     *
+     * @param client the client to remove
+     */
+    public void removeClient(DevBridgeClient client) {
+        clients.remove(client);
+    }
+
+    /**
+     * Reload the project classes and restart the plugin.
+     */
+    public void reload() {
+        var reloadableClassPath = HytaleDevAgent.getReloadableClassPath();
+        if (reloadableClassPath == null) {
+            LOGGER.at(Level.WARNING).log("Reload requested, but hot reload is not enabled for this run");
+            return;
+        }
+
+        reloadableClassPath.reload();
+    }
+
+    private void onReloaded(ReloadableClassPath reloadableClassPath) {
+        var plugin = HytaleDevAgent.getReloadablePlugin();
+        CommandManager manager = CommandManager.get();
+
+        if (plugin != null && manager != null) {
+            LOGGER.at(Level.INFO).log("Restarting plugin %s with reloaded classes", plugin);
+            manager.handleCommand(ConsoleSender.INSTANCE, "plugin reload " + plugin);
+        }
+
+        int generation = reloadableClassPath.getGenerationNumber();
+        for (var client : clients) {
+            client.sendPluginReloaded(generation);
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package net.janrupf.gradle.hytale.dev.bridge;
 
+import com.hypixel.hytale.server.core.command.system.CommandManager;
+import com.hypixel.hytale.server.core.console.ConsoleSender;
 import com.hypixel.hytale.server.core.plugin.JavaPlugin;
 import com.hypixel.hytale.server.core.plugin.JavaPluginInit;
+import net.janrupf.gradle.hytale.dev.agent.timeline.StartupTimeline;
+import net.janrupf.gradle.hytale.dev.protocol.HytaleBridgeProto.ServerState;
 
 import javax.annotation.Nonnull;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 
 /**
@@ -17,8 +22,8 @@ import java.util.logging.Level;
  * without attempting to connect.
  */
 public class HytaleBridgePlugin extends JavaPlugin {
+    private final AtomicBoolean ready = new AtomicBoolean();
     private DevBridgeClient bridgeClient;
-    private LogSubscriber logSubscriber;
 
     public HytaleBridgePlugin(@Nonnull JavaPluginInit init) {
         super(init);
@@ -27,51 +32,69 @@ public class HytaleBridgePlugin extends JavaPlugin {
     @Override
     protected void setup() {
         getLogger().at(Level.INFO).log("Hytale Dev Bridge initializing...");
+        HotReloadHandler.getInstance().install();
 
-        // Check for bridge connection environment variables
-        String port = System.getenv("HYTALE_DEV_BRIDGE_PORT");
-        String token = System.getenv("HYTALE_DEV_BRIDGE_TOKEN");
+        // Normally already done from HytaleLogger's static initializer, the client is shared
+        BridgeBootstrapper.initialize();
+        bridgeClient = BridgeBootstrapper.getClient();
 
-        if (port == null || token == null) {
+        if (bridgeClient == null) {
             getLogger().at(Level.INFO).log("Bridge environment variables not set - running standalone");
-            return;
-        }
-
-        try {
-            int portNumber = Integer.parseInt(port);
-            bridgeClient = new DevBridgeClient(portNumber, token);
-            logSubscriber = new LogSubscriber(bridgeClient);
-            getLogger().at(Level.INFO).log("Dev Bridge configured for port %d", portNumber);
-        } catch (NumberFormatException e) {
-            getLogger().at(Level.WARNING).log("Invalid bridge port: %s", port);
         }
     }
 
     @Override
     protected void start() {
+        // The startup completes with the first world tick, once every plugin started and a world is loaded
+        StartupTimeline.get().addCompletionListener((phases) -> onServerReady());
+        if (StartupTimeline.get().isComplete()) {
+            onServerReady();
+        }
+
         if (bridgeClient != null) {
-            try {
-                bridgeClient.connectBlocking();
-                if (bridgeClient.isConnected()) {
-                    logSubscriber.subscribe();
-                    getLogger().at(Level.INFO).log("Dev Bridge connected to IDE");
-                } else {
-                    getLogger().at(Level.WARNING).log("Dev Bridge failed to connect to IDE");
-                }
-            } catch (InterruptedException e) {
-                getLogger().at(Level.WARNING).withCause(e).log("Interrupted while connecting to IDE");
-                Thread.currentThread().interrupt();
-            }
+            // The connection is established in the background, startup never waits for the IDE
+            getLogger().at(Level.INFO).log(bridgeClient.isConnected()
+                    ? "Dev Bridge connected to IDE"
+                    : "Dev Bridge not connected to IDE yet");
+        }
+    }
+
+    private void onServerReady() {
+        if (!ready.compareAndSet(false, true)) {
+            return;
+        }
+
+        if (bridgeClient != null) {
+            bridgeClient.sendServerState(ServerState.SERVER_STATE_READY);
+        }
+
+        if (System.getenv("HYTALE_DEV_AOT_TRAINING") != null) {
+            stopAfterTraining();
         }
     }
 
+    /**
+     * Stops the server once it is ready, used for AOT cache training runs.
+     * <p>
+     * Everything the server loaded up to its first world tick ends up in the cache. The stop command
+     * is issued from a separate thread, the world thread reporting the tick must not run the shutdown.
+     */
+    private void stopAfterTraining() {
+        getLogger().at(Level.INFO).log("AOT training run - stopping the server after the first world tick");
+
+        Thread.ofPlatform().daemon().name("HytaleDev-AotTrainingStop").start(() -> {
+            CommandManager manager = CommandManager.get();
+            if (manager != null) {
+                manager.handleCommand(ConsoleSender.INSTANCE, "stop");
+            }
+        });
+    }
+
     @Override
     protected void shutdown() {
-        if (logSubscriber != null) {
-            logSubscriber.unsubscribe();
-        }
+        // Also closes the run journal, which is written without an IDE as well
+        BridgeBootstrapper.shutdown();
         if (bridgeClient != null) {
-            bridgeClient.disconnect();
             getLogger().at(Level.INFO).log("Dev Bridge disconnected");
         }
     }
@@ -0,0 +1,209 @@
+package net.janrupf.gradle.hytale.dev.bridge;
+
+import net.janrupf.gradle.hytale.dev.protocol.HytaleBridgeProto.LogBatch;
+import net.janrupf.gradle.hytale.dev.protocol.HytaleBridgeProto.LogEvent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.logging.LogRecord;
+
+/**
+ * Forwards log records to the IDE from a single sender thread.
+ * <p>
+ * Logging threads only capture their name and hand the record to a {@link LogRingBuffer}. The sender
+ * thread converts the records, packs everything buffered into one {@link LogBatch} and sends it as a
+ * single frame, so server threads neither serialize nor contend on the socket. When the buffer is full
+ * the {@link LogOverflowPolicy} decides which event is lost, dropped events are counted and reported
+ * with the next batch.
+ */
+public class LogForwarder {
+    private static final int MAX_BATCH_SIZE = 512;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final String threadName;
+    private final Consumer<LogBatch.Builder> sink;
+    private final BiFunction<PendingLog, LogBatch.Builder, LogEvent> converter;
+    private final LogRingBuffer<PendingLog> buffer;
+    private final LogOverflowPolicy overflowPolicy;
+    private final AtomicLong droppedEvents;
+    private final AtomicLong forwardedEvents;
+
+    private volatile boolean running;
+    private volatile boolean senderIdle;
+    private volatile Thread sender;
+    private long reportedDroppedEvents;
+
+    /**
+     * Create a new forwarder, the sender thread is started by {@link #start()}.
+     *
+     * @param threadName     the name of the sender thread
+     * @param sink           sends a completed batch, runs on the sender thread and may still add to the
+     *                       batch before building it
+     * @param converter      converts buffered records to protocol events, runs on the sender thread and
+     *                       may add definitions to the batch the event ends up in
+     * @param capacity       the number of events to buffer
+     * @param overflowPolicy what to do when the buffer is full
+     */
+    public LogForwarder(
+            String threadName,
+            Consumer<LogBatch.Builder> sink,
+            BiFunction<PendingLog, LogBatch.Builder, LogEvent> converter,
+            int capacity,
+            LogOverflowPolicy overflowPolicy
+    ) {
+        this.threadName = threadName;
+        this.sink = sink;
+        this.converter = converter;
+        this.buffer = new LogRingBuffer<>(capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.droppedEvents = new AtomicLong();
+        this.forwardedEvents = new AtomicLong();
+    }
+
+    /**
+     * Start the sender thread.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+
+        running = true;
+        sender = Thread.ofPlatform().daemon().name(threadName).start(this::runSender);
+    }
+
+    /**
+     * Stop the sender thread after it sent the events buffered so far.
+     */
+    public synchronized void stop() {
+        var thread = sender;
+        if (!running || thread == null) {
+            return;
+        }
+
+        running = false;
+        LockSupport.unpark(thread);
+
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(2));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (droppedEvents.get() > 0) {
+            System.err.println("[HytaleDev] Dropped " + droppedEvents.get() + " log events because " + threadName + " could not keep up");
+        }
+    }
+
+    /**
+     * Buffer a record for forwarding, called on the logging thread.
+     *
+     * @param record     the record to forward
+     * @param threadName the name of the thread which logged the record
+     */
+    public void submit(LogRecord record, String threadName) {
+        var pending = new PendingLog(record, threadName);
+
+        if (!buffer.offer(pending)) {
+            handleOverflow(pending, Thread.currentThread());
+        }
+
+        if (senderIdle) {
+            LockSupport.unpark(sender);
+        }
+    }
+
+    /**
+     * The number of events lost to the overflow policy since the forwarder was created.
+     *
+     * @return the dropped event count
+     */
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    /**
+     * The number of events handed to the sink since the forwarder was created.
+     *
+     * @return the forwarded event count
+     */
+    public long getForwardedEvents() {
+        return forwardedEvents.get();
+    }
+
+    private void handleOverflow(PendingLog pending, Thread thread) {
+        switch (overflowPolicy) {
+            case DROP_NEWEST -> droppedEvents.incrementAndGet();
+            case DROP_OLDEST -> {
+                do {
+                    if (buffer.poll() != null) {
+                        droppedEvents.incrementAndGet();
+                    }
+                } while (!buffer.offer(pending));
+            }
+            case BLOCK -> {
+                while (!buffer.offer(pending)) {
+                    // The sender logging itself must never wait for itself
+                    if (!running || thread == sender) {
+                        droppedEvents.incrementAndGet();
+                        return;
+                    }
+
+                    LockSupport.unpark(sender);
+                    LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                }
+            }
+        }
+    }
+
+    private void runSender() {
+        var batch = LogBatch.newBuilder();
+
+        while (running || !buffer.isEmpty()) {
+            PendingLog pending;
+            while (batch.getEventsCount() < MAX_BATCH_SIZE && (pending = buffer.poll()) != null) {
+                try {
+                    batch.addEvents(converter.apply(pending, batch));
+                } catch (RuntimeException e) {
+                    System.err.println("[HytaleDev] Failed to convert log record: " + e.getMessage());
+                }
+            }
+
+            if (batch.getEventsCount() == 0) {
+                senderIdle = true;
+                // Re-check after publishing the idle flag, a producer may have missed it
+                if (running && buffer.isEmpty()) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+                senderIdle = false;
+                continue;
+            }
+
+            long dropped = droppedEvents.get();
+            batch.setDroppedEvents(dropped - reportedDroppedEvents);
+            reportedDroppedEvents = dropped;
+
+            try {
+                sink.accept(batch);
+                forwardedEvents.addAndGet(batch.getEventsCount());
+            } catch (RuntimeException e) {
+                System.err.println("[HytaleDev] Failed to send log batch: " + e.getMessage());
+            }
+
+            batch.clear();
+        }
+    }
+
+    /**
+     * A log record waiting to be forwarded.
+     *
+     * @param record     the record
+     * @param threadName the name of the thread which logged the record
+     */
+    public record PendingLog(LogRecord record, String threadName) {
+    }
+}
@@ -0,0 +1,44 @@
+package net.janrupf.gradle.hytale.dev.bridge;
+
+import java.util.Locale;
+
+/**
+ * What happens to log events which arrive while the forwarding buffer is full.
+ */
+public enum LogOverflowPolicy {
+    /**
+     * Evict the oldest buffered event, the IDE sees the most recent logs.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Discard the new event, the IDE sees the logs leading up to the flood.
+     */
+    DROP_NEWEST,
+
+    /**
+     * Make the logging thread wait for space, no event is lost but server threads slow down to the
+     * speed of the IDE connection.
+     */
+    BLOCK;
+
+    /**
+     * Parse a policy by name, case-insensitively.
+     *
+     * @param value    the name of the policy, may be null
+     * @param fallback the policy to use if the value is null or unknown
+     * @return the parsed policy
+     */
+    public static LogOverflowPolicy parse(String value, LogOverflowPolicy fallback) {
+        if (value == null) {
+            return fallback;
+        }
+
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("[HytaleDev] Unknown log overflow policy " + value + ", using " + fallback);
+            return fallback;
+        }
+    }
+}
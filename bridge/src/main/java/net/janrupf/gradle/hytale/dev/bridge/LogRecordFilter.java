@@ -0,0 +1,86 @@
+package net.janrupf.gradle.hytale.dev.bridge;
+
+import net.janrupf.gradle.hytale.dev.protocol.HytaleBridgeProto.LogFilter;
+import net.janrupf.gradle.hytale.dev.protocol.HytaleBridgeProto.LogLevel;
+
+import java.util.logging.Level;
+
+/**
+ * Decides which log records are forwarded to the IDE, as negotiated with the IDE.
+ * <p>
+ * Instances are immutable so the filter can be swapped while server threads log. Checking a record
+ * does not allocate, records are filtered before anything is built for them.
+ */
+public final class LogRecordFilter {
+    /**
+     * Filter which forwards every record.
+     */
+    public static final LogRecordFilter ACCEPT_ALL = new LogRecordFilter(Integer.MIN_VALUE, new String[0], new String[0]);
+
+    private final int minimumLevel;
+    private final String[] includePrefixes;
+    private final String[] excludePrefixes;
+
+    private LogRecordFilter(int minimumLevel, String[] includePrefixes, String[] excludePrefixes) {
+        this.minimumLevel = minimumLevel;
+        this.includePrefixes = includePrefixes;
+        this.excludePrefixes = excludePrefixes;
+    }
+
+    /**
+     * Create a filter from the settings sent by the IDE.
+     *
+     * @param filter the settings sent by the IDE
+     * @return the filter
+     */
+    public static LogRecordFilter fromProto(LogFilter filter) {
+        return new LogRecordFilter(
+                toMinimumLevel(filter.getMinLevel()),
+                filter.getIncludePrefixesList().toArray(String[]::new),
+                filter.getExcludePrefixesList().toArray(String[]::new)
+        );
+    }
+
+    /**
+     * Whether a record should be forwarded.
+     *
+     * @param level      the level of the record, may be null
+     * @param loggerName the name of the logger the record was logged with, may be null
+     * @return true if the record should be forwarded
+     */
+    public boolean accepts(Level level, String loggerName) {
+        if (minimumLevel != Integer.MIN_VALUE && (level == null || level.intValue() < minimumLevel)) {
+            return false;
+        }
+
+        String name = loggerName != null ? loggerName : "";
+        for (String prefix : excludePrefixes) {
+            if (name.startsWith(prefix)) {
+                return false;
+            }
+        }
+
+        if (includePrefixes.length == 0) {
+            return true;
+        }
+
+        for (String prefix : includePrefixes) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // Inverse of LogSubscriber#convertLevel
+    private static int toMinimumLevel(LogLevel level) {
+        return switch (level) {
+            case LOG_LEVEL_FATAL, LOG_LEVEL_ERROR -> Level.SEVERE.intValue();
+            case LOG_LEVEL_WARNING -> Level.WARNING.intValue();
+            case LOG_LEVEL_INFO -> Level.INFO.intValue();
+            case LOG_LEVEL_DEBUG -> Level.FINE.intValue();
+            default -> Integer.MIN_VALUE;
+        };
+    }
+}
@@ -0,0 +1,118 @@
+package net.janrupf.gradle.hytale.dev.bridge;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for handing log events from server threads to the sender thread.
+ * <p>
+ * Every slot carries a sequence number which tells producers and consumers whether the slot is free
+ * for the current lap, so neither side ever waits on a lock. Any number of threads may offer. Polling
+ * is also safe from multiple threads, which the drop-oldest overflow policy relies on to evict events
+ * while the sender drains the buffer.
+ *
+ * @param <E> the type of the elements
+ */
+public class LogRingBuffer<E> {
+    private final AtomicReferenceArray<E> slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong head;
+    private final AtomicLong tail;
+
+    /**
+     * Create a new ring buffer.
+     *
+     * @param capacity the minimum capacity, rounded up to the next power of two
+     */
+    public LogRingBuffer(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Capacity must be at least 2, got " + capacity);
+        }
+
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.head = new AtomicLong();
+        this.tail = new AtomicLong();
+
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Append an element if there is space.
+     *
+     * @param element the element to append
+     * @return false if the buffer is full
+     */
+    public boolean offer(E element) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.set(index, element);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // The slot still holds the element of the previous lap
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Remove the oldest element.
+     *
+     * @return the oldest element, or null if the buffer is empty
+     */
+    public E poll() {
+        long position = head.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - (position + 1);
+
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    E element = slots.getAndSet(index, null);
+                    sequences.set(index, position + mask + 1);
+                    return element;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                // Not yet published for this lap
+                return null;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    /**
+     * Whether the buffer is currently empty.
+     *
+     * @return true if there are no published elements
+     */
+    public boolean isEmpty() {
+        return head.get() >= tail.get();
+    }
+
+    /**
+     * The number of elements the buffer can hold.
+     *
+     * @return the capacity
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+}
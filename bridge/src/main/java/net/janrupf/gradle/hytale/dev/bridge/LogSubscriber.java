@@ -1,11 +1,14 @@
 package net.janrupf.gradle.hytale.dev.bridge;
 
 import com.hypixel.hytale.logger.backend.HytaleLoggerBackend;
+import net.janrupf.gradle.hytale.dev.agent.HytaleDevAgent;
+import net.janrupf.gradle.hytale.dev.protocol.HytaleBridgeProto.LogBatch;
 import net.janrupf.gradle.hytale.dev.protocol.HytaleBridgeProto.LogEvent;
 import net.janrupf.gradle.hytale.dev.protocol.HytaleBridgeProto.LogLevel;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
 import java.util.logging.Level;
@@ -14,57 +17,223 @@ import java.util.logging.LogRecord;
 /**
  * Subscribes to the Hytale logger backend and forwards logs to the IDE.
  * <p>
+ * Records are handed to a {@link LogForwarder}, which converts and sends them in batches from its own
+ * thread. The buffer capacity and overflow policy come from the {@code logBufferCapacity} and
+ * {@code logOverflowPolicy} bridge settings of the agent configuration.
+ * <p>
  * <b>ODDITY:</b> The server's {@link HytaleLoggerBackend#subscribe(CopyOnWriteArrayList)}
  * expects a CopyOnWriteArrayList and calls {@code add()} on subscribers (lines 98-100
  * in HytaleLoggerBackend.java). We subclass and override {@code add()} to get
  * callback-style notification instead of storing log records.
  */
 public class LogSubscriber {
+    private static final int DEFAULT_BUFFER_CAPACITY = 8192;
+
     private final DevBridgeClient client;
     private final LogRecordCallback callback;
+    private final LogForwarder forwarder;
+    private final ThrowableEncoder throwableEncoder;
+    private final StringDictionary nameDictionary;
+    private volatile LogRecordFilter filter;
+    private EarlyLogCapture earlyLogCapture;
 
-    public LogSubscriber(DevBridgeClient client) {
+    /**
+     * Create a new subscriber forwarding to the given client.
+     *
+     * @param client               the client to forward the logs to
+     * @param structuredThrowables whether to send throwables as deduplicated structured traces instead
+     *                             of rendered text
+     * @param stringDictionary     whether to replace logger and thread names with dictionary ids
+     */
+    public LogSubscriber(DevBridgeClient client, boolean structuredThrowables, boolean stringDictionary) {
         this.client = client;
+        this.throwableEncoder = structuredThrowables ? new ThrowableEncoder() : null;
+        this.nameDictionary = stringDictionary ? new StringDictionary() : null;
         this.callback = new LogRecordCallback(this::onLogRecord);
+        this.filter = LogRecordFilter.ACCEPT_ALL;
+        this.forwarder = new LogForwarder(
+                "HytaleDev-LogSender",
+                this::sendBatch,
+                this::toLogEvent,
+                readBufferCapacity(),
+                readOverflowPolicy()
+        );
     }
 
     /**
      * Subscribe to the Hytale logger backend to receive log events.
      */
     public void subscribe() {
+        forwarder.start();
         HytaleLoggerBackend.subscribe(callback);
     }
 
+    /**
+     * Take over the subscription of an early log capture, forwarding the records it buffered first.
+     * <p>
+     * Falls back to subscribing directly if the capture was closed in the meantime.
+     *
+     * @param capture the capture which buffered the records logged before the IDE connected
+     */
+    public void subscribe(EarlyLogCapture capture) {
+        forwarder.start();
+
+        if (capture.handOver(this::accept)) {
+            earlyLogCapture = capture;
+        } else {
+            HytaleLoggerBackend.subscribe(callback);
+        }
+    }
+
     /**
      * Unsubscribe from the Hytale logger backend.
      */
     public void unsubscribe() {
-        HytaleLoggerBackend.unsubscribe(callback);
+        if (earlyLogCapture != null) {
+            earlyLogCapture.close();
+            earlyLogCapture = null;
+        } else {
+            HytaleLoggerBackend.unsubscribe(callback);
+        }
+        forwarder.stop();
+    }
+
+    /**
+     * Replace the filter deciding which records are forwarded.
+     *
+     * @param filter the new filter
+     */
+    public void setFilter(LogRecordFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * The forwarder sending the records to the IDE, exposes the forwarding counters.
+     *
+     * @return the forwarder
+     */
+    public LogForwarder getForwarder() {
+        return forwarder;
     }
 
     private void onLogRecord(LogRecord record) {
-        if (!client.isConnected()) {
+        accept(record, Thread.currentThread().getName());
+    }
+
+    private void accept(LogRecord record, String threadName) {
+        // Also accepted while reconnecting, the client keeps the batches for replaying
+        if (!filter.accepts(record.getLevel(), record.getLoggerName())) {
             return;
         }
 
+        forwarder.submit(record, threadName);
+    }
+
+    private void sendBatch(LogBatch.Builder batch) {
+        long sequence = client.sendLogBatch(batch, this::restartStream);
+
+        if (throwableEncoder != null) {
+            throwableEncoder.batchSent(sequence, client.getOldestReplayableSequence());
+        }
+    }
+
+    /**
+     * Prepare already sent batches to be replayed at the start of a new stream whose receiver knows none
+     * of the strings and traces they reference.
+     *
+     * @param batches the batches of the replay, oldest first
+     */
+    void restartReplay(List<LogBatch.Builder> batches) {
+        if (batches.isEmpty()) {
+            return;
+        }
+
+        if (nameDictionary != null) {
+            // Ids are never reused, so the current definitions cover every batch
+            nameDictionary.redefineAll(batches.getFirst());
+        }
+
+        if (throwableEncoder != null) {
+            throwableEncoder.restartReplay(batches);
+        }
+    }
+
+    private void restartStream(LogBatch.Builder batch) {
+        if (nameDictionary != null) {
+            nameDictionary.redefineAll(batch);
+        }
+
+        if (throwableEncoder != null) {
+            throwableEncoder.restartStream(batch);
+        }
+    }
+
+    private LogEvent toLogEvent(LogForwarder.PendingLog pending, LogBatch.Builder batch) {
+        LogRecord record = pending.record();
+
         LogEvent.Builder builder = LogEvent.newBuilder()
                 .setTimestamp(record.getMillis())
                 .setLevel(convertLevel(record.getLevel()))
-                .setLoggerName(record.getLoggerName() != null ? record.getLoggerName() : "")
                 .setMessage(record.getMessage() != null ? record.getMessage() : "");
 
+        String loggerName = record.getLoggerName() != null ? record.getLoggerName() : "";
+        int loggerNameId = nameDictionary != null ? nameDictionary.idOf(loggerName, batch) : StringDictionary.NO_ID;
+        if (loggerNameId != StringDictionary.NO_ID) {
+            builder.setLoggerNameId(loggerNameId);
+        } else {
+            builder.setLoggerName(loggerName);
+        }
+
         if (record.getThrown() != null) {
-            StringWriter sw = new StringWriter();
-            record.getThrown().printStackTrace(new PrintWriter(sw));
-            builder.setThrowable(sw.toString());
+            // Runs on the sender thread, only records which passed the filter get here
+            if (throwableEncoder != null) {
+                builder.setThrown(throwableEncoder.encode(record.getThrown()));
+            } else {
+                StringWriter sw = new StringWriter();
+                record.getThrown().printStackTrace(new PrintWriter(sw));
+                builder.setThrowable(sw.toString());
+            }
+        }
+
+        int threadNameId = nameDictionary != null ? nameDictionary.idOf(pending.threadName(), batch) : StringDictionary.NO_ID;
+        if (threadNameId != StringDictionary.NO_ID) {
+            builder.setThreadNameId(threadNameId);
+        } else {
+            builder.setThreadName(pending.threadName());
         }
 
-        builder.setThreadName(Thread.currentThread().getName());
+        return builder.build();
+    }
 
-        client.sendLogEvent(builder.build());
+    /**
+     * The configured number of log events to buffer.
+     *
+     * @return the buffer capacity
+     */
+    static int readBufferCapacity() {
+        String value = HytaleDevAgent.getBridgeProperty("logBufferCapacity");
+        if (value == null) {
+            return DEFAULT_BUFFER_CAPACITY;
+        }
+
+        try {
+            return Math.max(2, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            System.err.println("[HytaleDev] Invalid log buffer capacity " + value + ", using " + DEFAULT_BUFFER_CAPACITY);
+            return DEFAULT_BUFFER_CAPACITY;
+        }
+    }
+
+    /**
+     * The configured policy for a full log buffer.
+     *
+     * @return the overflow policy
+     */
+    static LogOverflowPolicy readOverflowPolicy() {
+        return LogOverflowPolicy.parse(HytaleDevAgent.getBridgeProperty("logOverflowPolicy"), LogOverflowPolicy.DROP_OLDEST);
     }
 
-    private LogLevel convertLevel(Level level) {
+    static LogLevel convertLevel(Level level) {
         if (level == null) {
             return LogLevel.LOG_LEVEL_UNKNOWN;
         }
@@ -90,7 +259,7 @@ public class LogSubscriber {
      * and adds log records to it. We override {@code add()} to get immediate
      * callbacks instead of storing records.
      */
-    private static class LogRecordCallback extends CopyOnWriteArrayList<LogRecord> {
+    static class LogRecordCallback extends CopyOnWriteArrayList<LogRecord> {
         private final Consumer<LogRecord> onLog;
 
         LogRecordCallback(Consumer<LogRecord> onLog) {
@@ -0,0 +1,181 @@
+package net.janrupf.gradle.hytale.dev.bridge;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+import net.janrupf.gradle.hytale.dev.agent.HytaleDevAgent;
+import net.janrupf.gradle.hytale.dev.protocol.HytaleBridgeProto.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Starts and stops method traces requested by the IDE and streams their summaries.
+ * <p>
+ * The probes are added by the agent's {@link net.janrupf.gradle.hytale.dev.agent.trace.MethodTracer},
+ * which requires the agent to be attached with {@code -javaagent}. Summaries are sent once per second
+ * while at least one method is traced. All traces are stopped when the last IDE disconnects, so no
+ * probes are left behind that nobody is looking at.
+ */
+public class MethodTraceHandler {
+    private static final MethodTraceHandler INSTANCE = new MethodTraceHandler();
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+    private static final long SUMMARY_INTERVAL_MILLIS = 1000;
+
+    private final List<DevBridgeClient> clients;
+    private ScheduledExecutorService scheduler;
+
+    public static MethodTraceHandler getInstance() {
+        return INSTANCE;
+    }
+
+    private MethodTraceHandler() {
+        this.clients = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Whether the agent can trace methods in this run.
+     *
+     * @return true if method tracing is available
+     */
+    public boolean isAvailable() {
+        return HytaleDevAgent.getMethodTracer() != null;
+    }
+
+    /**
+     * Register a client to send summaries to.
+     *
+     * @param client the client to send summaries to
+     */
+    public void addClient(DevBridgeClient client) {
+        if (!clients.contains(client)) {
+            clients.add(client);
+        }
+    }
+
+    /**
+     * Unregister a client previously registered with {@link #addClient}.
+     *
+     * @param client the client to remove
+     */
+    public synchronized void removeClient(DevBridgeClient client) {
+        clients.remove(client);
+
+        var tracer = HytaleDevAgent.getMethodTracer();
+        if (clients.isEmpty() && tracer != null && tracer.isTracing()) {
+            LOGGER.at(Level.INFO).log("Last IDE disconnected, stopping all method traces");
+            stopAll();
+        }
+    }
+
+    /**
+     * Start tracing a method.
+     *
+     * @param request the request of the IDE
+     * @return the status to report back
+     */
+    public synchronized TraceStatusEvent start(StartTraceRequest request) {
+        var status = TraceStatusEvent.newBuilder()
+                .setClassName(request.getClassName())
+                .setMethodName(request.getMethodName());
+
+        var tracer = HytaleDevAgent.getMethodTracer();
+        if (tracer == null) {
+            return status.setActive(false)
+                    .setMessage("Method tracing is not enabled for this run")
+                    .build();
+        }
+
+        try {
+            var message = tracer.start(request.getClassName(), request.getMethodName());
+            LOGGER.at(Level.INFO).log("%s", message);
+            startScheduler();
+
+            return status.setActive(true).setMessage(message).build();
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            LOGGER.at(Level.WARNING).log("Failed to trace %s#%s: %s", request.getClassName(), request.getMethodName(), e.getMessage());
+            return status.setActive(false).setMessage(e.getMessage()).build();
+        }
+    }
+
+    /**
+     * Stop tracing a method, or all methods if the request names no class.
+     *
+     * @param request the request of the IDE
+     */
+    public synchronized void stop(StopTraceRequest request) {
+        var tracer = HytaleDevAgent.getMethodTracer();
+        if (tracer == null) {
+            return;
+        }
+
+        if (request.getClassName().isEmpty()) {
+            stopAll();
+            return;
+        }
+
+        try {
+            if (tracer.stop(request.getClassName(), request.getMethodName())) {
+                LOGGER.at(Level.INFO).log("Stopped tracing %s#%s", request.getClassName(), request.getMethodName());
+            }
+        } catch (IllegalStateException e) {
+            LOGGER.at(Level.WARNING).log("Failed to remove trace probes: %s", e.getMessage());
+        }
+    }
+
+    private void stopAll() {
+        try {
+            HytaleDevAgent.getMethodTracer().stopAll();
+        } catch (IllegalStateException e) {
+            LOGGER.at(Level.WARNING).log("Failed to remove trace probes: %s", e.getMessage());
+        }
+    }
+
+    private void startScheduler() {
+        if (scheduler != null) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().daemon().name("HytaleDev-MethodTrace").factory()
+        );
+        scheduler.scheduleAtFixedRate(
+                this::sendSummaries,
+                SUMMARY_INTERVAL_MILLIS,
+                SUMMARY_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS
+        );
+    }
+
+    private void sendSummaries() {
+        var tracer = HytaleDevAgent.getMethodTracer();
+        if (!tracer.isTracing()) {
+            return;
+        }
+
+        var event = TraceSummaryEvent.newBuilder();
+        for (var summary : tracer.summarize()) {
+            event.addMethods(MethodTraceSummary.newBuilder()
+                    .setClassName(summary.className())
+                    .setMethodName(summary.methodName())
+                    .setCalls(summary.calls())
+                    .setTotalNanos(summary.totalNanos())
+                    .setMeanNanos(summary.meanNanos())
+                    .setP50Nanos(summary.p50Nanos())
+                    .setP99Nanos(summary.p99Nanos())
+                    .setMaxNanos(summary.maxNanos()));
+        }
+
+        var built = event.build();
+        for (var client : clients) {
+            try {
+                client.sendTraceSummary(built);
+            } catch (RuntimeException e) {
+                // An exception would cancel the schedule for good
+                LOGGER.at(Level.WARNING).withCause(e).log("Failed to send method trace summary");
+            }
+        }
+    }
+}
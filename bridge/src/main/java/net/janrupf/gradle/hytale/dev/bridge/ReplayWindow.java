@@ -0,0 +1,144 @@
+package net.janrupf.gradle.hytale.dev.bridge;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the most recent serialized messages of the agent stream, so they can be sent again after the IDE
+ * reconnects.
+ * <p>
+ * Every message gets the next sequence number, but only messages which are still meaningful later, such as
+ * logs and events, are kept. Once more than the configured number of messages or bytes is kept, the oldest
+ * ones are evicted. A stream can only be resumed after a sequence number if nothing after it was evicted,
+ * a new stream gets everything still kept.
+ * <p>
+ * Not thread safe, guarded by the stream lock of the {@link DevBridgeClient}.
+ */
+public class ReplayWindow {
+    private final int maxMessages;
+    private final long maxBytes;
+    private final ArrayDeque<Entry> entries;
+
+    private long lastSequence;
+    private long evictedThrough;
+    private long bytes;
+
+    /**
+     * Create a new, empty window.
+     *
+     * @param maxMessages the maximum number of messages to keep
+     * @param maxBytes    the maximum number of serialized bytes to keep
+     */
+    public ReplayWindow(int maxMessages, long maxBytes) {
+        this.maxMessages = maxMessages;
+        this.maxBytes = maxBytes;
+        this.entries = new ArrayDeque<>();
+    }
+
+    /**
+     * Reserve the sequence number of the next message.
+     *
+     * @return the sequence number
+     */
+    public long nextSequence() {
+        return ++lastSequence;
+    }
+
+    /**
+     * The sequence number of the latest message.
+     *
+     * @return the sequence number, or 0 if there was no message yet
+     */
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * The sequence number of the oldest message still kept.
+     *
+     * @return the sequence number, or the next sequence number if nothing is kept
+     */
+    public long getOldestSequence() {
+        Entry oldest = entries.peekFirst();
+        return oldest != null ? oldest.sequence() : lastSequence + 1;
+    }
+
+    /**
+     * Keep a message for replaying.
+     *
+     * @param sequence the sequence number of the message
+     * @param data     the serialized message
+     */
+    public void add(long sequence, byte[] data) {
+        entries.addLast(new Entry(sequence, data));
+        bytes += data.length;
+
+        while (entries.size() > maxMessages || (bytes > maxBytes && entries.size() > 1)) {
+            Entry evicted = entries.removeFirst();
+            bytes -= evicted.data().length;
+            evictedThrough = evicted.sequence();
+        }
+    }
+
+    /**
+     * Collect the messages to send again when resuming after a sequence number.
+     *
+     * @param acknowledged the sequence number of the last message the IDE received
+     * @return the messages after it in order, or null if the stream can not be resumed from there
+     */
+    public List<byte[]> resumeAfter(long acknowledged) {
+        if (acknowledged < evictedThrough || acknowledged > lastSequence) {
+            return null;
+        }
+
+        List<byte[]> messages = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry.sequence() > acknowledged) {
+                messages.add(entry.data());
+            }
+        }
+
+        return messages;
+    }
+
+    /**
+     * The messages still kept, oldest first.
+     *
+     * @return the kept messages in order
+     */
+    public List<byte[]> retained() {
+        List<byte[]> messages = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            messages.add(entry.data());
+        }
+
+        return messages;
+    }
+
+    /**
+     * Replace the kept messages with rewritten versions of themselves, keeping their sequence numbers.
+     *
+     * @param messages the rewritten messages, in the order returned by {@link #retained()}
+     */
+    public void replaceRetained(List<byte[]> messages) {
+        if (messages.size() != entries.size()) {
+            throw new IllegalArgumentException("Expected " + entries.size() + " messages, got " + messages.size());
+        }
+
+        ArrayDeque<Entry> replaced = new ArrayDeque<>(entries.size());
+        bytes = 0;
+        int i = 0;
+        for (Entry entry : entries) {
+            byte[] data = messages.get(i++);
+            replaced.addLast(new Entry(entry.sequence(), data));
+            bytes += data.length;
+        }
+
+        entries.clear();
+        entries.addAll(replaced);
+    }
+
+    private record Entry(long sequence, byte[] data) {
+    }
+}
@@ -0,0 +1,295 @@
+package net.janrupf.gradle.hytale.dev.bridge;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+
+/**
+ * Append-only journal of the logs and bridge events of a run, searchable after the run has ended.
+ * <p>
+ * Records are appended to memory mapped segment files of 64 MiB, so writing one is a copy into the page
+ * cache and survives the server being killed. Records are grouped into blocks of up to 64 KiB or one
+ * second. Whenever a block is complete, an entry with its position, time range and the levels and kinds
+ * of records it contains is appended to a small index file, which lets readers skip everything outside
+ * of a query without reading it.
+ * <p>
+ * Segment files start with a magic number and their number, followed by records:
+ * <pre>
+ * int    length of the rest of the record
+ * long   timestamp in milliseconds since the epoch
+ * byte   kind, {@link #KIND_LOG} or {@link #KIND_EVENT}
+ * byte   log level number, 0 for events
+ * fields each an int length followed by UTF-8 bytes
+ * </pre>
+ * A zero length marks the end of the records in a segment. Every run starts a new journal. Once the
+ * segments exceed the configured maximum size, the oldest ones are deleted, their index entries stay
+ * and are skipped by readers.
+ */
+public class RunJournal implements AutoCloseable {
+    /**
+     * Kind of records holding a log event: logger name, thread name, message and throwable.
+     */
+    public static final byte KIND_LOG = 1;
+
+    /**
+     * Kind of records holding another bridge event: its name and its text form.
+     */
+    public static final byte KIND_EVENT = 2;
+
+    // Keep the format in sync with the plugin's RunJournalReader
+    private static final String INDEX_FILE = "index.dat";
+    private static final String SEGMENT_FILE_FORMAT = "segment-%05d.dat";
+    private static final int SEGMENT_MAGIC = 0x48594A31;
+    private static final int INDEX_MAGIC = 0x48594958;
+    private static final int VERSION = 1;
+    private static final int SEGMENT_HEADER_SIZE = 8;
+    private static final int INDEX_HEADER_SIZE = 16;
+    private static final int INDEX_ENTRY_SIZE = 40;
+
+    private static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final long BLOCK_MILLIS = 1000;
+    private static final int MAX_FIELD_LENGTH = 64 * 1024;
+
+    private final Path directory;
+    private final FileChannel index;
+    private final ByteBuffer indexEntry;
+    private final int maxSegments;
+    private final ArrayDeque<Integer> liveSegments;
+
+    private MappedByteBuffer segment;
+    private int segmentNumber;
+    private long indexPosition;
+    private boolean closed;
+
+    private int blockOffset;
+    private int blockRecords;
+    private long blockMinMillis;
+    private long blockMaxMillis;
+    private int blockLevelMask;
+    private int blockKindMask;
+
+    private RunJournal(Path directory, FileChannel index, int maxSegments) throws IOException {
+        this.directory = directory;
+        this.index = index;
+        this.indexEntry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+        this.maxSegments = maxSegments;
+        this.liveSegments = new ArrayDeque<>();
+        this.segmentNumber = -1;
+
+        ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_SIZE)
+                .putInt(INDEX_MAGIC)
+                .putInt(VERSION)
+                .putInt(SEGMENT_SIZE)
+                .putInt(0)
+                .flip();
+        writeIndex(header, 0);
+        this.indexPosition = INDEX_HEADER_SIZE;
+
+        openNextSegment();
+    }
+
+    /**
+     * Start a new journal in a directory, replacing the journal of the previous run.
+     *
+     * @param directory the directory to write the journal to
+     * @param maxBytes  the maximum size of the segments, at least two segments are always kept
+     * @return the opened journal
+     * @throws IOException if the journal can not be created
+     */
+    public static RunJournal open(Path directory, long maxBytes) throws IOException {
+        Files.createDirectories(directory);
+
+        try (DirectoryStream<Path> previous = Files.newDirectoryStream(directory, "segment-*.dat")) {
+            for (Path file : previous) {
+                Files.delete(file);
+            }
+        }
+
+        FileChannel index = FileChannel.open(
+                directory.resolve(INDEX_FILE),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE
+        );
+
+        try {
+            return new RunJournal(directory, index, (int) Math.max(2, Math.min(Integer.MAX_VALUE, maxBytes / SEGMENT_SIZE)));
+        } catch (IOException e) {
+            index.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Append a log record.
+     *
+     * @param timestamp  the time of the record in milliseconds since the epoch
+     * @param level      the protocol log level number
+     * @param loggerName the name of the logger
+     * @param threadName the name of the thread which logged the record
+     * @param message    the message
+     * @param throwable  the rendered throwable, empty if none
+     */
+    public void appendLog(long timestamp, int level, String loggerName, String threadName, String message, String throwable) {
+        append(timestamp, KIND_LOG, level, loggerName, threadName, message, throwable);
+    }
+
+    /**
+     * Append a bridge event.
+     *
+     * @param timestamp the time of the event in milliseconds since the epoch
+     * @param name      the name of the event
+     * @param text      the text form of the event
+     */
+    public void appendEvent(long timestamp, String name, String text) {
+        append(timestamp, KIND_EVENT, 0, name, text);
+    }
+
+    private synchronized void append(long timestamp, byte kind, int level, String... fields) {
+        if (closed) {
+            return;
+        }
+
+        byte[][] encoded = new byte[fields.length][];
+        int length = Long.BYTES + 2;
+        for (int i = 0; i < fields.length; i++) {
+            String field = fields[i] != null ? fields[i] : "";
+            if (field.length() > MAX_FIELD_LENGTH) {
+                // Never split a surrogate pair
+                int end = Character.isHighSurrogate(field.charAt(MAX_FIELD_LENGTH - 1))
+                        ? MAX_FIELD_LENGTH - 1
+                        : MAX_FIELD_LENGTH;
+                field = field.substring(0, end);
+            }
+
+            encoded[i] = field.getBytes(StandardCharsets.UTF_8);
+            length += Integer.BYTES + encoded[i].length;
+        }
+
+        try {
+            // Keep room for the terminating zero length
+            if (segment.remaining() < 2 * Integer.BYTES + length) {
+                finishBlock();
+                openNextSegment();
+            }
+
+            if (blockRecords > 0 && (segment.position() - blockOffset >= BLOCK_SIZE
+                    || Math.abs(timestamp - blockMinMillis) >= BLOCK_MILLIS)) {
+                finishBlock();
+            }
+
+            segment.putInt(length)
+                    .putLong(timestamp)
+                    .put(kind)
+                    .put((byte) level);
+            for (byte[] field : encoded) {
+                segment.putInt(field.length).put(field);
+            }
+
+            if (blockRecords == 0) {
+                blockMinMillis = timestamp;
+                blockMaxMillis = timestamp;
+            } else {
+                blockMinMillis = Math.min(blockMinMillis, timestamp);
+                blockMaxMillis = Math.max(blockMaxMillis, timestamp);
+            }
+            blockLevelMask |= 1 << level;
+            blockKindMask |= 1 << kind;
+            blockRecords++;
+        } catch (IOException e) {
+            System.err.println("[HytaleDev] Failed to write run journal, disabling it: " + e.getMessage());
+            closed = true;
+        }
+    }
+
+    private void finishBlock() throws IOException {
+        if (blockRecords == 0) {
+            return;
+        }
+
+        indexEntry.clear()
+                .putInt(segmentNumber)
+                .putInt(blockOffset)
+                .putInt(segment.position() - blockOffset)
+                .putInt(blockRecords)
+                .putLong(blockMinMillis)
+                .putLong(blockMaxMillis)
+                .putInt(blockLevelMask)
+                .putInt(blockKindMask)
+                .flip();
+        writeIndex(indexEntry, indexPosition);
+        indexPosition += INDEX_ENTRY_SIZE;
+
+        blockOffset = segment.position();
+        blockRecords = 0;
+        blockLevelMask = 0;
+        blockKindMask = 0;
+    }
+
+    private void openNextSegment() throws IOException {
+        segmentNumber++;
+
+        Path file = directory.resolve(String.format(SEGMENT_FILE_FORMAT, segmentNumber));
+        try (FileChannel channel = FileChannel.open(
+                file,
+                StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE
+        )) {
+            // The mapping stays valid after the channel is closed
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_SIZE);
+        }
+
+        segment.putInt(SEGMENT_MAGIC).putInt(segmentNumber);
+        blockOffset = SEGMENT_HEADER_SIZE;
+
+        liveSegments.addLast(segmentNumber);
+        deleteOldSegments();
+    }
+
+    private void deleteOldSegments() {
+        while (liveSegments.size() > maxSegments) {
+            Path oldest = directory.resolve(String.format(SEGMENT_FILE_FORMAT, liveSegments.getFirst()));
+            try {
+                Files.deleteIfExists(oldest);
+            } catch (IOException e) {
+                // Still mapped on some platforms until the buffer is collected, retried with the next segment
+                return;
+            }
+            liveSegments.removeFirst();
+        }
+    }
+
+    private void writeIndex(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += index.write(buffer, position);
+        }
+    }
+
+    /**
+     * Index the last block and close the journal, records appended afterwards are ignored.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            finishBlock();
+            segment.force();
+            index.close();
+        } catch (IOException e) {
+            System.err.println("[HytaleDev] Failed to close run journal: " + e.getMessage());
+        }
+    }
+}
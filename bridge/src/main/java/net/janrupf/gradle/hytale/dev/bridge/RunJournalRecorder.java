@@ -0,0 +1,95 @@
+package net.janrupf.gradle.hytale.dev.bridge;
+
+import com.hypixel.hytale.logger.backend.HytaleLoggerBackend;
+import net.janrupf.gradle.hytale.dev.protocol.HytaleBridgeProto.LogBatch;
+import net.janrupf.gradle.hytale.dev.protocol.HytaleBridgeProto.LogEvent;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.logging.LogRecord;
+
+/**
+ * Records every server log record in a {@link RunJournal}, whether an IDE is connected or not.
+ * <p>
+ * Like the forwarding to the IDE, logging threads only buffer the records and a {@link LogForwarder}
+ * thread renders and appends them, using the same buffer capacity and overflow policy. Records lost
+ * to the overflow policy are noted in the journal as a {@code dropped_events} event.
+ */
+public class RunJournalRecorder {
+    private final RunJournal journal;
+    private final LogSubscriber.LogRecordCallback callback;
+    private final LogForwarder forwarder;
+
+    /**
+     * Create a new recorder, nothing is recorded until {@link #start()} is called.
+     *
+     * @param journal the journal to append to
+     */
+    public RunJournalRecorder(RunJournal journal) {
+        this.journal = journal;
+        this.callback = new LogSubscriber.LogRecordCallback(this::onLogRecord);
+        this.forwarder = new LogForwarder(
+                "HytaleDev-JournalWriter",
+                this::write,
+                RunJournalRecorder::toLogEvent,
+                LogSubscriber.readBufferCapacity(),
+                LogSubscriber.readOverflowPolicy()
+        );
+    }
+
+    /**
+     * Subscribe to the Hytale logger backend and start recording.
+     */
+    public void start() {
+        forwarder.start();
+        HytaleLoggerBackend.subscribe(callback);
+    }
+
+    /**
+     * Unsubscribe from the Hytale logger backend after writing everything buffered so far.
+     */
+    public void stop() {
+        HytaleLoggerBackend.unsubscribe(callback);
+        forwarder.stop();
+    }
+
+    private void onLogRecord(LogRecord record) {
+        forwarder.submit(record, Thread.currentThread().getName());
+    }
+
+    private void write(LogBatch.Builder batch) {
+        for (LogEvent event : batch.getEventsList()) {
+            journal.appendLog(
+                    event.getTimestamp(),
+                    event.getLevelValue(),
+                    event.getLoggerName(),
+                    event.getThreadName(),
+                    event.getMessage(),
+                    event.getThrowable()
+            );
+        }
+
+        if (batch.getDroppedEvents() > 0) {
+            journal.appendEvent(System.currentTimeMillis(), "dropped_events", Long.toString(batch.getDroppedEvents()));
+        }
+    }
+
+    private static LogEvent toLogEvent(LogForwarder.PendingLog pending, LogBatch.Builder batch) {
+        LogRecord record = pending.record();
+
+        LogEvent.Builder builder = LogEvent.newBuilder()
+                .setTimestamp(record.getMillis())
+                .setLevel(LogSubscriber.convertLevel(record.getLevel()))
+                .setMessage(record.getMessage() != null ? record.getMessage() : "")
+                .setLoggerName(record.getLoggerName() != null ? record.getLoggerName() : "")
+                .setThreadName(pending.threadName());
+
+        if (record.getThrown() != null) {
+            StringWriter sw = new StringWriter();
+            record.getThrown().printStackTrace(new PrintWriter(sw));
+            builder.setThrowable(sw.toString());
+        }
+
+        return builder.build();
+    }
+}
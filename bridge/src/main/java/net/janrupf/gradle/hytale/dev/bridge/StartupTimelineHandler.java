@@ -0,0 +1,83 @@
+package net.janrupf.gradle.hytale.dev.bridge;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+import net.janrupf.gradle.hytale.dev.agent.timeline.StartupTimeline;
+import net.janrupf.gradle.hytale.dev.protocol.HytaleBridgeProto.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+
+/**
+ * Sends the startup timeline recorded by the agent to the IDE.
+ * <p>
+ * The timeline is sent once the first world ticked, or right away to clients which connect after that.
+ */
+public class StartupTimelineHandler {
+    private static final StartupTimelineHandler INSTANCE = new StartupTimelineHandler();
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    private final List<DevBridgeClient> clients;
+
+    public static StartupTimelineHandler getInstance() {
+        return INSTANCE;
+    }
+
+    private StartupTimelineHandler() {
+        this.clients = new CopyOnWriteArrayList<>();
+        StartupTimeline.get().addCompletionListener(this::sendTimeline);
+    }
+
+    /**
+     * Register a client to send the timeline to.
+     *
+     * @param client the client to send the timeline to
+     */
+    public void addClient(DevBridgeClient client) {
+        if (clients.contains(client)) {
+            return;
+        }
+
+        clients.add(client);
+
+        var timeline = StartupTimeline.get();
+        if (timeline.isComplete()) {
+            client.sendStartupTimeline(toEvent(timeline.getPhases()));
+        }
+    }
+
+    /**
+     * Unregister a client previously registered with {@link #addClient}.
+     *
+     * @param client the client to remove
+     */
+    public void removeClient(DevBridgeClient client) {
+        clients.remove(client);
+    }
+
+    private void sendTimeline(List<StartupTimeline.Phase> phases) {
+        var event = toEvent(phases);
+        for (var client : clients) {
+            try {
+                client.sendStartupTimeline(event);
+            } catch (RuntimeException e) {
+                // Runs on the ticking world thread, never let this escape
+                LOGGER.at(Level.WARNING).withCause(e).log("Failed to send startup timeline");
+            }
+        }
+    }
+
+    private static StartupTimelineEvent toEvent(List<StartupTimeline.Phase> phases) {
+        var event = StartupTimelineEvent.newBuilder()
+                .setComplete(true);
+        for (var phase : phases) {
+            event.addPhases(StartupPhase.newBuilder()
+                    .setCategory(phase.category())
+                    .setName(phase.name())
+                    .setStartMillis(phase.startMillis())
+                    .setDurationMillis(phase.durationMillis())
+                    .setThread(phase.thread()));
+        }
+        return event.build();
+    }
+}
@@ -0,0 +1,89 @@
+package net.janrupf.gradle.hytale.dev.bridge;
+
+import net.janrupf.gradle.hytale.dev.protocol.HytaleBridgeProto.LogBatch;
+import net.janrupf.gradle.hytale.dev.protocol.HytaleBridgeProto.StringDefinition;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Replaces frequently repeated strings, such as logger and thread names, with small ids on the wire.
+ * <p>
+ * The first use of a string adds its definition to the batch being built, later uses only send the id.
+ * Logger and thread names are usually the same string instances every time, so lookups go through an
+ * identity map first and never hash the string contents. Only a miss falls back to comparing contents.
+ * Once the dictionary is full, new strings are sent inline instead. Ids are never reused.
+ * <p>
+ * Used by the single sender thread of a {@link LogForwarder}, synchronized only so a reconnect can redefine
+ * everything for a replay from another thread.
+ */
+public class StringDictionary {
+    /**
+     * Id meaning that the string was sent inline.
+     */
+    public static final int NO_ID = 0;
+
+    private static final int MAX_STRINGS = 4096;
+    private static final int MAX_INSTANCES = 4 * MAX_STRINGS;
+
+    private final Map<String, Integer> idsByInstance;
+    private final Map<String, Integer> idsByContent;
+    private int nextId;
+
+    public StringDictionary() {
+        this.idsByInstance = new IdentityHashMap<>();
+        this.idsByContent = new HashMap<>();
+        this.nextId = NO_ID + 1;
+    }
+
+    /**
+     * Look up the id of a string, defining it in the batch on first use.
+     *
+     * @param value the string
+     * @param batch the batch the definition is added to
+     * @return the id, or {@link #NO_ID} if the string has to be sent inline
+     */
+    public synchronized int idOf(String value, LogBatch.Builder batch) {
+        Integer id = idsByInstance.get(value);
+        if (id != null) {
+            return id;
+        }
+
+        id = idsByContent.get(value);
+        if (id == null) {
+            if (idsByContent.size() >= MAX_STRINGS) {
+                return NO_ID;
+            }
+
+            id = nextId++;
+            idsByContent.put(value, id);
+            batch.addDefinitions(StringDefinition.newBuilder()
+                    .setId(id)
+                    .setValue(value));
+        }
+
+        if (idsByInstance.size() >= MAX_INSTANCES) {
+            // Equal strings keep arriving as new instances, start over instead of growing forever
+            idsByInstance.clear();
+        }
+        idsByInstance.put(value, id);
+
+        return id;
+    }
+
+    /**
+     * Replace the definitions of a batch with every definition made so far, so the batch can start a new
+     * stream whose receiver knows none of them.
+     *
+     * @param batch the batch to define everything in
+     */
+    public synchronized void redefineAll(LogBatch.Builder batch) {
+        batch.clearDefinitions();
+        for (Map.Entry<String, Integer> entry : idsByContent.entrySet()) {
+            batch.addDefinitions(StringDefinition.newBuilder()
+                    .setId(entry.getValue())
+                    .setValue(entry.getKey()));
+        }
+    }
+}
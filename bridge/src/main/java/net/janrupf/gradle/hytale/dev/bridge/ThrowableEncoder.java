@@ -0,0 +1,261 @@
+package net.janrupf.gradle.hytale.dev.bridge;
+
+import net.janrupf.gradle.hytale.dev.protocol.HytaleBridgeProto.LogBatch;
+import net.janrupf.gradle.hytale.dev.protocol.HytaleBridgeProto.LogEvent;
+import net.janrupf.gradle.hytale.dev.protocol.HytaleBridgeProto.LoggedThrowable;
+import net.janrupf.gradle.hytale.dev.protocol.HytaleBridgeProto.StackFrame;
+import net.janrupf.gradle.hytale.dev.protocol.HytaleBridgeProto.StackTrace;
+import net.janrupf.gradle.hytale.dev.protocol.HytaleBridgeProto.ThrowableFrames;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Encodes throwables as structured stack traces, sending every distinct trace only once.
+ * <p>
+ * A trace is identified by the classes and frames of the throwable and its causes, messages are not
+ * part of it since they often contain values which change between occurrences. The first occurrence of
+ * a trace is sent with its frames, repetitions only carry the id and the messages. Ids are never reused,
+ * so the cache can simply be cleared when it grows too large and affected traces are sent again.
+ * <p>
+ * Batches sent before the cache was cleared may still be replayed, and reference traces whose frames were
+ * sent in a batch the replay window has evicted since. Cleared traces are therefore retired instead of
+ * forgotten, and only dropped once the last batch sent before the clear has been evicted as well.
+ * <p>
+ * Used by the single sender thread of a {@link LogForwarder}, synchronized only so a reconnect can prepare
+ * a replay from another thread.
+ */
+public class ThrowableEncoder {
+    private static final int MAX_CACHED_TRACES = 4096;
+    private static final int MAX_CAUSES = 32;
+
+    private final Map<TraceKey, Long> traceIds;
+    private final ArrayDeque<RetiredTraces> retired;
+    private Map<Long, TraceKey> retiring;
+    private long nextTraceId;
+
+    public ThrowableEncoder() {
+        this.traceIds = new HashMap<>();
+        this.retired = new ArrayDeque<>();
+        this.nextTraceId = 1;
+    }
+
+    /**
+     * Encode a throwable, including its frames only if the trace was not sent before.
+     *
+     * @param throwable the throwable to encode
+     * @return the encoded throwable
+     */
+    public synchronized LoggedThrowable encode(Throwable throwable) {
+        List<Throwable> chain = causeChain(throwable);
+
+        String[] classNames = new String[chain.size()];
+        StackTraceElement[][] frames = new StackTraceElement[chain.size()][];
+        LoggedThrowable.Builder builder = LoggedThrowable.newBuilder();
+
+        for (int i = 0; i < chain.size(); i++) {
+            Throwable current = chain.get(i);
+            classNames[i] = current.getClass().getName();
+            frames[i] = current.getStackTrace();
+
+            String message = current.getMessage();
+            builder.addMessages(message != null ? message : "");
+        }
+
+        TraceKey key = new TraceKey(classNames, frames);
+        Long id = traceIds.get(key);
+        if (id != null) {
+            return builder.setTraceId(id).build();
+        }
+
+        if (traceIds.size() >= MAX_CACHED_TRACES) {
+            retireCachedTraces();
+        }
+
+        id = nextTraceId++;
+        traceIds.put(key, id);
+
+        return builder
+                .setTraceId(id)
+                .setTrace(toStackTrace(classNames, frames))
+                .build();
+    }
+
+    /**
+     * Prepare a batch to start a new stream whose receiver knows no trace yet.
+     * <p>
+     * Events of the batch which only reference a trace get its frames again, and every other trace is
+     * forgotten, so its next occurrence is sent with frames.
+     *
+     * @param batch the batch to prepare
+     */
+    public synchronized void restartStream(LogBatch.Builder batch) {
+        restoreTraces(List.of(batch));
+        retireCachedTraces();
+    }
+
+    /**
+     * Record that a batch has been sent, and drop the retired traces no kept batch can reference anymore.
+     *
+     * @param sequence       the sequence number of the sent batch
+     * @param oldestSequence the sequence number of the oldest message still kept for replaying
+     */
+    public synchronized void batchSent(long sequence, long oldestSequence) {
+        if (retiring != null) {
+            // Traces retired while encoding this batch may be referenced by it
+            retired.addLast(new RetiredTraces(retiring, sequence));
+            retiring = null;
+        }
+
+        while (!retired.isEmpty() && retired.peekFirst().lastSequence() < oldestSequence) {
+            retired.removeFirst();
+        }
+    }
+
+    /**
+     * Prepare already sent batches to be replayed to a receiver which knows no trace yet.
+     * <p>
+     * The first event of the replay referencing a trace without frames gets them again, from the cache or
+     * the retired traces. Traces sent before the replay are not forgotten, {@link #restartStream} of the
+     * next batch takes care of those.
+     *
+     * @param batches the batches of the replay, oldest first
+     */
+    public synchronized void restartReplay(List<LogBatch.Builder> batches) {
+        restoreTraces(batches);
+    }
+
+    private void restoreTraces(List<LogBatch.Builder> batches) {
+        Map<Long, TraceKey> keysById = null;
+        Set<Long> known = new HashSet<>();
+
+        for (LogBatch.Builder batch : batches) {
+            for (LogEvent.Builder event : batch.getEventsBuilderList()) {
+                if (!event.hasThrown()) {
+                    continue;
+                }
+
+                long id = event.getThrown().getTraceId();
+                if (!known.add(id) || event.getThrown().hasTrace()) {
+                    // Only the first event referencing the trace needs the frames
+                    continue;
+                }
+
+                if (keysById == null) {
+                    keysById = new HashMap<>();
+                    for (RetiredTraces traces : retired) {
+                        keysById.putAll(traces.keysById());
+                    }
+                    if (retiring != null) {
+                        keysById.putAll(retiring);
+                    }
+                    for (Map.Entry<TraceKey, Long> entry : traceIds.entrySet()) {
+                        keysById.put(entry.getValue(), entry.getKey());
+                    }
+                }
+
+                TraceKey key = keysById.get(id);
+                if (key != null) {
+                    event.getThrownBuilder().setTrace(toStackTrace(key.classNames, key.frames));
+                }
+            }
+        }
+    }
+
+    private void retireCachedTraces() {
+        if (traceIds.isEmpty()) {
+            return;
+        }
+
+        if (retiring == null) {
+            retiring = new HashMap<>();
+        }
+        for (Map.Entry<TraceKey, Long> entry : traceIds.entrySet()) {
+            retiring.put(entry.getValue(), entry.getKey());
+        }
+
+        traceIds.clear();
+    }
+
+    private static List<Throwable> causeChain(Throwable throwable) {
+        List<Throwable> chain = new ArrayList<>();
+        Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        Throwable current = throwable;
+        while (current != null && chain.size() < MAX_CAUSES && seen.add(current)) {
+            chain.add(current);
+            current = current.getCause();
+        }
+
+        return chain;
+    }
+
+    private static StackTrace toStackTrace(String[] classNames, StackTraceElement[][] frames) {
+        StackTrace.Builder trace = StackTrace.newBuilder();
+
+        for (int i = 0; i < classNames.length; i++) {
+            ThrowableFrames.Builder throwable = ThrowableFrames.newBuilder()
+                    .setClassName(classNames[i]);
+
+            for (StackTraceElement element : frames[i]) {
+                StackFrame.Builder frame = StackFrame.newBuilder()
+                        .setClassName(element.getClassName())
+                        .setMethodName(element.getMethodName())
+                        .setLineNumber(element.getLineNumber());
+
+                if (element.getFileName() != null) {
+                    frame.setFileName(element.getFileName());
+                }
+
+                if (element.getModuleName() != null) {
+                    frame.setModuleName(element.getModuleName());
+                }
+
+                throwable.addFrames(frame);
+            }
+
+            trace.addChain(throwable);
+        }
+
+        return trace.build();
+    }
+
+    /**
+     * Traces cleared from the cache, still referenced by batches up to and including {@code lastSequence}.
+     */
+    private record RetiredTraces(Map<Long, TraceKey> keysById, long lastSequence) {
+    }
+
+    private static final class TraceKey {
+        private final String[] classNames;
+        private final StackTraceElement[][] frames;
+        private final int hash;
+
+        TraceKey(String[] classNames, StackTraceElement[][] frames) {
+            this.classNames = classNames;
+            this.frames = frames;
+            this.hash = 31 * Arrays.hashCode(classNames) + Arrays.deepHashCode(frames);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof TraceKey other
+                    && hash == other.hash
+                    && Arrays.equals(classNames, other.classNames)
+                    && Arrays.deepEquals(frames, other.frames);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
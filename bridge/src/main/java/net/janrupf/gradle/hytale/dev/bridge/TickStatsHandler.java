@@ -0,0 +1,104 @@
+package net.janrupf.gradle.hytale.dev.bridge;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+import net.janrupf.gradle.hytale.dev.agent.HytaleDevAgent;
+import net.janrupf.gradle.hytale.dev.protocol.HytaleBridgeProto.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Streams the world tick statistics collected by the agent's tick profiler to the IDE.
+ * <p>
+ * The statistics are summarized once per second as long as an IDE is connected. Summarizing drains
+ * the histograms, so ticks while no IDE is connected are simply not reported.
+ */
+public class TickStatsHandler {
+    private static final TickStatsHandler INSTANCE = new TickStatsHandler();
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+    private static final long INTERVAL_MILLIS = 1000;
+
+    private final List<DevBridgeClient> clients;
+    private ScheduledExecutorService scheduler;
+
+    public static TickStatsHandler getInstance() {
+        return INSTANCE;
+    }
+
+    private TickStatsHandler() {
+        this.clients = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Whether the agent profiles ticks in this run.
+     *
+     * @return true if tick statistics are available
+     */
+    public boolean isAvailable() {
+        return HytaleDevAgent.getTickProfiler() != null;
+    }
+
+    /**
+     * Register a client to stream tick statistics to.
+     *
+     * @param client the client to send statistics to
+     */
+    public synchronized void addClient(DevBridgeClient client) {
+        if (!isAvailable()) {
+            return;
+        }
+
+        if (!clients.contains(client)) {
+            clients.add(client);
+        }
+
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().daemon().name("HytaleDev-TickStats").factory()
+            );
+            scheduler.scheduleAtFixedRate(this::sendStats, INTERVAL_MILLIS, INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Unregister a client previously registered with {@link #addClient}.
+     *
+     * @param client the client to remove
+     */
+    public void removeClient(DevBridgeClient client) {
+        clients.remove(client);
+    }
+
+    private void sendStats() {
+        var summaries = HytaleDevAgent.getTickProfiler().summarize();
+        if (clients.isEmpty() || summaries.isEmpty()) {
+            return;
+        }
+
+        var event = TickStatsEvent.newBuilder();
+        for (var summary : summaries) {
+            event.addWorlds(WorldTickStats.newBuilder()
+                    .setWorld(summary.world())
+                    .setTps(summary.tps())
+                    .setMeanMspt(summary.meanMspt())
+                    .setP99Mspt(summary.p99Mspt())
+                    .setMaxMspt(summary.maxMspt())
+                    .setTicks(summary.ticks())
+                    .setOverrunTicks(summary.overrunTicks()));
+        }
+
+        var built = event.build();
+        for (var client : clients) {
+            try {
+                client.sendTickStats(built);
+            } catch (RuntimeException e) {
+                // An exception would cancel the schedule for good
+                LOGGER.at(Level.WARNING).withCause(e).log("Failed to send tick statistics");
+            }
+        }
+    }
+}
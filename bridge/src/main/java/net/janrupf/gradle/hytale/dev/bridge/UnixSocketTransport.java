@@ -0,0 +1,203 @@
+package net.janrupf.gradle.hytale.dev.bridge;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transport over a Unix domain socket the IDE listens on.
+ * <p>
+ * Every frame is a 4 byte big endian length followed by the serialized message. The first frame sent
+ * after connecting is the UTF-8 encoded auth token, everything after it is protocol messages. There is
+ * no upgrade handshake and no masking.
+ * <p>
+ * Sending only puts the frame into a bounded queue, a (virtual) writer thread per connection writes
+ * them out. The client sends while holding its stream lock, so a write blocked by an IDE which stopped
+ * reading would otherwise stall every thread producing messages. If the queue fills up anyway, the
+ * connection is dropped, the client replays what the IDE missed once it reconnects.
+ */
+public class UnixSocketTransport implements BridgeTransport {
+    private static final int MAX_FRAME_SIZE = 64 * 1024 * 1024;
+
+    // Twice the replay window of the client, the burst of a full replay after reconnecting always fits
+    private static final int SEND_QUEUE_FRAMES = 8192;
+
+    private final UnixDomainSocketAddress address;
+    private final byte[] authToken;
+    private final Listener listener;
+
+    private volatile Connection connection;
+
+    /**
+     * Create a new transport.
+     *
+     * @param socketPath the path of the socket the IDE listens on
+     * @param authToken  the token to authenticate with
+     * @param listener   the listener to report to
+     */
+    public UnixSocketTransport(Path socketPath, String authToken, Listener listener) {
+        this.address = UnixDomainSocketAddress.of(socketPath);
+        this.authToken = authToken.getBytes(StandardCharsets.UTF_8);
+        this.listener = listener;
+    }
+
+    @Override
+    public synchronized boolean connect(long timeout, TimeUnit unit) {
+        // Connecting to a local socket either succeeds or fails right away, there is nothing to wait for
+        SocketChannel opened = null;
+        try {
+            opened = SocketChannel.open(StandardProtocolFamily.UNIX);
+            opened.connect(address);
+            writeFrame(opened, authToken);
+
+            Connection opening = new Connection(opened);
+            connection = opening;
+
+            listener.onOpen();
+            Thread.ofVirtual().name("HytaleDev-BridgeReader").start(() -> read(opening));
+            Thread.ofVirtual().name("HytaleDev-BridgeWriter").start(() -> write(opening));
+            return true;
+        } catch (IOException e) {
+            closeQuietly(opened);
+            listener.onClose(e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public boolean reconnect() {
+        close();
+        return connect(0, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void send(byte[] frame) throws IOException {
+        Connection current = connection;
+        if (current == null || !current.channel.isOpen()) {
+            throw new IOException("Unix domain socket is not connected");
+        }
+
+        if (!current.outgoing.offer(frame)) {
+            current.close();
+            throw new IOException("The IDE is not reading, dropped the connection");
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        Connection current = connection;
+        return current != null && current.channel.isOpen();
+    }
+
+    @Override
+    public void close() {
+        Connection current = connection;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    private void write(Connection current) {
+        try {
+            // Polled, so the writer also ends when the connection is closed while the queue is empty
+            while (current.channel.isOpen()) {
+                byte[] frame = current.outgoing.poll(1, TimeUnit.SECONDS);
+                if (frame != null) {
+                    writeFrame(current.channel, frame);
+                }
+            }
+        } catch (InterruptedException | IOException e) {
+            // Closed, the reader reports it to the listener
+        } finally {
+            current.close();
+        }
+    }
+
+    private static void writeFrame(SocketChannel target, byte[] frame) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(Integer.BYTES).putInt(0, frame.length);
+        ByteBuffer body = ByteBuffer.wrap(frame);
+        ByteBuffer[] buffers = {header, body};
+
+        while (body.hasRemaining()) {
+            target.write(buffers);
+        }
+    }
+
+    private void read(Connection connected) {
+        SocketChannel current = connected.channel;
+        String reason = "Connection closed by the IDE";
+        try {
+            ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+            while (true) {
+                header.clear();
+                readFully(current, header);
+
+                int length = header.getInt(0);
+                if (length < 0 || length > MAX_FRAME_SIZE) {
+                    throw new IOException("Invalid frame length " + length);
+                }
+
+                ByteBuffer body = ByteBuffer.allocate(length);
+                readFully(current, body);
+                listener.onFrame(body.array());
+            }
+        } catch (EOFException e) {
+            // The IDE closed its end
+        } catch (ClosedChannelException e) {
+            reason = "Connection closed";
+        } catch (IOException e) {
+            reason = e.getMessage();
+            listener.onError(e);
+        } finally {
+            connected.close();
+
+            // A reconnect may already have replaced the connection, the new one is not closed
+            if (connection == connected) {
+                listener.onClose(reason);
+            }
+        }
+    }
+
+    private static void readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        if (channel == null) {
+            return;
+        }
+
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Nothing left to do with the channel
+        }
+    }
+
+    private static final class Connection {
+        private final SocketChannel channel;
+        private final BlockingQueue<byte[]> outgoing;
+
+        private Connection(SocketChannel channel) {
+            this.channel = channel;
+            this.outgoing = new ArrayBlockingQueue<>(SEND_QUEUE_FRAMES);
+        }
+
+        private void close() {
+            closeQuietly(channel);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package net.janrupf.gradle.hytale.dev.bridge;
+
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
+import org.java_websocket.handshake.ServerHandshake;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transport over a WebSocket to the IDE's Dev Bridge server on localhost.
+ * <p>
+ * Works everywhere, but pays for the HTTP upgrade, frame masking and a dedicated client thread. Used
+ * unless the IDE offers a Unix domain socket.
+ */
+public class WebSocketTransport implements BridgeTransport {
+    private final Listener listener;
+    private final Client client;
+
+    /**
+     * Create a new transport.
+     *
+     * @param port      the port the IDE listens on
+     * @param authToken the token to authenticate with
+     * @param listener  the listener to report to
+     */
+    public WebSocketTransport(int port, String authToken, Listener listener) {
+        this.listener = listener;
+        this.client = new Client(
+                URI.create("ws://localhost:" + port + "/hytale-dev-bridge"),
+                Collections.singletonMap("Authorization", "Bearer " + authToken),
+                listener
+        );
+        this.client.setConnectionLostTimeout(30);
+    }
+
+    @Override
+    public boolean connect(long timeout, TimeUnit unit) throws InterruptedException {
+        return client.connectBlocking(timeout, unit);
+    }
+
+    @Override
+    public boolean reconnect() throws InterruptedException {
+        try {
+            return client.reconnectBlocking();
+        } catch (IllegalStateException e) {
+            // The previous connection could not be torn down yet
+            listener.onError(e);
+            return false;
+        }
+    }
+
+    @Override
+    public void send(byte[] frame) throws IOException {
+        try {
+            client.send(frame);
+        } catch (WebsocketNotConnectedException e) {
+            throw new IOException("WebSocket is not connected", e);
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return client.isOpen();
+    }
+
+    @Override
+    public void close() {
+        client.close();
+    }
+
+    private static final class Client extends WebSocketClient {
+        private final Listener listener;
+
+        Client(URI uri, Map<String, String> headers, Listener listener) {
+            super(uri, headers);
+            this.listener = listener;
+        }
+
+        @Override
+        public void onOpen(ServerHandshake handshakedata) {
+            listener.onOpen();
+        }
+
+        @Override
+        public void onMessage(String message) {
+            listener.onError(new IOException("Received unexpected text message: " + message));
+        }
+
+        @Override
+        public void onMessage(ByteBuffer bytes) {
+            byte[] frame = new byte[bytes.remaining()];
+            bytes.get(frame);
+            listener.onFrame(frame);
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+            listener.onClose(reason);
+        }
+
+        @Override
+        public void onError(Exception ex) {
+            listener.onError(ex);
+        }
+    }
+}
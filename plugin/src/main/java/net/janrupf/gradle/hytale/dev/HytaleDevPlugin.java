@@ -3,12 +3,14 @@ package net.janrupf.gradle.hytale.dev;
 import net.janrupf.gradle.hytale.dev.agent.HytaleDevAgentConfiguration;
 import net.janrupf.gradle.hytale.dev.extension.HytaleServerDependencyExtension;
 import net.janrupf.gradle.hytale.dev.extension.HytaleExtension;
+import net.janrupf.gradle.hytale.dev.extension.HytaleManifestModel;
 import net.janrupf.gradle.hytale.dev.ide.IdeIntegration;
 import net.janrupf.gradle.hytale.dev.repository.HytaleServerRepository;
 import net.janrupf.gradle.hytale.dev.run.RunGenerator;
 import net.janrupf.gradle.hytale.dev.tasks.ExtractAgentTask;
 import net.janrupf.gradle.hytale.dev.tasks.ExtractBridgeTask;
 import net.janrupf.gradle.hytale.dev.tasks.GenerateHytaleManifestTask;
+import net.janrupf.gradle.hytale.dev.tasks.PatchHytaleServerJarTask;
 import net.janrupf.gradle.hytale.dev.tasks.SingleFileCopyTask;
 import net.janrupf.gradle.hytale.dev.tasks.VineflowerDecompileTask;
 import org.gradle.api.Plugin;
@@ -17,8 +19,10 @@ import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.repositories.FlatDirectoryArtifactRepository;
 import org.gradle.api.file.RegularFile;
 import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.plugins.JavaPluginExtension;
 import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.*;
+import org.gradle.jvm.toolchain.JavaToolchainService;
 
 import java.util.Collections;
 
@@ -65,28 +69,34 @@ public abstract class HytaleDevPlugin implements Plugin<Project> {
         this.ideIntegration.runTaskOnSync(importHytaleServerJarTask);
         this.importedHytaleServerJar = importHytaleServerJarTask.flatMap(SingleFileCopyTask::getOutputFile);
 
+        var patchHytaleServerJarTask = project.getTasks().register("patchHytaleServerJar", PatchHytaleServerJarTask.class, (task) -> {
+            task.setGroup(HYTALE_TASK_GROUP);
+            task.setDescription("Applies the development transformers to the Hytale server jar ahead of time");
+
+            task.getInputJar().convention(importedHytaleServerJar);
+            task.getAgentClasspath().from(extractAgentTask.flatMap(ExtractAgentTask::getTargetFile));
+            task.getJavaLauncher().convention(project.getExtensions().getByType(JavaToolchainService.class).launcherFor(
+                    project.getExtensions().getByType(JavaPluginExtension.class).getToolchain()
+            ));
+            task.getOutputJar().convention(hytaleServerRepository.getEntry("HytaleServer-patched.jar").getFile());
+        });
+
         this.generateManifestTask = project.getTasks().register(
                 "generatePluginManifest",
                 GenerateHytaleManifestTask.class,
                 this::configureGenerateManifestTask
         );
 
+        // Runs use the patched server jar, the agent skips transformers already applied to it
         this.agentConfiguration = new HytaleDevAgentConfiguration(
                 extractAgentTask.flatMap(ExtractAgentTask::getTargetFile),
-                importedHytaleServerJar,
+                patchHytaleServerJarTask.flatMap(PatchHytaleServerJarTask::getOutputJar),
                 extractBridgeTask.flatMap(ExtractBridgeTask::getTargetFile)
         );
 
         var mainSourceSet = project.getExtensions().getByType(SourceSetContainer.class).getByName(SourceSet.MAIN_SOURCE_SET_NAME);
         var mainProcessResourcesTask = project.getTasks().named(mainSourceSet.getProcessResourcesTaskName(), Copy.class, this::configureProcessResourcesTask);
 
-        this.runGenerator = new RunGenerator(
-                project,
-                ideIntegration,
-                project.getLayout().dir(mainProcessResourcesTask.map(Copy::getDestinationDir)),
-                agentConfiguration
-        );
-
         var dependencies = project.getDependencies();
         this.vineflowerConfiguration = project.getConfigurations().detachedConfiguration(dependencies.create("org.vineflower:vineflower:1.11.2"));
         this.jacksonConfiguration = project.getConfigurations().detachedConfiguration(
@@ -94,6 +104,16 @@ public abstract class HytaleDevPlugin implements Plugin<Project> {
                 dependencies.create("tools.jackson.core:jackson-databind:3.0.3")
         );
 
+        this.runGenerator = new RunGenerator(
+                project,
+                ideIntegration,
+                project.getLayout().dir(mainProcessResourcesTask.map(Copy::getDestinationDir)),
+                agentConfiguration,
+                extension.getManifest().flatMap(HytaleManifestModel::getIdentifier)
+                        .flatMap(HytaleManifestModel.Identifier::toManifestString),
+                jacksonConfiguration
+        );
+
         this.ideIntegration.runTaskOnSync(project.getTasks().register("decompileHytaleServer", VineflowerDecompileTask.class, this::configureDecompileHytaleServerTask));
 
         project.getRepositories().flatDir(this::configureHytaleInstallationAsFlatDirRepository);
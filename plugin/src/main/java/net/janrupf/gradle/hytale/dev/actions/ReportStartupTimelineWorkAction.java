@@ -0,0 +1,90 @@
+package net.janrupf.gradle.hytale.dev.actions;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.workers.WorkAction;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public abstract class ReportStartupTimelineWorkAction implements WorkAction<ReportStartupTimelineWorkActionParams> {
+    private static final Logger LOGGER = Logging.getLogger(ReportStartupTimelineWorkAction.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Override
+    public void execute() {
+        var params = getParameters();
+        var current = readPhases(params.getTimeline().get().getAsFile().toPath());
+
+        Map<String, Phase> previous = new HashMap<>();
+        var previousFile = params.getPreviousTimeline().get().getAsFile().toPath();
+        if (Files.exists(previousFile)) {
+            for (var phase : readPhases(previousFile)) {
+                previous.putIfAbsent(phase.key(), phase);
+            }
+        }
+
+        var end = current.stream().mapToDouble((phase) -> phase.startMillis() + phase.durationMillis()).max().orElse(0);
+        var previousEnd = previous.values().stream()
+                .mapToDouble((phase) -> phase.startMillis() + phase.durationMillis())
+                .max();
+        LOGGER.lifecycle("Startup took {}{}", formatMillis(end),
+                previousEnd.isPresent() ? " (" + formatDelta(end - previousEnd.getAsDouble()) + ")" : "");
+
+        var slowest = new ArrayList<>(current);
+        slowest.removeIf((phase) -> phase.durationMillis() <= 0);
+        slowest.sort(Comparator.comparingDouble(Phase::durationMillis).reversed());
+
+        int limit = params.getLimit().get();
+        for (var phase : slowest.subList(0, Math.min(limit, slowest.size()))) {
+            var previousPhase = previous.get(phase.key());
+            LOGGER.lifecycle(
+                    "  {} {}  [{}] {}",
+                    String.format(Locale.ROOT, "%10s", formatMillis(phase.durationMillis())),
+                    previousPhase != null
+                            ? String.format(Locale.ROOT, "%12s", formatDelta(phase.durationMillis() - previousPhase.durationMillis()))
+                            : String.format(Locale.ROOT, "%12s", "new"),
+                    phase.category(),
+                    phase.name()
+            );
+        }
+    }
+
+    private static List<Phase> readPhases(Path file) {
+        var root = MAPPER.readTree(file);
+
+        var phases = new ArrayList<Phase>();
+        for (JsonNode node : root.path("phases")) {
+            phases.add(new Phase(
+                    node.path("category").asString(),
+                    node.path("name").asString(),
+                    node.path("startMillis").asDouble(),
+                    node.path("durationMillis").asDouble()
+            ));
+        }
+
+        return phases;
+    }
+
+    private static String formatMillis(double millis) {
+        return String.format(Locale.ROOT, "%.1f ms", millis);
+    }
+
+    private static String formatDelta(double millis) {
+        return String.format(Locale.ROOT, "%+.1f ms", millis);
+    }
+
+    private record Phase(String category, String name, double startMillis, double durationMillis) {
+        String key() {
+            return category + "/" + name;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package net.janrupf.gradle.hytale.dev.actions;
+
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkParameters;
+
+public interface ReportStartupTimelineWorkActionParams extends WorkParameters {
+    RegularFileProperty getTimeline();
+    RegularFileProperty getPreviousTimeline();
+    Property<Integer> getLimit();
+}
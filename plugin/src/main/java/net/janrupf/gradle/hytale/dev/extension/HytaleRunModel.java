@@ -109,6 +109,108 @@ public abstract class HytaleRunModel implements Named, Dependencies {
      */
     public abstract Property<FileSystemLocation> getAssetsLocation();
 
+    /**
+     * Whether to record the order in which classes are loaded and preload them in the background
+     * on the next launch.
+     *
+     * @return the preload classes property
+     */
+    public abstract Property<Boolean> getPreloadClasses();
+
+    /**
+     * How the server classes are loaded when launching this run configuration.
+     *
+     * @return the launch mode property
+     */
+    public abstract Property<LaunchMode> getLaunchMode();
+
+    /**
+     * Whether to load the project classes into a classloader which is replaced when they are
+     * recompiled, restarting the plugin without restarting the server.
+     * <p>
+     * Only supported with {@link LaunchMode#AGENT_CLASSLOADER}.
+     *
+     * @return the hot reload property
+     */
+    public abstract Property<Boolean> getHotReload();
+
+    /**
+     * Whether to attach the agent with {@code -javaagent} so changed method bodies can be swapped
+     * into the running server with the {@code hotswap<Name>} task.
+     *
+     * @return the hotswap property
+     */
+    public abstract Property<Boolean> getHotswap();
+
+    /**
+     * Whether to attach the agent with {@code -javaagent} so the IDE can add timing probes to methods
+     * of the running server through the bridge.
+     *
+     * @return the method tracing property
+     */
+    public abstract Property<Boolean> getMethodTracing();
+
+    /**
+     * Whether to count the allocations performed by the project classes and report the top
+     * allocation sites.
+     * <p>
+     * Not supported with {@link LaunchMode#APP_CLASSPATH}, where project classes are not transformed.
+     *
+     * @return the profile allocations property
+     */
+    public abstract Property<Boolean> getProfileAllocations();
+
+    /**
+     * The class declaring the world tick method to profile, tick profiling is disabled if not set.
+     *
+     * @return the tick profiler class property
+     */
+    public abstract Property<String> getTickProfilerClass();
+
+    /**
+     * The name of the world tick method to profile, all overloads are profiled.
+     *
+     * @return the tick profiler method property
+     */
+    public abstract Property<String> getTickProfilerMethod();
+
+    /**
+     * The target ticks per second, ticks taking longer than {@code 1000 / tickRate} milliseconds are
+     * reported as overrun by the tick profiler.
+     *
+     * @return the tick rate property
+     */
+    public abstract Property<Integer> getTickRate();
+
+    /**
+     * The number of log events buffered for forwarding to the IDE.
+     *
+     * @return the log buffer capacity property
+     */
+    public abstract Property<Integer> getLogBufferCapacity();
+
+    /**
+     * What happens to log events while the forwarding buffer is full.
+     *
+     * @return the log overflow policy property
+     */
+    public abstract Property<LogOverflowPolicy> getLogOverflowPolicy();
+
+    /**
+     * Whether to write logs and bridge events to an indexed journal in the working directory, which
+     * can be searched after the run with {@code queryRunLog<Name>}.
+     *
+     * @return the journal property
+     */
+    public abstract Property<Boolean> getJournal();
+
+    /**
+     * The maximum size of the journal in MiB, the oldest records are deleted once it grows larger.
+     *
+     * @return the journal max size property
+     */
+    public abstract Property<Integer> getJournalMaxSize();
+
     @Inject
     public HytaleRunModel(
             String name,
@@ -129,6 +231,18 @@ public abstract class HytaleRunModel implements Named, Dependencies {
         getEnabled().convention(true);
         getIdeName().convention(NamingUtil.capitalizeFirstLetter(name));
         getAssetsLocation().convention(findAssetsLocation());
+        getPreloadClasses().convention(false);
+        getLaunchMode().convention(LaunchMode.AGENT_CLASSLOADER);
+        getHotReload().convention(false);
+        getHotswap().convention(false);
+        getMethodTracing().convention(false);
+        getProfileAllocations().convention(false);
+        getTickProfilerMethod().convention("tick");
+        getTickRate().convention(30);
+        getLogBufferCapacity().convention(8192);
+        getLogOverflowPolicy().convention(LogOverflowPolicy.DROP_OLDEST);
+        getJournal().convention(false);
+        getJournalMaxSize().convention(1024);
     }
 
     /**
@@ -211,4 +325,52 @@ public abstract class HytaleRunModel implements Named, Dependencies {
             }
         }
     }
+
+    /**
+     * The ways a run configuration can put the server classes on the classpath.
+     */
+    public enum LaunchMode {
+        /**
+         * The agent defines all classes with its own classloader, applying the transformers at load time.
+         */
+        AGENT_CLASSLOADER,
+
+        /**
+         * All classes are put on the application classpath through a launcher jar.
+         * <p>
+         * Requires the patched server jar, since no transformers run at load time. In exchange, the
+         * classes are defined by the built-in application classloader, which allows them to be stored
+         * in an AOT cache (see the {@code trainAotCache<Name>} task).
+         */
+        APP_CLASSPATH,
+
+        /**
+         * All classes are put on the application classpath through a launcher jar, and the agent is
+         * attached with {@code -javaagent} to apply the transformers at load time.
+         * <p>
+         * Keeps the classes on the built-in application classloader while still transforming them,
+         * which allows retransforming classes and attributes class loading to the standard loaders.
+         */
+        JAVA_AGENT
+    }
+
+    /**
+     * The ways the bridge can handle log events while the IDE does not keep up.
+     */
+    public enum LogOverflowPolicy {
+        /**
+         * Evict the oldest buffered event.
+         */
+        DROP_OLDEST,
+
+        /**
+         * Discard the new event.
+         */
+        DROP_NEWEST,
+
+        /**
+         * Make the logging server thread wait until there is space again.
+         */
+        BLOCK
+    }
 }
@@ -121,14 +121,21 @@ public class IDEAIdeIntegration implements IdeIntegration {
             ideaRunConfiguration.setWorkingDirectory(model.getWorkingDirectory().get().getAsFile().getAbsolutePath());
             ideaRunConfiguration.setEnvs(environment);
             ideaRunConfiguration.setModuleName(intelliJModuleName(model.getSourceSet().get()));
-            ideaRunConfiguration.setJvmArgs(StringEscapeUtil.escapeArgListForIntelliJ(model.getJvmArguments().get()));
+            ideaRunConfiguration.setJvmArgs(StringEscapeUtil.escapeArgListForIntelliJ(
+                    RunGenerator.getLaunchJvmArguments(task, model)
+            ));
             ideaRunConfiguration.setProgramParameters(StringEscapeUtil.escapeArgListForIntelliJ(model.getArguments().get()));
             ideaRunConfiguration.getBeforeRun().create(
                     "Prepare run",
                     GradleTask.class,
                     (gradleTask) -> gradleTask.setTask(task)
             );
-            ideaRunConfiguration.setJarPath(runConfig.agentConfiguration.getAgentJar().get().getAsFile().getAbsolutePath());
+
+            // Runs on the application classpath launch through the generated launcher jar instead
+            var jarPath = task.getLauncherJar().isPresent()
+                    ? task.getLauncherJar().get().getAsFile()
+                    : runConfig.agentConfiguration.getAgentJar().get().getAsFile();
+            ideaRunConfiguration.setJarPath(jarPath.getAbsolutePath());
         });
     }
 
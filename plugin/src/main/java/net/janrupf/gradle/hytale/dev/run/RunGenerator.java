@@ -4,38 +4,70 @@ import net.janrupf.gradle.hytale.dev.HytaleDevPlugin;
 import net.janrupf.gradle.hytale.dev.agent.HytaleDevAgentConfiguration;
 import net.janrupf.gradle.hytale.dev.extension.HytaleRunModel;
 import net.janrupf.gradle.hytale.dev.ide.IdeIntegration;
+import net.janrupf.gradle.hytale.dev.tasks.GenerateClassHierarchyIndexTask;
+import net.janrupf.gradle.hytale.dev.tasks.HotswapTask;
 import net.janrupf.gradle.hytale.dev.tasks.PrepareHytaleServerRunTask;
+import net.janrupf.gradle.hytale.dev.tasks.QueryRunLogTask;
+import net.janrupf.gradle.hytale.dev.tasks.ReportStartupTimelineTask;
+import net.janrupf.gradle.hytale.dev.tasks.TrainAotCacheTask;
 import net.janrupf.gradle.hytale.dev.util.NamingUtil;
 import org.gradle.api.Project;
 import org.gradle.api.file.Directory;
+import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.RegularFile;
+import org.gradle.api.plugins.JavaPluginExtension;
 import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.JavaExec;
-import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.bundling.Jar;
+import org.gradle.jvm.toolchain.JavaToolchainService;
+
+import java.util.ArrayList;
+import java.util.List;
 
 public class RunGenerator {
     public static final String AGENT_MAIN_CLASS = "net.janrupf.gradle.hytale.dev.agent.HytaleDevAgent";
     public static final String AGENT_CONFIGURATION_ENV_VARIABLE = "HYTALE_DEV_AGENT_CONFIGURATION";
+    public static final String AOT_TRAINING_ENV_VARIABLE = "HYTALE_DEV_AOT_TRAINING";
 
     private final Project project;
     private final IdeIntegration ideIntegration;
     private final Provider<Directory> manifestDirectory;
     private final HytaleDevAgentConfiguration agentConfiguration;
+    private final Provider<String> pluginIdentifier;
+    private final FileCollection jacksonClasspath;
 
     public RunGenerator(
             Project project,
             IdeIntegration ideIntegration,
             Provider<Directory> manifestDirectory,
-            HytaleDevAgentConfiguration agentConfiguration
+            HytaleDevAgentConfiguration agentConfiguration,
+            Provider<String> pluginIdentifier,
+            FileCollection jacksonClasspath
     ) {
         this.project = project;
         this.ideIntegration = ideIntegration;
         this.manifestDirectory = manifestDirectory;
         this.agentConfiguration = agentConfiguration;
+        this.pluginIdentifier = pluginIdentifier;
+        this.jacksonClasspath = jacksonClasspath;
     }
 
     public void generate(HytaleRunModel model) {
         var capitalizedName = NamingUtil.capitalizeFirstLetter(model.getName());
+        var launchMode = model.getLaunchMode().get();
+        var classpath = runClasspath(model, capitalizedName, launchMode);
+
+        var classHierarchyIndexTask = project.getTasks().register(
+                "generateClassHierarchyIndex" + capitalizedName,
+                GenerateClassHierarchyIndexTask.class,
+                (task) -> {
+                    task.setDescription("Indexes the class hierarchy of the Hytale " + model.getName() + " configuration.");
+                    // Only the server jar, project classes are recompiled while the server runs
+                    task.getClasspath().from(agentConfiguration.getServerJar());
+                    task.getIndexFile().set(getRunFile(model, "class-hierarchy.idx"));
+                    task.setEnabled(model.getEnabled().get());
+                }
+        );
 
         var prepareRunTask = project.getTasks().register(
                 "prepareRun" + capitalizedName,
@@ -44,15 +76,74 @@ public class RunGenerator {
                     task.setGroup(HytaleDevPlugin.HYTALE_TASK_GROUP);
                     task.setDescription("Prepares the execution of the Hytale " + model.getName() + " configuration.");
                     task.getWorkingDirectory().convention(model.getWorkingDirectory());
-                    task.getAgentConfigurationFile().set(getAgentConfigurationFile(model));
-                    task.getClasspath().from(
-                            model.getSourceSet().map(SourceSet::getRuntimeClasspath),
-                            agentConfiguration.getServerJar()
+                    task.getAgentConfigurationFile().set(getRunFile(model, "agent-configuration.properties"));
+                    task.getClassHierarchyIndex().set(
+                            classHierarchyIndexTask.flatMap(GenerateClassHierarchyIndexTask::getIndexFile)
                     );
+                    task.getClasspath().from(classpath);
                     task.getMainClassName().set(model.getMainClassName());
                     task.getAssetsRedirectSource().set(manifestDirectory);
                     task.getAssetsRedirectTarget().set(model.getAssetsLocation());
                     task.getBridgeJar().set(agentConfiguration.getBridgeJar());
+                    task.getAgentJar().set(agentConfiguration.getAgentJar());
+                    task.getLauncherMainClassName().set(AGENT_MAIN_CLASS);
+                    if (launchMode != HytaleRunModel.LaunchMode.AGENT_CLASSLOADER) {
+                        task.getLauncherJar().set(getRunFile(model, "launcher.jar"));
+                    }
+                    if (launchMode == HytaleRunModel.LaunchMode.APP_CLASSPATH) {
+                        task.getAotCache().set(getRunFile(model, "server.aot"));
+                    }
+                    task.getJavaAgent().set(launchMode == HytaleRunModel.LaunchMode.JAVA_AGENT);
+                    task.getAttachAgent().set(model.getHotswap().get() || model.getMethodTracing().get());
+                    task.getStartupTimeline().set(model.getWorkingDirectory().file("startup-timeline.json"));
+                    task.getLogBufferCapacity().set(model.getLogBufferCapacity());
+                    task.getLogOverflowPolicy().set(model.getLogOverflowPolicy().map(Enum::name));
+                    if (model.getJournal().get()) {
+                        task.getJournalDirectory().set(model.getWorkingDirectory().dir("run-journal"));
+                        task.getJournalMaxSize().set(model.getJournalMaxSize());
+                    }
+                    if (model.getHotReload().get()) {
+                        if (launchMode != HytaleRunModel.LaunchMode.AGENT_CLASSLOADER) {
+                            throw new IllegalStateException(
+                                    "Hot reload of run " + model.getName() + " requires the AGENT_CLASSLOADER launch mode"
+                            );
+                        }
+
+                        // Only classes, resources are served from the asset redirect anyway
+                        task.getReloadableClasspath().from(
+                                model.getSourceSet().map((sourceSet) -> sourceSet.getOutput().getClassesDirs())
+                        );
+                        task.getReloadablePlugin().set(pluginIdentifier);
+                    }
+                    if (model.getProfileAllocations().get()) {
+                        if (launchMode == HytaleRunModel.LaunchMode.APP_CLASSPATH) {
+                            throw new IllegalStateException(
+                                    "Allocation profiling of run " + model.getName() + " is not supported with the APP_CLASSPATH launch mode"
+                            );
+                        }
+
+                        task.getProjectCodeSources().from(
+                                model.getSourceSet().map((sourceSet) -> sourceSet.getOutput().getClassesDirs())
+                        );
+                        task.getAllocationReport().set(getRunFile(model, "allocation-report.txt"));
+                    }
+                    if (model.getTickProfilerClass().isPresent()) {
+                        if (launchMode == HytaleRunModel.LaunchMode.APP_CLASSPATH) {
+                            throw new IllegalStateException(
+                                    "Tick profiling of run " + model.getName() + " is not supported with the APP_CLASSPATH launch mode"
+                            );
+                        }
+
+                        task.getTickProfilerClass().set(model.getTickProfilerClass());
+                        task.getTickProfilerMethod().set(model.getTickProfilerMethod());
+                        task.getTickBudgetNanos().set(model.getTickRate().map((tickRate) -> 1_000_000_000L / tickRate));
+                    }
+                    if (model.getHotswap().get()) {
+                        task.getHotswapDirectory().set(getRunDirectory(model).map((directory) -> directory.dir("hotswap")));
+                    }
+                    if (model.getPreloadClasses().get()) {
+                        task.getClassLoadProfile().set(getRunFile(model, "class-load-profile.txt"));
+                    }
                     task.setEnabled(model.getEnabled().get());
                 }
         );
@@ -63,9 +154,13 @@ public class RunGenerator {
             task.setDescription("Runs the Hytale " + model.getName() + " configuration.");
 
             task.getMainClass().set(AGENT_MAIN_CLASS);
-            task.classpath(agentConfiguration.getAgentJar());
             task.setWorkingDir(model.getWorkingDirectory());
-            task.setJvmArgs(model.getJvmArguments().get());
+            task.setJvmArgs(getLaunchJvmArguments(prepareRunTask.get(), model));
+            if (launchMode != HytaleRunModel.LaunchMode.AGENT_CLASSLOADER) {
+                task.classpath(prepareRunTask.flatMap(PrepareHytaleServerRunTask::getLauncherJar));
+            } else {
+                task.classpath(agentConfiguration.getAgentJar());
+            }
             task.setArgs(model.getArguments().get());
             task.setEnabled(model.getEnabled().get());
             task.environment(
@@ -75,13 +170,123 @@ public class RunGenerator {
             task.setStandardInput(System.in);
         });
 
+        project.getTasks().register("reportStartupTimeline" + capitalizedName, ReportStartupTimelineTask.class, (task) -> {
+            task.setGroup(HytaleDevPlugin.HYTALE_TASK_GROUP);
+            task.setDescription("Prints the slowest startup phases of the last Hytale " + model.getName() + " run.");
+            task.getTimeline().set(prepareRunTask.flatMap(PrepareHytaleServerRunTask::getStartupTimeline));
+            task.getJacksonClasspath().setFrom(jacksonClasspath);
+            task.setEnabled(model.getEnabled().get());
+        });
+
+        if (model.getJournal().get()) {
+            project.getTasks().register("queryRunLog" + capitalizedName, QueryRunLogTask.class, (task) -> {
+                task.setGroup(HytaleDevPlugin.HYTALE_TASK_GROUP);
+                task.setDescription("Prints matching records of the journal of the last Hytale " + model.getName() + " run.");
+                task.getJournalDirectory().set(prepareRunTask.flatMap(PrepareHytaleServerRunTask::getJournalDirectory));
+                task.setEnabled(model.getEnabled().get());
+            });
+        }
+
+        if (model.getHotswap().get()) {
+            project.getTasks().register("hotswap" + capitalizedName, HotswapTask.class, (task) -> {
+                task.setGroup(HytaleDevPlugin.HYTALE_TASK_GROUP);
+                task.setDescription("Swaps changed classes into the running Hytale " + model.getName() + " configuration.");
+                task.dependsOn(model.getSourceSet().map(SourceSet::getClassesTaskName));
+                task.getClassesDirectories().from(
+                        model.getSourceSet().map((sourceSet) -> sourceSet.getOutput().getClassesDirs())
+                );
+                task.getHotswapDirectory().set(prepareRunTask.flatMap(PrepareHytaleServerRunTask::getHotswapDirectory));
+                task.setEnabled(model.getEnabled().get());
+            });
+        }
+
+        if (launchMode == HytaleRunModel.LaunchMode.APP_CLASSPATH) {
+            project.getTasks().register("trainAotCache" + capitalizedName, TrainAotCacheTask.class, (task) -> {
+                task.dependsOn(prepareRunTask);
+                task.setGroup(HytaleDevPlugin.HYTALE_TASK_GROUP);
+                task.setDescription("Trains the AOT cache of the Hytale " + model.getName() + " configuration.");
+
+                task.getLauncherJar().set(prepareRunTask.flatMap(PrepareHytaleServerRunTask::getLauncherJar));
+                task.getClasspath().from(classpath, agentConfiguration.getAgentJar(), agentConfiguration.getBridgeJar());
+                task.getMainClassName().set(AGENT_MAIN_CLASS);
+                task.getJvmArguments().set(model.getJvmArguments());
+                task.getArguments().set(model.getArguments());
+                task.getEnvironment().set(model.getEnvironment());
+                task.getEnvironment().put(
+                        AGENT_CONFIGURATION_ENV_VARIABLE,
+                        prepareRunTask.flatMap(PrepareHytaleServerRunTask::getAgentConfigurationFile)
+                                .map((file) -> file.getAsFile().getAbsolutePath())
+                );
+                task.getEnvironment().put(AOT_TRAINING_ENV_VARIABLE, "true");
+                task.getWorkingDirectory().set(model.getWorkingDirectory());
+                task.getJavaLauncher().convention(project.getExtensions().getByType(JavaToolchainService.class).launcherFor(
+                        project.getExtensions().getByType(JavaPluginExtension.class).getToolchain()
+                ));
+                task.getAotCache().set(prepareRunTask.flatMap(PrepareHytaleServerRunTask::getAotCache));
+                task.setEnabled(model.getEnabled().get());
+            });
+        }
+
         ideIntegration.runTaskOnSync(prepareRunTask);
         ideIntegration.addRunConfiguration(prepareRunTask, model, agentConfiguration);
     }
 
-    private Provider<RegularFile> getAgentConfigurationFile(HytaleRunModel model) {
-        return project.getLayout().getBuildDirectory().file(
-                "hytale-dev/runs/" + model.getName() + "/agent-configuration.properties"
+    /**
+     * Computes the JVM arguments a run is launched with.
+     *
+     * @param prepareTask the prepare task of the run
+     * @param model       the run model
+     * @return the JVM arguments
+     */
+    public static List<String> getLaunchJvmArguments(PrepareHytaleServerRunTask prepareTask, HytaleRunModel model) {
+        var jvmArguments = new ArrayList<>(model.getJvmArguments().get());
+
+        if (prepareTask.getJavaAgent().get() || prepareTask.getAttachAgent().get()) {
+            jvmArguments.add("-javaagent:" + prepareTask.getAgentJarPath().get());
+        }
+
+        if (prepareTask.getAotCache().isPresent()) {
+            // Silently falls back to a regular launch if the cache is missing or stale
+            jvmArguments.add("-XX:AOTMode=auto");
+            jvmArguments.add("-XX:AOTCache=" + prepareTask.getAotCache().get().getAsFile().getAbsolutePath());
+        }
+
+        return jvmArguments;
+    }
+
+    private FileCollection runClasspath(
+            HytaleRunModel model,
+            String capitalizedName,
+            HytaleRunModel.LaunchMode launchMode
+    ) {
+        if (launchMode != HytaleRunModel.LaunchMode.APP_CLASSPATH) {
+            return project.files(
+                    model.getSourceSet().map(SourceSet::getRuntimeClasspath),
+                    agentConfiguration.getServerJar()
+            );
+        }
+
+        // AOT caches can not be created with non-empty directories on the classpath, so the
+        // classes of the source set are packaged instead
+        var classesJarTask = project.getTasks().register("packageRunClasses" + capitalizedName, Jar.class, (task) -> {
+            task.setDescription("Packages the classes of the Hytale " + model.getName() + " configuration.");
+            task.from(model.getSourceSet().map(SourceSet::getOutput));
+            task.getDestinationDirectory().set(getRunDirectory(model));
+            task.getArchiveFileName().set("classes.jar");
+        });
+
+        return project.files(
+                classesJarTask.flatMap(Jar::getArchiveFile),
+                model.getSourceSet().map((sourceSet) -> sourceSet.getRuntimeClasspath().minus(sourceSet.getOutput())),
+                agentConfiguration.getServerJar()
         );
     }
+
+    private Provider<Directory> getRunDirectory(HytaleRunModel model) {
+        return project.getLayout().getBuildDirectory().dir("hytale-dev/runs/" + model.getName());
+    }
+
+    private Provider<RegularFile> getRunFile(HytaleRunModel model, String fileName) {
+        return getRunDirectory(model).map((directory) -> directory.file(fileName));
+    }
 }
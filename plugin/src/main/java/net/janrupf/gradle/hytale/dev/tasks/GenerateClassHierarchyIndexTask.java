@@ -0,0 +1,205 @@
+package net.janrupf.gradle.hytale.dev.tasks;
+
+import net.janrupf.gradle.hytale.dev.util.ClassFileHeaderReader;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.*;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipFile;
+
+/**
+ * Generates a compact index of the class hierarchy of a run classpath.
+ * <p>
+ * The agent uses this index to compute stack maps of transformed classes without
+ * loading or parsing other classes at runtime. It memory maps the file and looks classes
+ * up in place, so everything is laid out in fixed-size tables in front of the names.
+ * Only classpath entries which do not change while the server runs should be indexed,
+ * the agent would otherwise resolve recompiled classes with outdated superclasses.
+ * <p>
+ * File format (big endian):
+ * <pre>
+ * int    magic ('HDCH')
+ * int    format version
+ * int    name count
+ * int    class count
+ * int    bucket count, a power of two
+ * int[]  offset of every name, relative to the start of the names
+ * int[]  first entry of every bucket, -1 if empty
+ * class entries, each
+ *        int  String.hashCode() of the internal class name, its bucket is hash &amp; (bucket count - 1)
+ *        int  name index
+ *        int  superclass name index, -1 if none
+ *        int  next entry of the same bucket, -1 if last
+ *        byte flags (1 = interface)
+ * names, each (u2 length, UTF-8 bytes) of an internal name
+ * </pre>
+ */
+@CacheableTask
+public abstract class GenerateClassHierarchyIndexTask extends DefaultTask {
+    public static final int MAGIC = 0x48444348;
+    public static final int FORMAT_VERSION = 2;
+
+    @InputFiles
+    @Classpath
+    public abstract ConfigurableFileCollection getClasspath();
+
+    @OutputFile
+    public abstract RegularFileProperty getIndexFile();
+
+    @TaskAction
+    public void generate() throws IOException {
+        // First entry on the classpath wins, just like at runtime
+        var headers = new LinkedHashMap<String, ClassFileHeaderReader.ClassHeader>();
+
+        for (var file : getClasspath()) {
+            if (file.isDirectory()) {
+                indexDirectory(file.toPath(), headers);
+            } else if (file.isFile()) {
+                indexJar(file, headers);
+            }
+        }
+
+        var indexPath = getIndexFile().get().getAsFile().toPath();
+        if (indexPath.getParent() != null) {
+            Files.createDirectories(indexPath.getParent());
+        }
+
+        var names = new ArrayList<String>();
+        var nameIndices = new HashMap<String, Integer>();
+        var classes = new ArrayList<>(headers.values());
+
+        for (var header : classes) {
+            nameIndex(header.name(), names, nameIndices);
+            nameIndex(header.superName(), names, nameIndices);
+        }
+
+        // At most half full, chains stay short
+        int bucketCount = Integer.highestOneBit(Math.max(1, classes.size() * 2 - 1)) << 1;
+        var buckets = new int[bucketCount];
+        var nextEntries = new int[classes.size()];
+        Arrays.fill(buckets, -1);
+        for (int i = classes.size() - 1; i >= 0; i--) {
+            int bucket = classes.get(i).name().hashCode() & (bucketCount - 1);
+            nextEntries[i] = buckets[bucket];
+            buckets[bucket] = i;
+        }
+
+        var encodedNames = new ArrayList<byte[]>(names.size());
+        for (var name : names) {
+            encodedNames.add(name.getBytes(StandardCharsets.UTF_8));
+        }
+
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexPath)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(names.size());
+            out.writeInt(classes.size());
+            out.writeInt(bucketCount);
+
+            int nameOffset = 0;
+            for (var bytes : encodedNames) {
+                out.writeInt(nameOffset);
+                nameOffset += Short.BYTES + bytes.length;
+            }
+
+            for (int bucket : buckets) {
+                out.writeInt(bucket);
+            }
+
+            for (int i = 0; i < classes.size(); i++) {
+                var header = classes.get(i);
+                out.writeInt(header.name().hashCode());
+                out.writeInt(nameIndex(header.name(), names, nameIndices));
+                out.writeInt(nameIndex(header.superName(), names, nameIndices));
+                out.writeInt(nextEntries[i]);
+                out.writeByte(header.isInterface() ? 1 : 0);
+            }
+
+            for (var bytes : encodedNames) {
+                out.writeShort(bytes.length);
+                out.write(bytes);
+            }
+        }
+
+        getLogger().info("Indexed class hierarchy of {} classes", headers.size());
+    }
+
+    private static int nameIndex(String name, List<String> names, Map<String, Integer> nameIndices) {
+        if (name == null) {
+            return -1;
+        }
+
+        return nameIndices.computeIfAbsent(name, (k) -> {
+            names.add(k);
+            return names.size() - 1;
+        });
+    }
+
+    private void indexJar(File file, Map<String, ClassFileHeaderReader.ClassHeader> headers) throws IOException {
+        try (var zip = new ZipFile(file)) {
+            var entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                var entry = entries.nextElement();
+                if (!isIndexedClassFile(entry.getName())) {
+                    continue;
+                }
+
+                try (var in = zip.getInputStream(entry)) {
+                    addHeader(in, file + "!/" + entry.getName(), headers);
+                }
+            }
+        }
+    }
+
+    private void indexDirectory(Path root, Map<String, ClassFileHeaderReader.ClassHeader> headers) throws IOException {
+        var classFiles = new ArrayList<Path>();
+        try (var files = Files.walk(root)) {
+            files.filter((path) -> isIndexedClassFile(root.relativize(path).toString().replace(File.separatorChar, '/')))
+                    .filter(Files::isRegularFile)
+                    .sorted()
+                    .forEach(classFiles::add);
+        }
+
+        for (var classFile : classFiles) {
+            try (var in = Files.newInputStream(classFile)) {
+                addHeader(in, classFile.toString(), headers);
+            }
+        }
+    }
+
+    private void addHeader(
+            InputStream in,
+            String location,
+            Map<String, ClassFileHeaderReader.ClassHeader> headers
+    ) {
+        try {
+            var header = ClassFileHeaderReader.read(in);
+            headers.putIfAbsent(header.name(), header);
+        } catch (IOException e) {
+            // A broken class file should not fail the run, the agent falls back to parsing at runtime
+            getLogger().warn("Skipping unreadable class file {} in class hierarchy index", location, e);
+        }
+    }
+
+    private static boolean isIndexedClassFile(String name) {
+        return name.endsWith(".class")
+                && !name.startsWith("META-INF/")
+                && !name.endsWith("module-info.class")
+                && !name.endsWith("package-info.class");
+    }
+}
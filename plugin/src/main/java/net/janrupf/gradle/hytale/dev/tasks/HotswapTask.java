@@ -0,0 +1,180 @@
+package net.janrupf.gradle.hytale.dev.tasks;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.UntrackedTask;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Sends the classes changed since the last hotswap to a running server.
+ * <p>
+ * The changed class files are collected into a batch, dropped into the hotswap directory of the run
+ * and redefined by the agent in a single call. The agent discards the record of sent classes when the
+ * server starts, so the first hotswap after a restart sends every class.
+ */
+@UntrackedTask(because = "Compares against the classes the running server has received")
+public abstract class HotswapTask extends DefaultTask {
+    // Keep in sync with the agent's HotswapDropDirectory
+    private static final String SENT_STATE_FILE = "sent.properties";
+    private static final long RESULT_TIMEOUT_MILLIS = 10_000;
+
+    /**
+     * The compiled classes of the run.
+     *
+     * @return the class directories
+     */
+    @InputFiles
+    public abstract ConfigurableFileCollection getClassesDirectories();
+
+    /**
+     * The directory the agent watches for batches.
+     *
+     * @return the hotswap directory property
+     */
+    @Internal
+    public abstract DirectoryProperty getHotswapDirectory();
+
+    @TaskAction
+    public void hotswap() throws IOException, InterruptedException {
+        var hotswapDirectory = getHotswapDirectory().get().getAsFile().toPath();
+        var stateFile = hotswapDirectory.resolve(SENT_STATE_FILE);
+
+        var sent = new Properties();
+        if (Files.exists(stateFile)) {
+            try (var reader = Files.newBufferedReader(stateFile)) {
+                sent.load(reader);
+            }
+        }
+
+        var current = hashClasses();
+        var changed = new TreeMap<String, Path>();
+        for (var entry : current.entrySet()) {
+            if (!entry.getValue().hash().equals(sent.getProperty(entry.getKey()))) {
+                changed.put(entry.getKey(), entry.getValue().file());
+            }
+        }
+
+        for (var name : sent.stringPropertyNames()) {
+            if (!current.containsKey(name)) {
+                getLogger().warn("Class {} was removed, this can not be hotswapped", name);
+            }
+        }
+
+        if (changed.isEmpty()) {
+            getLogger().lifecycle("No classes changed since the last hotswap");
+            return;
+        }
+
+        Files.createDirectories(hotswapDirectory);
+        var batchName = "batch-" + System.currentTimeMillis();
+        var batch = hotswapDirectory.resolve(batchName + ".zip");
+        var temporaryBatch = hotswapDirectory.resolve(batchName + ".zip.tmp");
+
+        try (var output = new ZipOutputStream(Files.newOutputStream(temporaryBatch))) {
+            for (var entry : changed.entrySet()) {
+                output.putNextEntry(new ZipEntry(entry.getKey()));
+                Files.copy(entry.getValue(), output);
+                output.closeEntry();
+            }
+        }
+
+        // The agent picks up the batch as soon as it appears, so it must appear complete
+        Files.move(temporaryBatch, batch, StandardCopyOption.ATOMIC_MOVE);
+        getLogger().lifecycle("Sent {} changed classes", changed.size());
+
+        var result = awaitResult(hotswapDirectory.resolve(batchName + ".result"));
+        if (result == null) {
+            Files.deleteIfExists(batch);
+            throw new GradleException(
+                    "The server did not pick up the hotswap batch. Is it running with hotswap enabled?"
+            );
+        }
+
+        getLogger().lifecycle(
+                "{} ({} changed classes not loaded yet)",
+                result.getProperty("message"),
+                result.getProperty("notLoaded")
+        );
+
+        if (!Boolean.parseBoolean(result.getProperty("success"))) {
+            throw new GradleException("Hotswap failed: " + result.getProperty("message"));
+        }
+
+        for (var entry : changed.keySet()) {
+            sent.setProperty(entry, current.get(entry).hash());
+        }
+
+        try (var writer = Files.newBufferedWriter(stateFile)) {
+            sent.store(writer, "Classes sent to the running server");
+        }
+    }
+
+    private Map<String, ClassFile> hashClasses() throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+
+        var classes = new HashMap<String, ClassFile>();
+        for (var directory : getClassesDirectories()) {
+            var root = directory.toPath();
+            if (!Files.isDirectory(root)) {
+                continue;
+            }
+
+            try (var files = Files.walk(root)) {
+                for (var file : (Iterable<Path>) files.filter((path) -> path.toString().endsWith(".class"))::iterator) {
+                    var name = root.relativize(file).toString().replace(root.getFileSystem().getSeparator(), "/");
+                    var hash = HexFormat.of().formatHex(digest.digest(Files.readAllBytes(file)));
+
+                    // First directory wins, like on the classpath
+                    classes.putIfAbsent(name, new ClassFile(file, hash));
+                }
+            }
+        }
+
+        return classes;
+    }
+
+    private static Properties awaitResult(Path resultFile) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + RESULT_TIMEOUT_MILLIS;
+
+        while (System.currentTimeMillis() < deadline) {
+            if (Files.exists(resultFile)) {
+                var result = new Properties();
+                try (var reader = Files.newBufferedReader(resultFile)) {
+                    result.load(reader);
+                }
+                Files.delete(resultFile);
+                return result;
+            }
+
+            Thread.sleep(100);
+        }
+
+        return null;
+    }
+
+    private record ClassFile(Path file, String hash) {
+    }
+}
@@ -0,0 +1,61 @@
+package net.janrupf.gradle.hytale.dev.tasks;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.*;
+import org.gradle.jvm.toolchain.JavaLauncher;
+import org.gradle.process.ExecOperations;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Applies the built-in agent transformers to the server jar ahead of time.
+ * <p>
+ * The patching runs in a forked JVM using the agent jar, since the transformers require
+ * the ClassFile API which may not be available to the Gradle daemon. The output is keyed
+ * by the contents of the server jar and the agent jar (which carries the transformers),
+ * so it is only regenerated when either of them changes.
+ */
+@CacheableTask
+public abstract class PatchHytaleServerJarTask extends DefaultTask {
+    public static final String PATCHER_MAIN_CLASS = "net.janrupf.gradle.hytale.dev.agent.ServerJarPatcher";
+
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getInputJar();
+
+    @InputFiles
+    @Classpath
+    public abstract ConfigurableFileCollection getAgentClasspath();
+
+    @Nested
+    public abstract Property<JavaLauncher> getJavaLauncher();
+
+    @OutputFile
+    public abstract RegularFileProperty getOutputJar();
+
+    @Inject
+    protected abstract ExecOperations getExecOperations();
+
+    @TaskAction
+    public void patch() throws IOException {
+        var outputPath = getOutputJar().get().getAsFile().toPath();
+        if (outputPath.getParent() != null) {
+            Files.createDirectories(outputPath.getParent());
+        }
+
+        getExecOperations().javaexec((spec) -> {
+            spec.setExecutable(getJavaLauncher().get().getExecutablePath().getAsFile());
+            spec.classpath(getAgentClasspath());
+            spec.getMainClass().set(PATCHER_MAIN_CLASS);
+            spec.args(
+                    getInputJar().get().getAsFile().getAbsolutePath(),
+                    outputPath.toAbsolutePath().toString()
+            );
+        });
+    }
+}
@@ -10,8 +10,14 @@ import org.gradle.work.DisableCachingByDefault;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
 import java.util.Properties;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
 
 /**
  * Task that runs before a Hytale server is started.
@@ -31,6 +37,194 @@ public abstract class PrepareHytaleServerRunTask extends DefaultTask {
     @OutputFile
     public abstract RegularFileProperty getAgentConfigurationFile();
 
+    @InputFile
+    @Optional
+    @PathSensitive(PathSensitivity.ABSOLUTE)
+    public abstract RegularFileProperty getClassHierarchyIndex();
+
+    /**
+     * The launcher jar to generate, only set when the run puts everything on the application classpath.
+     * <p>
+     * The jar contains nothing but a manifest launching the agent with the agent, the classpath and the
+     * bridge as {@code Class-Path}.
+     *
+     * @return the launcher jar property
+     */
+    @OutputFile
+    @Optional
+    public abstract RegularFileProperty getLauncherJar();
+
+    @Input
+    public abstract Property<String> getLauncherMainClassName();
+
+    /**
+     * The classpath entries the agent loads into a reloadable classloader.
+     *
+     * @return the reloadable classpath
+     */
+    @Internal
+    public abstract ConfigurableFileCollection getReloadableClasspath();
+
+    @Input
+    public Provider<List<String>> getReloadableClasspathPaths() {
+        return getReloadableClasspath().getElements().map((locations) -> locations.stream()
+                .map((location) -> location.getAsFile().getAbsolutePath())
+                .toList());
+    }
+
+    /**
+     * The identifier of the plugin to restart after the reloadable classes have been reloaded.
+     *
+     * @return the reloadable plugin property
+     */
+    @Input
+    @Optional
+    public abstract Property<String> getReloadablePlugin();
+
+    /**
+     * The directory hotswap batches are exchanged through, only set when hotswapping is enabled.
+     *
+     * @return the hotswap directory property
+     */
+    @Internal
+    public abstract DirectoryProperty getHotswapDirectory();
+
+    @Input
+    @Optional
+    public Provider<String> getHotswapDirectoryPath() {
+        return getHotswapDirectory().map((directory) -> directory.getAsFile().getAbsolutePath());
+    }
+
+    /**
+     * Whether runs attach the agent with {@code -javaagent} instead of using it as main class only.
+     *
+     * @return the java agent property
+     */
+    @Input
+    public abstract Property<Boolean> getJavaAgent();
+
+    /**
+     * Whether runs attach the agent with {@code -javaagent} in any launch mode, giving it access to the
+     * instrumentation for hotswapping and method tracing.
+     *
+     * @return the attach agent property
+     */
+    @Input
+    public abstract Property<Boolean> getAttachAgent();
+
+    /**
+     * The AOT cache runs launched through the launcher jar should use, if any.
+     *
+     * @return the AOT cache property
+     */
+    @Internal
+    public abstract RegularFileProperty getAotCache();
+
+    private final Property<FileSystemLocation> agentJar;
+
+    @Internal
+    public Property<FileSystemLocation> getAgentJar() {
+        return agentJar;
+    }
+
+    @Internal
+    public abstract RegularFileProperty getClassLoadProfile();
+
+    /**
+     * The file the agent writes the top allocation sites to at shutdown, only set when allocation
+     * profiling is enabled.
+     *
+     * @return the allocation report property
+     */
+    @Internal
+    public abstract RegularFileProperty getAllocationReport();
+
+    /**
+     * The file the agent writes the startup timeline to, the previous run's timeline is kept next to it.
+     *
+     * @return the startup timeline property
+     */
+    @Internal
+    public abstract RegularFileProperty getStartupTimeline();
+
+    /**
+     * The directories and jars containing the project classes, which are instrumented when
+     * allocation profiling is enabled.
+     *
+     * @return the project code sources
+     */
+    @Internal
+    public abstract ConfigurableFileCollection getProjectCodeSources();
+
+    /**
+     * The class declaring the world tick method to profile.
+     *
+     * @return the tick profiler class property
+     */
+    @Input
+    @Optional
+    public abstract Property<String> getTickProfilerClass();
+
+    /**
+     * The name of the world tick method to profile.
+     *
+     * @return the tick profiler method property
+     */
+    @Input
+    @Optional
+    public abstract Property<String> getTickProfilerMethod();
+
+    /**
+     * The duration above which a tick is reported as overrun.
+     *
+     * @return the tick budget property
+     */
+    @Input
+    @Optional
+    public abstract Property<Long> getTickBudgetNanos();
+
+    /**
+     * The number of log events the bridge buffers for forwarding.
+     *
+     * @return the log buffer capacity property
+     */
+    @Input
+    @Optional
+    public abstract Property<Integer> getLogBufferCapacity();
+
+    /**
+     * The name of the policy the bridge applies when the log buffer is full.
+     *
+     * @return the log overflow policy property
+     */
+    @Input
+    @Optional
+    public abstract Property<String> getLogOverflowPolicy();
+
+    /**
+     * The directory the bridge writes the run journal to, no journal is written if not set.
+     *
+     * @return the journal directory property
+     */
+    @Internal
+    public abstract DirectoryProperty getJournalDirectory();
+
+    /**
+     * The maximum size of the run journal in MiB.
+     *
+     * @return the journal max size property
+     */
+    @Input
+    @Optional
+    public abstract Property<Integer> getJournalMaxSize();
+
+    @Input
+    public Provider<List<String>> getProjectCodeSourcePaths() {
+        return getProjectCodeSources().getElements().map((locations) -> locations.stream()
+                .map((location) -> location.getAsFile().getAbsolutePath())
+                .toList());
+    }
+
     private final Property<FileSystemLocation> assetsRedirectSource;
 
     @Internal
@@ -62,16 +256,50 @@ public abstract class PrepareHytaleServerRunTask extends DefaultTask {
         return getAssetsRedirectTarget().map((location) -> location.getAsFile().toPath().toAbsolutePath().toString());
     }
 
+    @Input
+    @Optional
+    public Provider<String> getAgentJarPath() {
+        return getAgentJar().map((location) -> location.getAsFile().toPath().toAbsolutePath().toString());
+    }
+
     @Input
     @Optional
     public Provider<String> getBridgeJarPath() {
         return getBridgeJar().map((location) -> location.getAsFile().toPath().toAbsolutePath().toString());
     }
 
+    @Input
+    @Optional
+    public Provider<String> getClassLoadProfilePath() {
+        return getClassLoadProfile().map((file) -> file.getAsFile().toPath().toAbsolutePath().toString());
+    }
+
+    @Input
+    @Optional
+    public Provider<String> getAllocationReportPath() {
+        return getAllocationReport().map((file) -> file.getAsFile().toPath().toAbsolutePath().toString());
+    }
+
+    @Input
+    @Optional
+    public Provider<String> getStartupTimelinePath() {
+        return getStartupTimeline().map((file) -> file.getAsFile().toPath().toAbsolutePath().toString());
+    }
+
+    @Input
+    @Optional
+    public Provider<String> getJournalDirectoryPath() {
+        return getJournalDirectory().map((directory) -> directory.getAsFile().toPath().toAbsolutePath().toString());
+    }
+
     public PrepareHytaleServerRunTask() {
         this.assetsRedirectSource = getProject().getObjects().property(FileSystemLocation.class);
         this.assetsRedirectTarget = getProject().getObjects().property(FileSystemLocation.class);
         this.bridgeJar = getProject().getObjects().property(FileSystemLocation.class);
+        this.agentJar = getProject().getObjects().property(FileSystemLocation.class);
+
+        getJavaAgent().convention(false);
+        getAttachAgent().convention(false);
     }
 
     @TaskAction
@@ -82,6 +310,20 @@ public abstract class PrepareHytaleServerRunTask extends DefaultTask {
         properties.setProperty("classpath", encodeClasspath(getClasspath()));
         properties.setProperty("mainClassName", getMainClassName().get());
 
+        if (getLauncherJar().isPresent()) {
+            // Everything is on the application classpath already
+            properties.setProperty("appClassPath", "true");
+        }
+
+        if (getJavaAgent().get()) {
+            properties.setProperty("javaAgent", "true");
+        }
+
+        var hotswapDirectoryPath = getHotswapDirectoryPath();
+        if (hotswapDirectoryPath.isPresent()) {
+            properties.setProperty("hotswapDirectory", hotswapDirectoryPath.get());
+        }
+
         var assetsRedirectSource = getAssetsRedirectSourcePath();
         var assetsRedirectTarget = getAssetsRedirectTargetPath();
 
@@ -90,16 +332,103 @@ public abstract class PrepareHytaleServerRunTask extends DefaultTask {
             properties.setProperty("asset.redirect.target", assetsRedirectTarget.get());
         }
 
+        if (getClassHierarchyIndex().isPresent()) {
+            properties.setProperty(
+                    "classHierarchyIndex",
+                    getClassHierarchyIndex().get().getAsFile().toPath().toAbsolutePath().toString()
+            );
+        }
+
+        var classLoadProfilePath = getClassLoadProfilePath();
+        if (classLoadProfilePath.isPresent()) {
+            properties.setProperty("classLoadProfile", classLoadProfilePath.get());
+        }
+
+        var startupTimelinePath = getStartupTimelinePath();
+        if (startupTimelinePath.isPresent()) {
+            properties.setProperty("startupTimeline", startupTimelinePath.get());
+        }
+
+        var allocationReportPath = getAllocationReportPath();
+        if (allocationReportPath.isPresent()) {
+            properties.setProperty("allocationReport", allocationReportPath.get());
+            properties.setProperty("projectCodeSources", encodeClasspath(getProjectCodeSources()));
+        }
+
+        if (getTickProfilerClass().isPresent()) {
+            properties.setProperty("tickProfiler.class", getTickProfilerClass().get());
+            properties.setProperty("tickProfiler.method", getTickProfilerMethod().get());
+            properties.setProperty("tickProfiler.budgetNanos", Long.toString(getTickBudgetNanos().get()));
+        }
+
+        if (getLogBufferCapacity().isPresent()) {
+            properties.setProperty("bridge.logBufferCapacity", Integer.toString(getLogBufferCapacity().get()));
+        }
+
+        if (getLogOverflowPolicy().isPresent()) {
+            properties.setProperty("bridge.logOverflowPolicy", getLogOverflowPolicy().get());
+        }
+
+        var journalDirectoryPath = getJournalDirectoryPath();
+        if (journalDirectoryPath.isPresent()) {
+            properties.setProperty("bridge.journal", journalDirectoryPath.get());
+        }
+
+        if (getJournalMaxSize().isPresent()) {
+            properties.setProperty("bridge.journalMaxSize", Integer.toString(getJournalMaxSize().get()));
+        }
+
         var bridgeJarPath = getBridgeJarPath();
         if (bridgeJarPath.isPresent()) {
             properties.setProperty("bridge", bridgeJarPath.get());
         }
 
+        if (!getReloadableClasspath().isEmpty()) {
+            properties.setProperty("reloadableClasspath", encodeClasspath(getReloadableClasspath()));
+
+            if (getReloadablePlugin().isPresent()) {
+                properties.setProperty("reloadablePlugin", getReloadablePlugin().get());
+            }
+        }
+
         try (var writer = Files.newBufferedWriter(
                 getAgentConfigurationFile().get().getAsFile().toPath()
         )) {
             properties.store(writer, "Hytale Dev Agent Configuration");
         }
+
+        if (getLauncherJar().isPresent()) {
+            writeLauncherJar();
+        }
+    }
+
+    private void writeLauncherJar() throws IOException {
+        var classPath = new ArrayList<String>();
+
+        var agentJarPath = getAgentJarPath();
+        if (agentJarPath.isPresent()) {
+            classPath.add(Paths.get(agentJarPath.get()).toUri().toString());
+        }
+
+        for (var file : getClasspath()) {
+            classPath.add(file.toURI().toString());
+        }
+
+        var bridgeJarPath = getBridgeJarPath();
+        if (bridgeJarPath.isPresent() && Files.exists(Paths.get(bridgeJarPath.get()))) {
+            classPath.add(Paths.get(bridgeJarPath.get()).toUri().toString());
+        }
+
+        var manifest = new Manifest();
+        var attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.put(Attributes.Name.MAIN_CLASS, getLauncherMainClassName().get());
+        attributes.put(Attributes.Name.CLASS_PATH, String.join(" ", classPath));
+
+        var launcherJar = getLauncherJar().get().getAsFile().toPath();
+        try (var output = new JarOutputStream(Files.newOutputStream(launcherJar), manifest)) {
+            // Only the manifest is needed
+        }
     }
 
     private String encodeClasspath(FileCollection files) {
@@ -0,0 +1,224 @@
+package net.janrupf.gradle.hytale.dev.tasks;
+
+import net.janrupf.gradle.hytale.dev.util.RunJournalReader;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.*;
+import org.gradle.api.tasks.options.Option;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Prints the records of the journal written by the last server run which match the given filters.
+ * <p>
+ * Times are either full date-times such as {@code 2026-01-31T14:02} or times of day such as
+ * {@code 14:02}. A time of day refers to the day the run started, or the day after if it lies before
+ * the start of the run, so overnight runs can be queried without dates.
+ */
+@UntrackedTask(because = "Queries the journal written by the last server run")
+public abstract class QueryRunLogTask extends DefaultTask {
+    // Protocol log level numbers, the index is the level number
+    private static final List<String> LEVELS = List.of("UNKNOWN", "TRACE", "DEBUG", "INFO", "WARNING", "ERROR", "FATAL");
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS", Locale.ROOT);
+
+    /**
+     * The journal directory written by the bridge.
+     *
+     * @return the journal directory property
+     */
+    @Internal
+    public abstract DirectoryProperty getJournalDirectory();
+
+    /**
+     * The earliest time to print records of.
+     *
+     * @return the from property
+     */
+    @Input
+    @Optional
+    @Option(option = "from", description = "The earliest time to print records of, e.g. 14:02 or 2026-01-31T14:02")
+    public abstract Property<String> getFrom();
+
+    /**
+     * The latest time to print records of.
+     *
+     * @return the to property
+     */
+    @Input
+    @Optional
+    @Option(option = "to", description = "The latest time to print records of, e.g. 14:05 or 2026-01-31T14:05")
+    public abstract Property<String> getTo();
+
+    /**
+     * The minimum level of log records to print.
+     *
+     * @return the level property
+     */
+    @Input
+    @Optional
+    @Option(option = "level", description = "The minimum log level to print (TRACE, DEBUG, INFO, WARNING, ERROR, FATAL)")
+    public abstract Property<String> getLevel();
+
+    /**
+     * The prefix of the logger names to print records of.
+     *
+     * @return the logger prefix property
+     */
+    @Input
+    @Optional
+    @Option(option = "logger", description = "Only print records of loggers starting with this prefix")
+    public abstract Property<String> getLoggerPrefix();
+
+    /**
+     * Text the message of a record has to contain.
+     *
+     * @return the contains property
+     */
+    @Input
+    @Optional
+    @Option(option = "contains", description = "Only print records whose message contains this text")
+    public abstract Property<String> getContains();
+
+    /**
+     * Whether to print bridge events, such as server state changes and tick statistics, as well.
+     *
+     * @return the events property
+     */
+    @Input
+    @Option(option = "events", description = "Also print bridge events such as state changes and tick statistics")
+    public abstract Property<Boolean> getEvents();
+
+    /**
+     * The maximum number of records to print, 0 for no limit.
+     *
+     * @return the limit property
+     */
+    @Input
+    @Option(option = "limit", description = "The maximum number of records to print")
+    public abstract Property<String> getLimit();
+
+    public QueryRunLogTask() {
+        getEvents().convention(false);
+        getLimit().convention("0");
+    }
+
+    @TaskAction
+    public void query() throws IOException {
+        Path directory = getJournalDirectory().get().getAsFile().toPath();
+        if (!RunJournalReader.exists(directory)) {
+            throw new GradleException("No run journal at " + directory + ", run the server with journal enabled first");
+        }
+
+        long firstTimestamp = RunJournalReader.firstTimestamp(directory);
+        if (firstTimestamp < 0) {
+            getLogger().lifecycle("The run journal is empty");
+            return;
+        }
+
+        long from = getFrom().isPresent() ? parseTime(getFrom().get(), firstTimestamp) : Long.MIN_VALUE;
+        long to = getTo().isPresent() ? parseTime(getTo().get(), firstTimestamp) : Long.MAX_VALUE;
+        if (to < from && getTo().isPresent() && !getTo().get().contains("T")) {
+            // Querying across midnight
+            to += 24L * 60 * 60 * 1000;
+        }
+
+        int kindMask = 1 << RunJournalReader.KIND_LOG;
+        if (getEvents().get()) {
+            kindMask |= 1 << RunJournalReader.KIND_EVENT;
+        }
+
+        var query = new RunJournalReader.Query(from, to, levelMask(), kindMask);
+        String loggerPrefix = getLoggerPrefix().getOrNull();
+        String contains = getContains().getOrNull();
+        int limit = parseLimit(getLimit().get());
+        int[] printed = {0};
+
+        RunJournalReader.query(directory, query, (record) -> {
+            if (record.kind() == RunJournalReader.KIND_LOG) {
+                List<String> fields = record.fields();
+                if (loggerPrefix != null && !fields.get(0).startsWith(loggerPrefix)) {
+                    return true;
+                }
+
+                if (contains != null && !fields.get(2).contains(contains)) {
+                    return true;
+                }
+
+                getLogger().lifecycle("{} {} [{}] {}: {}", formatTimestamp(record.timestamp()),
+                        LEVELS.get(Math.min(record.level(), LEVELS.size() - 1)), fields.get(1), fields.get(0), fields.get(2));
+                if (!fields.get(3).isEmpty()) {
+                    getLogger().lifecycle(fields.get(3).stripTrailing());
+                }
+            } else {
+                if (contains != null && !record.fields().get(1).contains(contains)) {
+                    return true;
+                }
+
+                getLogger().lifecycle("{} EVENT {}: {}", formatTimestamp(record.timestamp()),
+                        record.fields().get(0), record.fields().get(1));
+            }
+
+            return limit <= 0 || ++printed[0] < limit;
+        });
+    }
+
+    private int levelMask() {
+        if (!getLevel().isPresent()) {
+            return -1;
+        }
+
+        int minimum = LEVELS.indexOf(getLevel().get().toUpperCase(Locale.ROOT));
+        if (minimum < 0) {
+            throw new GradleException("Unknown log level " + getLevel().get() + ", expected one of " + LEVELS);
+        }
+
+        // Events are stored with level 0, they are only filtered by kind
+        int mask = 1;
+        for (int level = minimum; level < LEVELS.size(); level++) {
+            mask |= 1 << level;
+        }
+        return mask;
+    }
+
+    private static long parseTime(String value, long firstTimestamp) {
+        ZoneId zone = ZoneId.systemDefault();
+
+        try {
+            if (value.contains("T")) {
+                return LocalDateTime.parse(value).atZone(zone).toInstant().toEpochMilli();
+            }
+
+            LocalDateTime start = LocalDateTime.ofInstant(Instant.ofEpochMilli(firstTimestamp), zone);
+            LocalDateTime time = start.toLocalDate().atTime(LocalTime.parse(value));
+            if (time.isBefore(start.withSecond(0).withNano(0))) {
+                time = time.plusDays(1);
+            }
+            return time.atZone(zone).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new GradleException("Invalid time " + value + ", expected e.g. 14:02 or 2026-01-31T14:02", e);
+        }
+    }
+
+    private static int parseLimit(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new GradleException("Invalid limit " + value, e);
+        }
+    }
+
+    private static String formatTimestamp(long timestamp) {
+        return TIMESTAMP_FORMAT.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.systemDefault()));
+    }
+}
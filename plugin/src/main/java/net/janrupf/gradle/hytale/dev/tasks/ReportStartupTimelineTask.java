@@ -0,0 +1,68 @@
+package net.janrupf.gradle.hytale.dev.tasks;
+
+import net.janrupf.gradle.hytale.dev.actions.ReportStartupTimelineWorkAction;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.*;
+import org.gradle.workers.WorkerExecutor;
+
+import javax.inject.Inject;
+import java.io.File;
+
+/**
+ * Prints the slowest phases of the last server startup and how they changed since the run before.
+ * <p>
+ * The agent keeps the timeline of the previous run next to the current one, suffixed with
+ * {@code .previous}.
+ */
+@UntrackedTask(because = "Reports on the timeline written by the last server run")
+public abstract class ReportStartupTimelineTask extends DefaultTask {
+    // Keep in sync with the agent's StartupTimeline
+    private static final String PREVIOUS_SUFFIX = ".previous";
+
+    /**
+     * The timeline written by the agent.
+     *
+     * @return the timeline property
+     */
+    @Internal
+    public abstract RegularFileProperty getTimeline();
+
+    /**
+     * The number of phases to print.
+     *
+     * @return the limit property
+     */
+    @Input
+    public abstract Property<Integer> getLimit();
+
+    @InputFiles
+    @Classpath
+    public abstract ConfigurableFileCollection getJacksonClasspath();
+
+    @Inject
+    public abstract WorkerExecutor getWorkerExecutor();
+
+    public ReportStartupTimelineTask() {
+        getLimit().convention(10);
+    }
+
+    @TaskAction
+    public void report() {
+        var timeline = getTimeline().get().getAsFile();
+        if (!timeline.exists()) {
+            throw new GradleException("No startup timeline at " + timeline + ", run the server first");
+        }
+
+        getWorkerExecutor().classLoaderIsolation(
+                (classLoader) -> classLoader.getClasspath().setFrom(getJacksonClasspath())
+        ).submit(ReportStartupTimelineWorkAction.class, (params) -> {
+            params.getTimeline().set(timeline);
+            params.getPreviousTimeline().set(new File(timeline.getPath() + PREVIOUS_SUFFIX));
+            params.getLimit().set(getLimit());
+        });
+    }
+}
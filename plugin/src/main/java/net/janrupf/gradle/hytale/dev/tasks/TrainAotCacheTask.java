@@ -0,0 +1,114 @@
+package net.janrupf.gradle.hytale.dev.tasks;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.*;
+import org.gradle.jvm.toolchain.JavaLauncher;
+import org.gradle.process.ExecOperations;
+import org.gradle.work.DisableCachingByDefault;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Trains an AOT cache (JEP 483) for a run configuration launched on the application classpath.
+ * <p>
+ * The server is started once in recording mode and stopped by the bridge after the first world tick,
+ * then the cache is created from the recorded configuration. The cache is only valid for the
+ * exact classpath and JVM it was trained with, which is why both are inputs of this task. A stale
+ * cache does not break runs, the JVM silently ignores it when launched with {@code -XX:AOTMode=auto}.
+ */
+@DisableCachingByDefault(because = "The AOT cache refers to absolute classpath locations")
+public abstract class TrainAotCacheTask extends DefaultTask {
+    /**
+     * The launcher jar of the run configuration.
+     *
+     * @return the launcher jar property
+     */
+    @InputFile
+    @PathSensitive(PathSensitivity.ABSOLUTE)
+    public abstract RegularFileProperty getLauncherJar();
+
+    /**
+     * The classpath referenced by the launcher jar, tracked so the cache is retrained when it changes.
+     *
+     * @return the classpath
+     */
+    @InputFiles
+    @Classpath
+    public abstract ConfigurableFileCollection getClasspath();
+
+    @Input
+    public abstract Property<String> getMainClassName();
+
+    @Input
+    public abstract ListProperty<String> getJvmArguments();
+
+    @Input
+    public abstract ListProperty<String> getArguments();
+
+    @Input
+    public abstract MapProperty<String, String> getEnvironment();
+
+    @Internal
+    public abstract DirectoryProperty getWorkingDirectory();
+
+    @Nested
+    public abstract Property<JavaLauncher> getJavaLauncher();
+
+    @OutputFile
+    public abstract RegularFileProperty getAotCache();
+
+    @Inject
+    protected abstract ExecOperations getExecOperations();
+
+    @TaskAction
+    public void train() throws IOException {
+        var aotCache = getAotCache().get().getAsFile().toPath().toAbsolutePath();
+        var aotConfiguration = getTemporaryDir().toPath().resolve("training.aotconf").toAbsolutePath();
+
+        Files.createDirectories(getWorkingDirectory().get().getAsFile().toPath());
+        Files.deleteIfExists(aotCache);
+        Files.deleteIfExists(aotConfiguration);
+
+        // Training run, the bridge stops the server after the first world tick
+        runServer(List.of(
+                "-XX:AOTMode=record",
+                "-XX:AOTConfiguration=" + aotConfiguration
+        ), getArguments().get());
+
+        if (!Files.exists(aotConfiguration)) {
+            throw new IllegalStateException("The training run did not produce an AOT configuration");
+        }
+
+        // Assembly, this does not run the application
+        runServer(List.of(
+                "-XX:AOTMode=create",
+                "-XX:AOTConfiguration=" + aotConfiguration,
+                "-XX:AOTCache=" + aotCache
+        ), List.of());
+    }
+
+    private void runServer(List<String> aotArguments, List<String> arguments) {
+        getExecOperations().javaexec((spec) -> {
+            var jvmArguments = new ArrayList<>(getJvmArguments().get());
+            jvmArguments.addAll(aotArguments);
+
+            spec.setExecutable(getJavaLauncher().get().getExecutablePath().getAsFile());
+            spec.classpath(getLauncherJar());
+            spec.getMainClass().set(getMainClassName());
+            spec.setWorkingDir(getWorkingDirectory().get().getAsFile());
+            spec.setJvmArgs(jvmArguments);
+            spec.setArgs(arguments);
+            spec.environment(getEnvironment().get());
+        });
+    }
+}
@@ -0,0 +1,83 @@
+package net.janrupf.gradle.hytale.dev.util;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads just the header of a class file: its name, superclass and interfaces.
+ * <p>
+ * The Gradle daemon may run on a JVM without the ClassFile API, so this walks the
+ * constant pool by hand and stops right after the interface table.
+ */
+public final class ClassFileHeaderReader {
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int ACC_INTERFACE = 0x0200;
+
+    private ClassFileHeaderReader() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * The hierarchy relevant parts of a class file header.
+     *
+     * @param name        the internal name of the class
+     * @param superName   the internal name of the superclass, or null for java/lang/Object and module-info
+     * @param interfaces  the internal names of the directly implemented interfaces
+     * @param isInterface whether the class is an interface
+     */
+    public record ClassHeader(String name, String superName, String[] interfaces, boolean isInterface) {
+    }
+
+    /**
+     * Read the header of a class file.
+     *
+     * @param in the stream positioned at the start of the class file
+     * @return the read header
+     * @throws IOException if the stream can not be read or does not contain a class file
+     */
+    public static ClassHeader read(InputStream in) throws IOException {
+        var data = new DataInputStream(in);
+
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a class file");
+        }
+
+        // minor and major version
+        data.skipNBytes(4);
+
+        int constantPoolCount = data.readUnsignedShort();
+        var utf8Entries = new String[constantPoolCount];
+        var classEntries = new int[constantPoolCount];
+
+        for (int i = 1; i < constantPoolCount; i++) {
+            int tag = data.readUnsignedByte();
+            switch (tag) {
+                case 1 -> utf8Entries[i] = data.readUTF();
+                case 7 -> classEntries[i] = data.readUnsignedShort();
+                case 8, 16, 19, 20 -> data.skipNBytes(2);
+                case 15 -> data.skipNBytes(3);
+                case 3, 4, 9, 10, 11, 12, 17, 18 -> data.skipNBytes(4);
+                case 5, 6 -> {
+                    // Long and double take up two constant pool slots
+                    data.skipNBytes(8);
+                    i++;
+                }
+                default -> throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+
+        int accessFlags = data.readUnsignedShort();
+        String name = utf8Entries[classEntries[data.readUnsignedShort()]];
+
+        int superIndex = data.readUnsignedShort();
+        String superName = superIndex == 0 ? null : utf8Entries[classEntries[superIndex]];
+
+        var interfaces = new String[data.readUnsignedShort()];
+        for (int i = 0; i < interfaces.length; i++) {
+            interfaces[i] = utf8Entries[classEntries[data.readUnsignedShort()]];
+        }
+
+        return new ClassHeader(name, superName, interfaces, (accessFlags & ACC_INTERFACE) != 0);
+    }
+}
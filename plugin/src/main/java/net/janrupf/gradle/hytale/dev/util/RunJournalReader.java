@@ -0,0 +1,332 @@
+package net.janrupf.gradle.hytale.dev.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Reads the journal the bridge writes during a run.
+ * <p>
+ * Only the blocks whose index entry overlaps the queried time range and contains a wanted level are
+ * read, everything else is skipped without touching the segment files. Records written after the last
+ * index entry, for example because the server was killed, are always scanned. Blocks of segments deleted
+ * to keep the journal within its maximum size are skipped. The files are read with plain positional
+ * reads instead of being mapped, so the Gradle daemon never keeps a run from deleting its old journal.
+ */
+public final class RunJournalReader {
+    // Keep the format in sync with the bridge's RunJournal
+    private static final String INDEX_FILE = "index.dat";
+    private static final String SEGMENT_FILE_FORMAT = "segment-%05d.dat";
+    private static final int SEGMENT_MAGIC = 0x48594A31;
+    private static final int INDEX_MAGIC = 0x48594958;
+    private static final int VERSION = 1;
+    private static final int SEGMENT_HEADER_SIZE = 8;
+    private static final int INDEX_HEADER_SIZE = 16;
+    private static final int INDEX_ENTRY_SIZE = 40;
+    private static final int TAIL_CHUNK_SIZE = 1024 * 1024;
+
+    /**
+     * Kind of records holding a log event.
+     */
+    public static final int KIND_LOG = 1;
+
+    /**
+     * Kind of records holding another bridge event, such as a server state change or tick statistics.
+     */
+    public static final int KIND_EVENT = 2;
+
+    private RunJournalReader() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Which records to read.
+     *
+     * @param fromMillis the earliest timestamp to include
+     * @param toMillis   the latest timestamp to include
+     * @param levelMask  the log levels to include, one bit per level number
+     * @param kindMask   the record kinds to include, one bit per kind
+     */
+    public record Query(long fromMillis, long toMillis, int levelMask, int kindMask) {
+        private boolean overlaps(Block block) {
+            return block.maxMillis() >= fromMillis
+                    && block.minMillis() <= toMillis
+                    && (block.levelMask() & levelMask) != 0
+                    && (block.kindMask() & kindMask) != 0;
+        }
+
+        private boolean matches(long timestamp, int kind, int level) {
+            return timestamp >= fromMillis
+                    && timestamp <= toMillis
+                    && (kindMask & (1 << kind)) != 0
+                    && (levelMask & (1 << level)) != 0;
+        }
+    }
+
+    /**
+     * A single journal record.
+     * <p>
+     * Log records have the fields logger name, thread name, message and throwable, event records the
+     * event name and its text form.
+     *
+     * @param timestamp the time the record was written, in milliseconds since the epoch
+     * @param kind      the kind of the record
+     * @param level     the log level number, 0 for events
+     * @param fields    the fields of the record
+     */
+    public record JournalRecord(long timestamp, int kind, int level, List<String> fields) {
+    }
+
+    private enum ReadResult {
+        /**
+         * The consumer asked to stop.
+         */
+        STOPPED,
+
+        /**
+         * The zero filled rest of a segment was reached.
+         */
+        END,
+
+        /**
+         * The buffer ends within a record, the position is at its start.
+         */
+        INCOMPLETE
+    }
+
+    private record Block(int segment, int offset, int length, long minMillis, long maxMillis, int levelMask, int kindMask) {
+    }
+
+    /**
+     * Check whether a directory contains a journal.
+     *
+     * @param directory the journal directory
+     * @return true if the journal index exists
+     */
+    public static boolean exists(Path directory) {
+        return Files.isRegularFile(directory.resolve(INDEX_FILE));
+    }
+
+    /**
+     * Find the timestamp of the first record in the journal.
+     *
+     * @param directory the journal directory
+     * @return the timestamp, or -1 if the journal is empty
+     * @throws IOException if the journal can not be read
+     */
+    public static long firstTimestamp(Path directory) throws IOException {
+        long[] first = {-1};
+        query(directory, new Query(Long.MIN_VALUE, Long.MAX_VALUE, -1, -1), (record) -> {
+            first[0] = record.timestamp();
+            return false;
+        });
+        return first[0];
+    }
+
+    /**
+     * Read the records matching a query in the order they were written.
+     *
+     * @param directory the journal directory
+     * @param query     the records to read
+     * @param consumer  receives the matching records, returns false to stop reading
+     * @throws IOException if the journal can not be read
+     */
+    public static void query(Path directory, Query query, Predicate<JournalRecord> consumer) throws IOException {
+        List<Block> blocks = readIndex(directory.resolve(INDEX_FILE));
+
+        int tailSegment = 0;
+        int tailOffset = SEGMENT_HEADER_SIZE;
+        FileChannel channel = null;
+        int openSegment = -1;
+
+        try {
+            for (Block block : blocks) {
+                tailSegment = block.segment();
+                tailOffset = block.offset() + block.length();
+
+                if (!query.overlaps(block)) {
+                    continue;
+                }
+
+                if (openSegment != block.segment()) {
+                    closeQuietly(channel);
+                    channel = null;
+                    openSegment = block.segment();
+
+                    try {
+                        channel = openSegment(directory, block.segment());
+                    } catch (NoSuchFileException e) {
+                        // Deleted to keep the journal within its maximum size
+                    }
+                }
+
+                if (channel == null) {
+                    continue;
+                }
+
+                ByteBuffer data = ByteBuffer.allocate(block.length());
+                readFully(channel, data, block.offset());
+                data.flip();
+
+                if (readRecords(data, query, consumer) == ReadResult.STOPPED) {
+                    return;
+                }
+            }
+        } finally {
+            closeQuietly(channel);
+        }
+
+        readTail(directory, tailSegment, tailOffset, query, consumer);
+    }
+
+    private static List<Block> readIndex(Path indexFile) throws IOException {
+        List<Block> blocks = new ArrayList<>();
+
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_SIZE);
+            readFully(channel, header, 0);
+            if (header.getInt(0) != INDEX_MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("Not a run journal index: " + indexFile);
+            }
+
+            long entries = (channel.size() - INDEX_HEADER_SIZE) / INDEX_ENTRY_SIZE;
+            ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+            for (long i = 0; i < entries; i++) {
+                entry.clear();
+                readFully(channel, entry, INDEX_HEADER_SIZE + i * INDEX_ENTRY_SIZE);
+
+                blocks.add(new Block(
+                        entry.getInt(0),
+                        entry.getInt(4),
+                        entry.getInt(8),
+                        entry.getLong(16),
+                        entry.getLong(24),
+                        entry.getInt(32),
+                        entry.getInt(36)
+                ));
+            }
+        }
+
+        return blocks;
+    }
+
+    private static void readTail(
+            Path directory,
+            int segment,
+            int offset,
+            Query query,
+            Predicate<JournalRecord> consumer
+    ) throws IOException {
+        while (Files.exists(segmentFile(directory, segment))) {
+            try (FileChannel channel = openSegment(directory, segment)) {
+                long size = channel.size();
+                long position = offset;
+                int chunkSize = TAIL_CHUNK_SIZE;
+
+                while (position + Integer.BYTES <= size) {
+                    ByteBuffer data = ByteBuffer.allocate((int) Math.min(chunkSize, size - position));
+                    readFully(channel, data, position);
+                    data.flip();
+
+                    ReadResult result = readRecords(data, query, consumer);
+                    if (result == ReadResult.STOPPED) {
+                        return;
+                    } else if (result == ReadResult.END) {
+                        break;
+                    }
+
+                    if (data.position() == 0) {
+                        // A single record larger than the chunk
+                        chunkSize *= 2;
+                    }
+                    position += data.position();
+                }
+            }
+
+            segment++;
+            offset = SEGMENT_HEADER_SIZE;
+        }
+    }
+
+    private static ReadResult readRecords(ByteBuffer data, Query query, Predicate<JournalRecord> consumer) {
+        while (data.remaining() >= Integer.BYTES) {
+            int start = data.position();
+            int length = data.getInt();
+            if (length <= 0) {
+                return ReadResult.END;
+            } else if (length > data.remaining()) {
+                data.position(start);
+                return ReadResult.INCOMPLETE;
+            }
+
+            int end = data.position() + length;
+            long timestamp = data.getLong();
+            int kind = data.get();
+            int level = data.get();
+
+            if (query.matches(timestamp, kind, level)) {
+                List<String> fields = new ArrayList<>(4);
+                while (data.position() < end) {
+                    byte[] bytes = new byte[data.getInt()];
+                    data.get(bytes);
+                    fields.add(new String(bytes, StandardCharsets.UTF_8));
+                }
+
+                if (!consumer.test(new JournalRecord(timestamp, kind, level, fields))) {
+                    return ReadResult.STOPPED;
+                }
+            }
+
+            data.position(end);
+        }
+
+        return ReadResult.INCOMPLETE;
+    }
+
+    private static FileChannel openSegment(Path directory, int segment) throws IOException {
+        FileChannel channel = FileChannel.open(segmentFile(directory, segment), StandardOpenOption.READ);
+
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+        readFully(channel, header, 0);
+        if (header.getInt(0) != SEGMENT_MAGIC || header.getInt(4) != segment) {
+            channel.close();
+            throw new IOException("Not segment " + segment + " of a run journal");
+        }
+
+        return channel;
+    }
+
+    private static Path segmentFile(Path directory, int segment) {
+        return directory.resolve(String.format(SEGMENT_FILE_FORMAT, segment));
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of the run journal");
+            }
+            position += read;
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Only read from
+        }
+    }
+}